@@ -1,17 +1,27 @@
 package com.bbt.skin.client;
 
 import com.bbt.skin.BBTSkin;
+import com.bbt.skin.client.cache.RemoteSkinCache;
 import com.bbt.skin.client.gui.screen.SkinSelectionScreen;
 import com.bbt.skin.client.render.SkinTextureManager;
 import com.bbt.skin.client.voice.VoiceStateTracker;
+import com.bbt.skin.common.config.BBTSkinConfig;
 import com.bbt.skin.common.data.SkinData;
+import com.bbt.skin.common.data.SkinHashing;
 import com.bbt.skin.common.data.SkinManager;
+import com.bbt.skin.common.image.SkinDownscaler;
+import com.bbt.skin.common.network.NetworkConstants;
 import com.bbt.skin.common.network.NetworkHandler;
-import com.bbt.skin.common.network.packet.SkinRequestPacket;
+import com.bbt.skin.common.network.SkinUploadSession;
+import com.bbt.skin.common.network.packet.SkinCapabilitiesPacket;
+import com.bbt.skin.common.network.packet.SkinInventoryPacket;
+import com.bbt.skin.common.network.packet.SkinOfferPacket;
 import com.bbt.skin.common.network.packet.SkinResetPacket;
+import com.bbt.skin.common.network.packet.SkinResponseChunkPacket;
 import com.mojang.blaze3d.platform.InputConstants;
 import net.minecraft.client.KeyMapping;
 import net.minecraft.client.Minecraft;
+import net.minecraft.client.multiplayer.ServerData;
 import net.minecraftforge.api.distmarker.Dist;
 import net.minecraftforge.client.event.InputEvent;
 import net.minecraftforge.client.event.RegisterKeyMappingsEvent;
@@ -22,9 +32,15 @@ import net.minecraftforge.event.entity.player.PlayerEvent;
 import net.minecraftforge.eventbus.api.SubscribeEvent;
 import net.minecraftforge.fml.common.Mod;
 import net.minecraftforge.fml.event.lifecycle.FMLClientSetupEvent;
+import net.minecraftforge.fml.loading.FMLPaths;
 import org.lwjgl.glfw.GLFW;
 
+import java.nio.ByteBuffer;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
 
 /**
  * Client-side initialization for BBTSkin (Forge 1.20.1)
@@ -47,10 +63,40 @@ public class BBTSkinClient {
     // Managers
     private SkinManager skinManager;
     private SkinTextureManager textureManager;
+    private RemoteSkinCache remoteSkinCache;
+    
+    // Transfer features agreed with the current server (SkinCapabilitiesPacket bits)
+    private int serverFeatures = 0;
+    // Largest skin the current server accepts; larger skins are downscaled before upload
+    private int serverMaxResolution = Integer.MAX_VALUE;
+    // Last downscaled upload, reused by periodic syncs of the same skin
+    private String scaledUploadKey = null;
+    private SkinDownscaler.Scaled scaledUpload = null;
+    // Upload being downscaled on the worker; the skin is synced once it is done
+    private String scalingUploadKey = null;
+    private final ExecutorService uploadWorker = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "BBTSkin-Upload");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // Skin offered to the server by hash, uploaded only if the server asks for it
+    private PendingOffer pendingOffer = null;
+    // Hash of the last offered image, reused while the same image is offered again
+    private byte[] offerHashSource = null;
+    private String offerHash = null;
+    
+    /**
+     * An upload waiting for the server's answer to our offer
+     */
+    private record PendingOffer(String hash, String skinId, byte[] imageData, boolean slim,
+                                String skinName, int width, int height) {
+    }
     
     private BBTSkinClient() {
         this.skinManager = new SkinManager();
         this.textureManager = new SkinTextureManager();
+        this.remoteSkinCache = new RemoteSkinCache(FMLPaths.GAMEDIR.get().resolve("bbtskin").resolve("cache"),
+                Math.max(0, BBTSkinConfig.get().getClientSkinCacheMb()) * 1024L * 1024L);
     }
     
     @SubscribeEvent
@@ -89,6 +135,10 @@ public class BBTSkinClient {
         return textureManager;
     }
     
+    public RemoteSkinCache getRemoteSkinCache() {
+        return remoteSkinCache;
+    }
+    
     // Static methods for network calls
     public static void syncCurrentSkin() {
         if (instance == null) return;
@@ -105,17 +155,100 @@ public class BBTSkinClient {
             return;
         }
         
+        int width = skin.getWidth();
+        int height = skin.getHeight();
+        if (width > instance.serverMaxResolution) {
+            String key = skin.getId() + "@" + instance.serverMaxResolution;
+            if (!key.equals(instance.scaledUploadKey)) {
+                scaleUpload(key, imageData, instance.serverMaxResolution);
+                return;
+            }
+            SkinDownscaler.Scaled scaled = instance.scaledUpload;
+            if (scaled != null) {
+                BBTSkin.LOGGER.info("Downscaled skin {} from {}x{} to {}x{} for this server",
+                        skin.getName(), width, height, scaled.width(), scaled.height());
+                imageData = scaled.imageData();
+                width = scaled.width();
+                height = scaled.height();
+            }
+        } else {
+            // Nothing to downscale for this skin; a pending result is no longer needed
+            instance.scalingUploadKey = null;
+        }
+        
+        if (imageData.length == 0 || imageData.length > NetworkConstants.MAX_SKIN_SIZE) {
+            BBTSkin.LOGGER.warn("Not syncing skin {}: {} bytes is outside the allowed size",
+                    skin.getName(), imageData.length);
+            return;
+        }
+        
+        if (imageData != instance.offerHashSource) {
+            instance.offerHash = SkinHashing.sha256(imageData);
+            instance.offerHashSource = imageData;
+        }
+        
+        try {
+            // Offer the hash first; the bytes follow only if the server does not hold this skin yet
+            instance.pendingOffer = new PendingOffer(instance.offerHash, skin.getId(), imageData, skin.isSlim(),
+                    skin.getName(), width, height);
+            NetworkHandler.sendToServer(new SkinOfferPacket(skin.getId(), instance.offerHash, imageData.length,
+                    skin.isSlim(), skin.getName()));
+            BBTSkin.LOGGER.debug("Offered skin to server: {} ({} bytes)", skin.getName(), imageData.length);
+        } catch (Exception e) {
+            BBTSkin.LOGGER.error("Failed to sync skin", e);
+        }
+    }
+    
+    /**
+     * Downscale an upload on the worker, then sync again on the client thread.
+     * Decoding and halving a large skin takes seconds and must not stall the game.
+     */
+    private static void scaleUpload(String key, byte[] imageData, int maxResolution) {
+        // Already in progress; its sync picks up the current skin
+        if (key.equals(instance.scalingUploadKey)) return;
+        instance.scalingUploadKey = key;
+        
+        instance.uploadWorker.execute(() -> {
+            SkinDownscaler.Scaled scaled = SkinDownscaler.fit(imageData, maxResolution);
+            Minecraft.getInstance().execute(() -> {
+                // Dropped by a disconnect or superseded by another skin meanwhile
+                if (!key.equals(instance.scalingUploadKey)) return;
+                instance.scalingUploadKey = null;
+                instance.scaledUpload = scaled;
+                instance.scaledUploadKey = key;
+                syncCurrentSkin();
+            });
+        });
+    }
+    
+    /**
+     * The server answered our skin offer: upload the skin if it asked for it
+     */
+    public static void handleOfferReply(String hash, boolean upload) {
+        if (instance == null) return;
+        
+        PendingOffer offer = instance.pendingOffer;
+        // Ignore answers to offers that were replaced since
+        if (offer == null || !offer.hash().equals(hash)) return;
+        instance.pendingOffer = null;
+        
+        if (!upload) {
+            BBTSkin.LOGGER.info("Server already has skin {}, not uploading", offer.skinName());
+            return;
+        }
+        
         try {
             // Use the chunked network method which automatically handles large skins
             NetworkHandler.sendSkinToServer(
-                    skin.getId(),
-                    imageData,
-                    skin.isSlim(),
-                    skin.getName(),
-                    skin.getWidth(),
-                    skin.getHeight()
+                    offer.skinId(),
+                    offer.imageData(),
+                    offer.slim(),
+                    offer.skinName(),
+                    offer.width(),
+                    offer.height(),
+                    (instance.serverFeatures & SkinCapabilitiesPacket.FEATURE_DEFLATE) != 0
             );
-            BBTSkin.LOGGER.info("Synced skin to server: {} ({} bytes)", skin.getName(), imageData.length);
+            BBTSkin.LOGGER.info("Synced skin to server: {} ({} bytes)", offer.skinName(), offer.imageData().length);
         } catch (Exception e) {
             BBTSkin.LOGGER.error("Failed to sync skin", e);
         }
@@ -130,13 +263,94 @@ public class BBTSkinClient {
         }
     }
     
-    public static void requestPlayerSkin(String playerUUID) {
+    /**
+     * The server answered our capabilities: remember the shared set and its upload limit,
+     * then upload our skin.
+     * Uploads keep the fixed chunk size: serverbound packets cannot grow past 32 KiB.
+     */
+    public static void handleServerCapabilities(int features, int maxResolution, int maxChunkSize) {
+        if (instance == null) return;
+        
+        instance.serverFeatures = features & SkinCapabilitiesPacket.localFeatures();
+        instance.serverMaxResolution = maxResolution;
+        BBTSkin.LOGGER.debug("Server transfer features: {}, max skin resolution: {}, max chunk size: {}",
+                instance.serverFeatures, maxResolution, maxChunkSize);
+        if (instance.skinManager.getAppliedSkin() != null) {
+            syncCurrentSkin();
+        }
+    }
+    
+    /**
+     * Tell the server which skins we already hold in the disk cache, in packet-sized batches
+     */
+    public static void sendSkinInventory(List<String> hashes) {
         try {
-            NetworkHandler.sendToServer(new SkinRequestPacket(playerUUID));
-            BBTSkin.LOGGER.debug("Requested skin for player {}", playerUUID);
+            for (int i = 0; i < hashes.size(); i += SkinInventoryPacket.MAX_HASHES) {
+                List<String> batch = hashes.subList(i, Math.min(hashes.size(), i + SkinInventoryPacket.MAX_HASHES));
+                NetworkHandler.sendToServer(new SkinInventoryPacket(List.copyOf(batch)));
+            }
+            BBTSkin.LOGGER.debug("Reported {} cached skins to server", hashes.size());
         } catch (Exception e) {
-            BBTSkin.LOGGER.error("Failed to request player skin", e);
+            BBTSkin.LOGGER.error("Failed to send skin inventory", e);
+        }
+    }
+    
+    /**
+     * Queue a request for a player's (new) skin; requests are paced by {@link SkinRequestQueue}
+     */
+    public static void requestPlayerSkin(String playerUUID) {
+        if (instance == null) return;
+        try {
+            UUID uuid = UUID.fromString(playerUUID);
+            instance.textureManager.getRequestQueue().forget(uuid);
+            instance.textureManager.getRequestQueue().request(uuid);
+        } catch (IllegalArgumentException e) {
+            BBTSkin.LOGGER.warn("Invalid UUID in skin request: {}", playerUUID);
+        }
+    }
+    
+    /**
+     * Handle a skin announced by content hash: reuse a loaded texture or the disk cache.
+     * The disk is read off the client thread; the answer may therefore come later.
+     * @param reply receives, on the client thread, true if the skin is applied and its bytes are not needed
+     */
+    public void handleSkinAnnounce(UUID playerUUID, String hash, boolean slim,
+                                   String skinName, int width, int height, Consumer<Boolean> reply) {
+        if (textureManager.applyKnownSkin(playerUUID, hash, slim)) {
+            remoteSkinCache.remember(playerUUID, hash);
+            reply.accept(true);
+            return;
         }
+        
+        // Remembered now, so a reset or newer skin arriving during the read is noticed
+        remoteSkinCache.remember(playerUUID, hash);
+        remoteSkinCache.load(hash, cached -> {
+            if (!hash.equals(remoteSkinCache.current(playerUUID))) {
+                // Superseded while reading; the server ignores answers to old announces
+                reply.accept(false);
+                return;
+            }
+            reply.accept(cached != null && applyCachedSkin(playerUUID, hash, slim, skinName, width, height, cached));
+        });
+    }
+    
+    private boolean applyCachedSkin(UUID playerUUID, String hash, boolean slim, String skinName,
+                                    int width, int height, byte[] cached) {
+        SkinData remoteSkin = new SkinData.Builder()
+                .id(hash)
+                .name(skinName)
+                .slim(slim)
+                .width(width)
+                .height(height)
+                .ownerUUID(playerUUID.toString())
+                .imageData(cached)
+                .build();
+        textureManager.loadRemoteSkin(playerUUID, remoteSkin);
+        
+        // Loading can still fail (e.g. undecodable image); then ask for the bytes
+        if (!textureManager.applyKnownSkin(playerUUID, hash, slim)) return false;
+        BBTSkin.LOGGER.debug("Loaded skin for player {} from disk cache", playerUUID);
+        return true;
     }
     
     /**
@@ -160,11 +374,13 @@ public class BBTSkinClient {
                     .slim(slim)
                     .width(width)
                     .height(height)
+                    .ownerUUID(playerUUID)
                     .imageData(skinData)
                     .build();
             
-            // Load texture for this remote player
+            // Load texture for this remote player and keep the image for later sessions
             textureManager.loadRemoteSkin(uuid, remoteSkin);
+            remoteSkinCache.store(uuid, skinId, skinData);
             
             BBTSkin.LOGGER.info("Loaded remote skin '{}' for player {} ({} bytes)", 
                     skinName, playerUUID, skinData.length);
@@ -173,6 +389,38 @@ public class BBTSkinClient {
         }
     }
     
+    /**
+     * Apply a chunked remote skin reassembled in a direct buffer (owned by the caller).
+     * The texture is decoded from the buffer itself; a heap copy is made only for the disk cache.
+     */
+    public void handleSkinResponse(String playerUUID, String skinId, ByteBuffer image,
+                                   boolean slim, String skinName, int width, int height) {
+        try {
+            UUID uuid = UUID.fromString(playerUUID);
+            
+            SkinData remoteSkin = new SkinData.Builder()
+                    .id(skinId)
+                    .name(skinName)
+                    .slim(slim)
+                    .width(width)
+                    .height(height)
+                    .ownerUUID(playerUUID)
+                    .build();
+            
+            textureManager.loadRemoteSkin(uuid, remoteSkin, image);
+            if (remoteSkinCache.isEnabled()) {
+                byte[] bytes = new byte[image.remaining()];
+                image.duplicate().get(bytes);
+                remoteSkinCache.store(uuid, skinId, bytes);
+            }
+            
+            BBTSkin.LOGGER.info("Loaded remote skin '{}' for player {} ({} bytes)", 
+                    skinName, playerUUID, image.remaining());
+        } catch (Exception e) {
+            BBTSkin.LOGGER.error("Failed to handle skin response", e);
+        }
+    }
+    
     /**
      * Game event handler for client-side events
      */
@@ -194,6 +442,16 @@ public class BBTSkinClient {
             if (event.phase == TickEvent.Phase.END) {
                 // Update voice state tracker for mouth animation
                 VoiceStateTracker.getInstance().tick();
+                
+                // Resend unacknowledged chunks of our skin upload, drop stalled downloads
+                SkinUploadSession.tick();
+                SkinResponseChunkPacket.sweepPendingDownloads();
+                
+                // Send queued skin requests (tab list), batched if the server supports it
+                if (instance != null && Minecraft.getInstance().getConnection() != null) {
+                    instance.textureManager.getRequestQueue().tick(
+                            (instance.serverFeatures & SkinCapabilitiesPacket.FEATURE_BATCH_REQUESTS) != 0);
+                }
             }
         }
         
@@ -209,8 +467,21 @@ public class BBTSkinClient {
                     SkinData appliedSkin = instance.skinManager.getAppliedSkin();
                     if (appliedSkin != null) {
                         instance.textureManager.loadLocalSkin(appliedSkin);
-                        // Sync to server
-                        syncCurrentSkin();
+                    }
+                    
+                    // Agree on transfer features; our skin is synced once the server answers
+                    instance.serverFeatures = 0;
+                    instance.serverMaxResolution = Integer.MAX_VALUE;
+                    instance.pendingOffer = null;
+                    NetworkHandler.sendToServer(new SkinCapabilitiesPacket(SkinCapabilitiesPacket.localFeatures(),
+                            BBTSkinConfig.get().getPreferredSkinResolution(),
+                            SkinResponseChunkPacket.MAX_RECEIVE_CHUNK_SIZE));
+                    
+                    // Prefetch skins seen on this server before and let it skip sending them
+                    ServerData server = Minecraft.getInstance().getCurrentServer();
+                    List<String> held = instance.remoteSkinCache.onJoin(server != null ? server.ip : null);
+                    if (instance.remoteSkinCache.isEnabled()) {
+                        sendSkinInventory(held);
                     }
                 }
             }
@@ -222,6 +493,9 @@ public class BBTSkinClient {
                 BBTSkin.LOGGER.info("Disconnected from server, clearing remote textures...");
                 if (instance != null) {
                     instance.textureManager.clearRemoteTextures();
+                    instance.remoteSkinCache.onLeave();
+                    instance.scalingUploadKey = null;
+                    SkinUploadSession.cancel();
                 }
             }
         }
@@ -0,0 +1,94 @@
+package com.bbt.skin.client;
+
+import com.bbt.skin.BBTSkin;
+import com.bbt.skin.common.network.NetworkHandler;
+import com.bbt.skin.common.network.packet.SkinBatchRequestPacket;
+import com.bbt.skin.common.network.packet.SkinRequestPacket;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Skins pulled from the server for players that are not pushed to us (the tab list).
+ * Requests are queued and sent from the client tick: batched for servers that support it,
+ * otherwise one at a time below the server's default request limit. A request the server
+ * did not answer is forgotten after a while so it is asked again.
+ */
+public class SkinRequestQueue {
+
+    // How long an unanswered request blocks asking for the same player again
+    private static final long REQUEST_TIMEOUT_MS = 30_000;
+    // Servers allow 10 requests a second by default; stay well below that
+    private static final long SINGLE_REQUEST_INTERVAL_MS = 200;
+    private static final long BATCH_INTERVAL_MS = 1000;
+    private static final long QUEUED = -1;
+
+    // Requested players and when their request was sent (QUEUED until then)
+    private final Map<UUID, Long> requested = new ConcurrentHashMap<>();
+    private final Queue<UUID> queue = new ConcurrentLinkedQueue<>();
+    private long lastSend = 0;
+    private long lastExpiry = 0;
+
+    /**
+     * Queue a request for a player's skin unless one is already queued or awaiting an answer
+     */
+    public void request(UUID playerUUID) {
+        if (requested.putIfAbsent(playerUUID, QUEUED) == null) {
+            queue.add(playerUUID);
+        }
+    }
+
+    /**
+     * Allow a player's skin to be requested again right away (e.g. after it was unloaded)
+     */
+    public void forget(UUID playerUUID) {
+        requested.remove(playerUUID);
+    }
+
+    /**
+     * Send this tick's share of queued requests and expire unanswered ones (client thread)
+     * @param batching whether the server accepts {@link SkinBatchRequestPacket}
+     */
+    public void tick(boolean batching) {
+        long now = System.currentTimeMillis();
+        if (now - lastExpiry >= 1000) {
+            lastExpiry = now;
+            requested.values().removeIf(sent -> sent != QUEUED && now - sent >= REQUEST_TIMEOUT_MS);
+        }
+
+        if (queue.isEmpty() || now - lastSend < (batching ? BATCH_INTERVAL_MS : SINGLE_REQUEST_INTERVAL_MS)) return;
+        lastSend = now;
+
+        List<UUID> batch = new ArrayList<>();
+        int limit = batching ? SkinBatchRequestPacket.MAX_TARGETS : 1;
+        UUID next;
+        while (batch.size() < limit && (next = queue.poll()) != null) {
+            // Skip players forgotten (or answered and unloaded) since they were queued
+            if (requested.replace(next, QUEUED, now)) {
+                batch.add(next);
+            }
+        }
+        if (batch.isEmpty()) return;
+
+        try {
+            NetworkHandler.sendToServer(batching ? new SkinBatchRequestPacket(batch)
+                    : new SkinRequestPacket(batch.get(0).toString()));
+            BBTSkin.LOGGER.debug("Requested skins for {} players", batch.size());
+        } catch (Exception e) {
+            BBTSkin.LOGGER.error("Failed to request player skins", e);
+        }
+    }
+
+    /**
+     * Drop everything (on disconnect)
+     */
+    public void clear() {
+        requested.clear();
+        queue.clear();
+    }
+}
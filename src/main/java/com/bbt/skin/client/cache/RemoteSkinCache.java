@@ -0,0 +1,221 @@
+package com.bbt.skin.client.cache;
+
+import com.bbt.skin.BBTSkin;
+import com.bbt.skin.common.data.SkinHashing;
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import net.minecraft.client.Minecraft;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Keeps remote skins across sessions.
+ * Received images go to a {@link SkinDiskCache}; per server it remembers which image each
+ * player wore last, prefetches those images on join and reports them to the server so it
+ * only announces them instead of sending the bytes again.
+ * History is touched from the client thread only; disk work runs on a background thread.
+ */
+public class RemoteSkinCache {
+    
+    // Hashes reported to the server on join
+    private static final int MAX_INVENTORY = 1024;
+    private static final int MAX_HISTORY = 2048;
+    private static final long MAX_PREFETCH_BYTES = 64L * 1024 * 1024;
+    
+    private static final Gson GSON = new Gson();
+    
+    private final Path serversDirectory;
+    @Nullable
+    private final SkinDiskCache disk;
+    private final Map<String, byte[]> prefetched = new ConcurrentHashMap<>();
+    // Owner -> image last seen on the current server, oldest first
+    private final Map<UUID, String> history = new LinkedHashMap<>();
+    private final ExecutorService io = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "BBTSkin-SkinCache");
+        thread.setDaemon(true);
+        return thread;
+    });
+    @Nullable
+    private String serverKey;
+    
+    public RemoteSkinCache(Path directory, long maxBytes) {
+        this.serversDirectory = directory.resolve("servers");
+        
+        SkinDiskCache opened = null;
+        if (maxBytes > 0) {
+            try {
+                opened = SkinDiskCache.open(directory, maxBytes);
+                BBTSkin.LOGGER.info("Skin cache: {} images ({} KB) in {}",
+                        opened.size(), opened.getTotalBytes() / 1024, directory);
+            } catch (IOException e) {
+                BBTSkin.LOGGER.error("Failed to open skin cache, remote skins will not be kept", e);
+            }
+        }
+        this.disk = opened;
+    }
+    
+    public boolean isEnabled() {
+        return disk != null;
+    }
+    
+    /**
+     * Start a session on a server: load its history and prefetch the images it used
+     * @return hashes of cached images the server is likely to announce
+     */
+    public List<String> onJoin(@Nullable String serverAddress) {
+        prefetched.clear();
+        history.clear();
+        if (disk == null) return List.of();
+        
+        serverKey = serverAddress != null && !serverAddress.isBlank()
+                ? serverAddress.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9._-]", "_")
+                : "local";
+        loadHistory();
+        
+        // Most recently seen first
+        List<String> held = new ArrayList<>();
+        List<String> seen = new ArrayList<>(history.values());
+        Collections.reverse(seen);
+        for (String hash : new LinkedHashSet<>(seen)) {
+            if (held.size() >= MAX_INVENTORY) break;
+            if (disk.contains(hash)) held.add(hash);
+        }
+        
+        io.execute(() -> {
+            long bytes = 0;
+            for (String hash : held) {
+                if (bytes >= MAX_PREFETCH_BYTES) break;
+                byte[] data = disk.read(hash);
+                if (data != null) {
+                    prefetched.put(hash, data);
+                    bytes += data.length;
+                }
+            }
+            BBTSkin.LOGGER.debug("Prefetched {} cached skins ({} KB)", prefetched.size(), bytes / 1024);
+        });
+        return held;
+    }
+    
+    /**
+     * End the session: save the history and drop prefetched images
+     */
+    public void onLeave() {
+        if (disk == null || serverKey == null) return;
+        
+        saveHistory();
+        serverKey = null;
+        history.clear();
+        io.execute(() -> {
+            prefetched.clear();
+            disk.flush();
+        });
+    }
+    
+    /**
+     * Get a cached image by hash and hand it, or null if it is not cached, to the callback
+     * on the client thread. A prefetched copy is handed over right away; reading and
+     * verifying a file runs on the background thread.
+     */
+    public void load(String hash, Consumer<byte[]> callback) {
+        byte[] data = disk != null ? prefetched.remove(hash) : null;
+        if (data != null || disk == null || !disk.contains(hash)) {
+            callback.accept(data);
+            return;
+        }
+        io.execute(() -> {
+            byte[] read = disk.read(hash);
+            Minecraft.getInstance().execute(() -> callback.accept(read));
+        });
+    }
+    
+    /**
+     * Keep an image received from the server
+     */
+    public void store(UUID ownerUUID, String hash, byte[] data) {
+        if (disk == null || !SkinDiskCache.isValidHash(hash)) return;
+        
+        remember(ownerUUID, hash);
+        io.execute(() -> {
+            // Content-addressed: never file bytes under a hash they do not match
+            if (SkinHashing.sha256(data).equals(hash)) {
+                disk.write(hash, data);
+            }
+        });
+    }
+    
+    /**
+     * Record the image a player currently wears on this server
+     */
+    public void remember(UUID ownerUUID, String hash) {
+        if (disk == null || serverKey == null) return;
+        
+        history.remove(ownerUUID);
+        history.put(ownerUUID, hash);
+        if (history.size() > MAX_HISTORY) {
+            history.remove(history.keySet().iterator().next());
+        }
+    }
+    
+    /**
+     * The image a player wears on this server as far as we know, or null
+     */
+    @Nullable
+    public String current(UUID ownerUUID) {
+        return history.get(ownerUUID);
+    }
+    
+    /**
+     * A player cleared their skin
+     */
+    public void forget(UUID ownerUUID) {
+        history.remove(ownerUUID);
+    }
+    
+    private Path historyFile() {
+        return serversDirectory.resolve(serverKey + ".json");
+    }
+    
+    private void loadHistory() {
+        Path file = historyFile();
+        if (!Files.exists(file)) return;
+        
+        try {
+            JsonObject root = JsonParser.parseString(Files.readString(file, StandardCharsets.UTF_8)).getAsJsonObject();
+            for (String key : root.keySet()) {
+                String hash = root.get(key).getAsString();
+                if (SkinDiskCache.isValidHash(hash)) {
+                    history.put(UUID.fromString(key), hash);
+                }
+            }
+        } catch (Exception e) {
+            BBTSkin.LOGGER.warn("Failed to read skin cache history {}", file, e);
+        }
+    }
+    
+    private void saveHistory() {
+        JsonObject root = new JsonObject();
+        for (Map.Entry<UUID, String> entry : history.entrySet()) {
+            root.addProperty(entry.getKey().toString(), entry.getValue());
+        }
+        
+        Path file = historyFile();
+        io.execute(() -> {
+            try {
+                Files.createDirectories(file.getParent());
+                Files.writeString(file, GSON.toJson(root), StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                BBTSkin.LOGGER.warn("Failed to save skin cache history {}", file, e);
+            }
+        });
+    }
+}
@@ -0,0 +1,343 @@
+package com.bbt.skin.client.cache;
+
+import com.bbt.skin.BBTSkin;
+import com.bbt.skin.common.data.SkinHashing;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Content-addressed disk cache of remote skin images.
+ * Images live in {@code blobs/<xx>/<hash>.png}; a memory-mapped index of fixed-size slots
+ * records size and last use of each image, so recency updates are plain memory writes.
+ * The least recently used images are evicted once the cache grows past its byte cap.
+ * Thread-safe.
+ */
+public class SkinDiskCache {
+    
+    private static final int INDEX_MAGIC = 0x42425343; // "BBSC"
+    private static final int INDEX_VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    // used flag, 32-byte hash, int size, long last use; padded
+    private static final int SLOT_SIZE = 48;
+    private static final int HASH_BYTES = 32;
+    private static final int INITIAL_SLOTS = 256;
+    
+    private final Path directory;
+    private final Path blobDirectory;
+    private final long maxBytes;
+    // Access-ordered: iteration starts at the least recently used image
+    private final Map<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private final Deque<Integer> freeSlots = new ArrayDeque<>();
+    private FileChannel indexChannel;
+    private MappedByteBuffer index;
+    private int slotCount;
+    private long totalBytes = 0;
+    private long hits = 0;
+    private long misses = 0;
+    
+    private static final class Entry {
+        final int slot;
+        final int size;
+        
+        Entry(int slot, int size) {
+            this.slot = slot;
+            this.size = size;
+        }
+    }
+    
+    private SkinDiskCache(Path directory, long maxBytes) {
+        this.directory = directory;
+        this.blobDirectory = directory.resolve("blobs");
+        this.maxBytes = maxBytes;
+    }
+    
+    /**
+     * Open (or create) a cache directory
+     */
+    public static SkinDiskCache open(Path directory, long maxBytes) throws IOException {
+        SkinDiskCache cache = new SkinDiskCache(directory, maxBytes);
+        Files.createDirectories(cache.blobDirectory);
+        cache.openIndex();
+        synchronized (cache) {
+            cache.evictIfNeeded();
+        }
+        return cache;
+    }
+    
+    private void openIndex() throws IOException {
+        indexChannel = FileChannel.open(directory.resolve("index.bin"),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        
+        long fileSize = indexChannel.size();
+        int storedSlots = 0;
+        if (fileSize >= HEADER_SIZE) {
+            MappedByteBuffer header = indexChannel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            if (header.getInt(0) == INDEX_MAGIC && header.getInt(4) == INDEX_VERSION) {
+                storedSlots = header.getInt(8);
+                if ((long) HEADER_SIZE + (long) storedSlots * SLOT_SIZE > fileSize) {
+                    storedSlots = 0;
+                }
+            }
+        }
+        
+        if (storedSlots > 0) {
+            map(storedSlots);
+            loadSlots();
+        } else {
+            // New or unreadable index: rebuild it from the image files on disk
+            indexChannel.truncate(0);
+            map(INITIAL_SLOTS);
+            rebuildFromBlobs();
+        }
+    }
+    
+    private void map(int slots) throws IOException {
+        slotCount = slots;
+        index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) slots * SLOT_SIZE);
+        index.putInt(0, INDEX_MAGIC);
+        index.putInt(4, INDEX_VERSION);
+        index.putInt(8, slots);
+    }
+    
+    private void loadSlots() {
+        List<long[]> used = new ArrayList<>();
+        for (int slot = 0; slot < slotCount; slot++) {
+            int offset = slotOffset(slot);
+            if (index.get(offset) != 1) {
+                freeSlots.add(slot);
+                continue;
+            }
+            String hash = readHash(offset + 1);
+            if (!Files.exists(blobPath(hash))) {
+                index.put(offset, (byte) 0);
+                freeSlots.add(slot);
+                continue;
+            }
+            used.add(new long[] { index.getLong(offset + 1 + HASH_BYTES + 4), slot });
+        }
+        
+        // Insert oldest first so the access order matches the recorded recency
+        used.sort(Comparator.comparingLong(a -> a[0]));
+        for (long[] slotInfo : used) {
+            int slot = (int) slotInfo[1];
+            int offset = slotOffset(slot);
+            int size = index.getInt(offset + 1 + HASH_BYTES);
+            entries.put(readHash(offset + 1), new Entry(slot, size));
+            totalBytes += size;
+        }
+    }
+    
+    private void rebuildFromBlobs() throws IOException {
+        for (int slot = 0; slot < slotCount; slot++) {
+            freeSlots.add(slot);
+        }
+        
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(blobDirectory)) {
+            files = walk.filter(p -> p.toString().endsWith(".png")).toList();
+        }
+        
+        List<Map.Entry<Path, Long>> byAge = new ArrayList<>();
+        for (Path file : files) {
+            byAge.add(Map.entry(file, Files.getLastModifiedTime(file).toMillis()));
+        }
+        byAge.sort(Map.Entry.comparingByValue());
+        
+        for (Map.Entry<Path, Long> file : byAge) {
+            String name = file.getKey().getFileName().toString();
+            String hash = name.substring(0, name.length() - 4);
+            if (!isValidHash(hash)) continue;
+            register(hash, (int) Files.size(file.getKey()), file.getValue());
+        }
+        
+        if (!entries.isEmpty()) {
+            BBTSkin.LOGGER.info("Rebuilt skin cache index ({} images)", entries.size());
+        }
+    }
+    
+    /**
+     * Check whether an image is cached (index only, no disk access)
+     */
+    public synchronized boolean contains(String hash) {
+        return entries.containsKey(hash);
+    }
+    
+    /**
+     * Read a cached image, verifying it against its hash
+     * @return the image bytes, or null if not cached or corrupt
+     */
+    @Nullable
+    public byte[] read(String hash) {
+        synchronized (this) {
+            if (!entries.containsKey(hash)) {
+                misses++;
+                return null;
+            }
+        }
+        
+        byte[] data;
+        try {
+            data = Files.readAllBytes(blobPath(hash));
+        } catch (IOException e) {
+            data = null;
+        }
+        
+        synchronized (this) {
+            if (data == null || !SkinHashing.sha256(data).equals(hash)) {
+                BBTSkin.LOGGER.warn("Dropping unreadable cached skin {}", hash);
+                remove(hash);
+                misses++;
+                return null;
+            }
+            Entry entry = entries.get(hash);
+            if (entry != null) {
+                index.putLong(slotOffset(entry.slot) + 1 + HASH_BYTES + 4, System.currentTimeMillis());
+            }
+            hits++;
+        }
+        return data;
+    }
+    
+    /**
+     * Store an image under its content hash (blocking; call off the render thread)
+     */
+    public void write(String hash, byte[] data) {
+        if (!isValidHash(hash) || data.length > maxBytes) return;
+        synchronized (this) {
+            if (entries.containsKey(hash)) return;
+        }
+        
+        Path target = blobPath(hash);
+        try {
+            Files.createDirectories(target.getParent());
+            Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+            Files.write(temp, data);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            BBTSkin.LOGGER.warn("Failed to cache skin {}", hash, e);
+            return;
+        }
+        
+        synchronized (this) {
+            if (entries.containsKey(hash)) return;
+            try {
+                register(hash, data.length, System.currentTimeMillis());
+            } catch (IOException e) {
+                BBTSkin.LOGGER.warn("Failed to index cached skin {}", hash, e);
+                return;
+            }
+            evictIfNeeded();
+        }
+    }
+    
+    private void register(String hash, int size, long lastUsed) throws IOException {
+        if (freeSlots.isEmpty()) {
+            int oldCount = slotCount;
+            map(slotCount * 2);
+            for (int slot = oldCount; slot < slotCount; slot++) {
+                freeSlots.add(slot);
+            }
+        }
+        
+        int slot = freeSlots.poll();
+        int offset = slotOffset(slot);
+        byte[] raw = hexToBytes(hash);
+        for (int i = 0; i < HASH_BYTES; i++) {
+            index.put(offset + 1 + i, raw[i]);
+        }
+        index.putInt(offset + 1 + HASH_BYTES, size);
+        index.putLong(offset + 1 + HASH_BYTES + 4, lastUsed);
+        index.put(offset, (byte) 1);
+        
+        entries.put(hash, new Entry(slot, size));
+        totalBytes += size;
+    }
+    
+    private void remove(String hash) {
+        Entry entry = entries.remove(hash);
+        if (entry == null) return;
+        
+        index.put(slotOffset(entry.slot), (byte) 0);
+        freeSlots.add(entry.slot);
+        totalBytes -= entry.size;
+        try {
+            Files.deleteIfExists(blobPath(hash));
+        } catch (IOException e) {
+            BBTSkin.LOGGER.warn("Failed to delete cached skin {}", hash);
+        }
+    }
+    
+    private void evictIfNeeded() {
+        while (totalBytes > maxBytes && !entries.isEmpty()) {
+            remove(entries.keySet().iterator().next());
+        }
+    }
+    
+    /**
+     * Write recency updates in the mapped index back to disk
+     */
+    public synchronized void flush() {
+        index.force();
+    }
+    
+    private Path blobPath(String hash) {
+        return blobDirectory.resolve(hash.substring(0, 2)).resolve(hash + ".png");
+    }
+    
+    private static int slotOffset(int slot) {
+        return HEADER_SIZE + slot * SLOT_SIZE;
+    }
+    
+    private String readHash(int offset) {
+        byte[] raw = new byte[HASH_BYTES];
+        for (int i = 0; i < HASH_BYTES; i++) {
+            raw[i] = index.get(offset + i);
+        }
+        return SkinHashing.toHex(raw);
+    }
+    
+    private static byte[] hexToBytes(String hex) {
+        byte[] raw = new byte[hex.length() / 2];
+        for (int i = 0; i < raw.length; i++) {
+            raw[i] = (byte) Integer.parseInt(hex, i * 2, i * 2 + 2, 16);
+        }
+        return raw;
+    }
+    
+    /**
+     * Content hashes are lowercase hex SHA-256
+     */
+    public static boolean isValidHash(@Nullable String hash) {
+        if (hash == null || hash.length() != HASH_BYTES * 2) return false;
+        for (int i = 0; i < hash.length(); i++) {
+            char c = hash.charAt(i);
+            if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) return false;
+        }
+        return true;
+    }
+    
+    public synchronized int size() {
+        return entries.size();
+    }
+    
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+    
+    public synchronized long getHits() {
+        return hits;
+    }
+    
+    public synchronized long getMisses() {
+        return misses;
+    }
+}
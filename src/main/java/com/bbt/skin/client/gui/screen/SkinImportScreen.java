@@ -9,6 +9,8 @@ import com.bbt.skin.client.gui.widget.PlayerModelWidget;
 import com.bbt.skin.client.voice.PlasmoVoiceCompat;
 import com.bbt.skin.common.data.SkinData;
 import com.bbt.skin.common.data.SkinManager;
+import com.bbt.skin.common.image.PngProbe;
+import com.bbt.skin.common.network.NetworkConstants;
 import net.minecraft.client.Minecraft;
 import net.minecraft.client.gui.GuiGraphics;
 import net.minecraft.client.gui.components.EditBox;
@@ -21,6 +23,8 @@ import org.lwjgl.util.tinyfd.TinyFileDialogs;
 
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.concurrent.CompletableFuture;
@@ -75,7 +79,7 @@ public class SkinImportScreen extends Screen {
     
     // State - Open mouth texture (optional)
     @Nullable private Path openMouthPath;
-    @Nullable private BufferedImage openMouthImage;
+    @Nullable private PngProbe.Info openMouthInfo;
     @Nullable private byte[] openMouthData;
     
     // UI state
@@ -265,7 +269,7 @@ public class SkinImportScreen extends Screen {
         
         // If mouth open is checked, require open mouth file
         if (mouthOpenCheckbox.isChecked() && plasmoVoiceAvailable) {
-            if (openMouthPath == null || openMouthImage == null) return false;
+            if (openMouthPath == null || openMouthInfo == null) return false;
         }
         
         return true;
@@ -416,23 +420,29 @@ public class SkinImportScreen extends Screen {
         }
         
         try {
-            BufferedImage image = ImageIO.read(path.toFile());
-            if (image == null) {
-                showStatus("Failed to read image", COLOR_ERROR);
-                return;
-            }
+            byte[] data = readPng(path);
+            if (data == null) return;
             
-            int w = image.getWidth();
-            int h = image.getHeight();
+            // Check the header before decoding anything
+            PngProbe.Info png = PngProbe.probe(data);
+            int w = png.width();
+            int h = png.height();
             
             if (!isValidSkinSize(w, h)) {
                 showStatus("Invalid size: " + w + "x" + h, COLOR_ERROR);
                 return;
             }
             
+            // Decoded once, for the preview
+            BufferedImage image = ImageIO.read(new ByteArrayInputStream(data));
+            if (image == null) {
+                showStatus("Failed to read image", COLOR_ERROR);
+                return;
+            }
+            
             skinFilePath = path;
             skinImage = image;
-            skinData = Files.readAllBytes(path);
+            skinData = data;
             
             // Auto-fill preset name if empty
             if (presetNameField.getValue().isEmpty()) {
@@ -458,24 +468,24 @@ public class SkinImportScreen extends Screen {
         }
         
         try {
-            BufferedImage image = ImageIO.read(path.toFile());
-            if (image == null) {
-                showStatus("Failed to read image", COLOR_ERROR);
-                return;
-            }
+            byte[] data = readPng(path);
+            if (data == null) return;
+            
+            // The header is enough: this texture is not previewed
+            PngProbe.Info png = PngProbe.probe(data);
             
             // Validate size matches main skin
             if (skinImage != null) {
-                if (image.getWidth() != skinImage.getWidth() ||
-                    image.getHeight() != skinImage.getHeight()) {
+                if (png.width() != skinImage.getWidth() ||
+                    png.height() != skinImage.getHeight()) {
                     showStatus("Size must match main skin!", COLOR_ERROR);
                     return;
                 }
             }
             
             openMouthPath = path;
-            openMouthImage = image;
-            openMouthData = Files.readAllBytes(path);
+            openMouthInfo = png;
+            openMouthData = data;
             
             showStatus("Mouth texture loaded", COLOR_SUCCESS);
             
@@ -485,6 +495,18 @@ public class SkinImportScreen extends Screen {
         }
     }
     
+    /**
+     * Read a PNG file, refusing files too large to be a skin
+     */
+    @Nullable
+    private byte[] readPng(Path path) throws IOException {
+        if (Files.size(path) > NetworkConstants.MAX_SKIN_SIZE) {
+            showStatus("File too large", COLOR_ERROR);
+            return null;
+        }
+        return Files.readAllBytes(path);
+    }
+    
     private void updatePreview() {
         if (skinImage != null && previewModel != null) {
             previewModel.setSkinFromImage(skinImage, slimCheckbox.isChecked());
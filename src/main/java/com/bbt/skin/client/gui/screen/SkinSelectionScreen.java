@@ -326,9 +326,7 @@ public class SkinSelectionScreen extends Screen {
     
     private boolean isCurrentSkinApplied() {
         if (selectedSkin == null) return false;
-        SkinManager manager = BBTSkinClient.getInstance().getSkinManager();
-        SkinData applied = manager.getAppliedSkin();
-        return applied != null && applied.getId().equals(selectedSkin.getId());
+        return BBTSkinClient.getInstance().getSkinManager().isApplied(selectedSkin.getId());
     }
     
     public void refreshSkinList() {
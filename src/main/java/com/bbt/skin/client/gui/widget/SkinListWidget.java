@@ -352,8 +352,7 @@ public class SkinListWidget extends ObjectSelectionList<SkinListWidget.SkinEntry
         private boolean isAppliedSkin() {
             BBTSkinClient client = BBTSkinClient.getInstance();
             if (client == null) return false;
-            SkinData applied = client.getSkinManager().getAppliedSkin();
-            return applied != null && applied.getId().equals(skin.getId());
+            return client.getSkinManager().isApplied(skin.getId());
         }
 
         private boolean isFavoriteSkin() {
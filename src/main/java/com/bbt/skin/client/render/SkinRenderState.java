@@ -0,0 +1,31 @@
+package com.bbt.skin.client.render;
+
+import net.minecraft.resources.ResourceLocation;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Immutable per-player render snapshot.
+ * Published by {@link SkinTextureManager} whenever a skin is applied, received or reset,
+ * so render-path code (mixins, tab list) only needs a single map lookup per frame.
+ */
+public record SkinRenderState(ResourceLocation texture, @Nullable ResourceLocation mouthTexture, boolean slim) {
+
+    /** Returns true if this skin has a separate mouth-open texture for voice chat */
+    public boolean hasVoiceTexture() {
+        return mouthTexture != null;
+    }
+
+    /**
+     * Get the texture for the given talking state
+     */
+    public ResourceLocation textureFor(boolean talking) {
+        return talking && mouthTexture != null ? mouthTexture : texture;
+    }
+
+    /**
+     * Vanilla model name for this skin ("slim" or "default")
+     */
+    public String modelName() {
+        return slim ? "slim" : "default";
+    }
+}
@@ -1,8 +1,11 @@
 package com.bbt.skin.client.render;
 
 import com.bbt.skin.BBTSkin;
+import com.bbt.skin.client.SkinRequestQueue;
 import com.bbt.skin.client.voice.VoiceStateTracker;
 import com.bbt.skin.common.data.SkinData;
+import com.bbt.skin.common.data.SkinManager;
+import com.bbt.skin.common.image.PngProbe;
 import com.mojang.blaze3d.platform.NativeImage;
 import net.minecraft.client.Minecraft;
 import net.minecraft.client.renderer.texture.DynamicTexture;
@@ -11,6 +14,10 @@ import net.minecraft.world.entity.player.Player;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Locale;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
@@ -22,65 +29,80 @@ import java.util.concurrent.ConcurrentHashMap;
  */
 public class SkinTextureManager {
     
-    // Cache for player skin textures (UUID -> texture identifier)
-    private final Map<UUID, ResourceLocation> skinTextureCache = new ConcurrentHashMap<>();
-    private final Map<UUID, ResourceLocation> mouthOpenTextureCache = new ConcurrentHashMap<>();
+    // Remote player skins (UUID -> render snapshot + content hash of the image)
+    private final Map<UUID, RemoteSkin> remoteSkins = new ConcurrentHashMap<>();
     
-    // Map of dynamic textures (for cleanup)
-    private final Map<UUID, DynamicTexture> dynamicTextures = new ConcurrentHashMap<>();
-    private final Map<UUID, DynamicTexture> mouthOpenDynamicTextures = new ConcurrentHashMap<>();
+    // Remote skin textures by content hash, shared by every player wearing the same image.
+    // Only touched from the client thread (packet handlers run there).
+    private final Map<String, SharedSkin> sharedSkins = new HashMap<>();
     
-    // Track which players have voice textures
-    private final Map<UUID, Boolean> hasVoiceTexture = new ConcurrentHashMap<>();
+    // Skins requested from the server for players it does not push to us
+    private final SkinRequestQueue requests = new SkinRequestQueue();
     
-    // Local player's textures
-    @Nullable private ResourceLocation localSkinTexture;
-    @Nullable private ResourceLocation localMouthOpenTexture;
-    @Nullable private DynamicTexture localDynamicTexture;
-    @Nullable private DynamicTexture localMouthOpenDynamicTexture;
-    private boolean localHasVoiceTexture = false;
+    // Local player's skin
+    @Nullable private volatile LoadedSkin localSkin;
+    private boolean localLoadAttempted = false;
     
     /**
-     * Load a skin texture for a remote player (supports voice texture)
+     * Textures backing a published render snapshot.
+     * One record per player replaces the old parallel texture/voice maps.
+     */
+    private record LoadedSkin(SkinRenderState state, DynamicTexture texture,
+                              @Nullable DynamicTexture mouthTexture) {
+        void close() {
+            texture.close();
+            if (mouthTexture != null) mouthTexture.close();
+        }
+    }
+    
+    /**
+     * A remote player's render snapshot and the image it was built from
+     */
+    private record RemoteSkin(SkinRenderState state, String hash, SharedSkin shared) {
+    }
+    
+    /**
+     * Uploaded textures of one image plus the number of players using them
+     */
+    private static final class SharedSkin {
+        final LoadedSkin skin;
+        int users = 0;
+        
+        SharedSkin(LoadedSkin skin) {
+            this.skin = skin;
+        }
+    }
+    
+    /**
+     * Load a skin texture for a remote player (supports voice texture).
+     * The skin id is the image's content hash; players with the same image share one texture.
      */
     public void loadRemoteSkin(UUID playerUUID, SkinData skinData) {
         if (skinData.getImageData() == null) {
             BBTSkin.LOGGER.warn("Cannot load skin without image data");
             return;
         }
-        
+        loadRemoteSkin(playerUUID, skinData, null);
+    }
+    
+    /**
+     * Load a remote skin whose PNG was reassembled in a direct buffer; the image is decoded
+     * straight from the buffer, which the caller keeps ownership of
+     */
+    public void loadRemoteSkin(UUID playerUUID, SkinData skinData, @Nullable ByteBuffer image) {
         try {
-            unloadRemoteSkin(playerUUID);
-            
-            // Load main texture
-            NativeImage image = NativeImage.read(new ByteArrayInputStream(skinData.getImageData()));
-            DynamicTexture texture = new DynamicTexture(image);
-            
-            String texturePath = "bbtskin/player/" + playerUUID.toString().replace("-", "");
-            ResourceLocation textureId = Minecraft.getInstance().getTextureManager()
-                    .register(texturePath, texture);
-            
-            skinTextureCache.put(playerUUID, textureId);
-            dynamicTextures.put(playerUUID, texture);
+            String hash = skinData.getId() != null ? skinData.getId() : "";
+            SharedSkin shared = sharedSkins.get(hash);
+            if (shared == null) {
+                String texturePath = "bbtskin/remote/" + texturePathFor(hash, playerUUID);
+                shared = new SharedSkin(createSkin(skinData, image, texturePath, texturePath + "_mouth"));
+                if (!hash.isEmpty()) sharedSkins.put(hash, shared);
+            }
+            attachRemoteSkin(playerUUID, hash, shared, skinData.isSlim());
             
-            // Load mouth-open texture if available
-            if (skinData.hasVoiceTexture() && skinData.getMouthOpenData() != null) {
-                NativeImage mouthImage = NativeImage.read(new ByteArrayInputStream(skinData.getMouthOpenData()));
-                DynamicTexture mouthTexture = new DynamicTexture(mouthImage);
-                
-                String mouthPath = "bbtskin/player/" + playerUUID.toString().replace("-", "") + "_mouth";
-                ResourceLocation mouthId = Minecraft.getInstance().getTextureManager()
-                        .register(mouthPath, mouthTexture);
-                
-                mouthOpenTextureCache.put(playerUUID, mouthId);
-                mouthOpenDynamicTextures.put(playerUUID, mouthTexture);
-                hasVoiceTexture.put(playerUUID, true);
-                
+            if (shared.skin.state().hasVoiceTexture()) {
                 BBTSkin.LOGGER.debug("Loaded voice texture for player {}", playerUUID);
-            } else {
-                hasVoiceTexture.put(playerUUID, false);
             }
-            
             BBTSkin.LOGGER.debug("Loaded remote skin texture for player {}", playerUUID);
             
         } catch (Exception e) {
@@ -88,19 +110,69 @@ public class SkinTextureManager {
         }
     }
     
+    /**
+     * Apply an already uploaded image to a remote player (announced by the server)
+     * @return false if no texture with this hash is loaded and the bytes are needed
+     */
+    public boolean applyKnownSkin(UUID playerUUID, String hash, boolean slim) {
+        SharedSkin shared = sharedSkins.get(hash);
+        if (shared == null) return false;
+        
+        RemoteSkin current = remoteSkins.get(playerUUID);
+        if (current == null || !current.hash().equals(hash) || current.state().slim() != slim) {
+            attachRemoteSkin(playerUUID, hash, shared, slim);
+        }
+        return true;
+    }
+    
+    /**
+     * Publish a snapshot of shared textures for a player, then release what it used before
+     */
+    private void attachRemoteSkin(UUID playerUUID, String hash, SharedSkin shared, boolean slim) {
+        SkinRenderState base = shared.skin.state();
+        shared.users++;
+        RemoteSkin previous = remoteSkins.put(playerUUID,
+                new RemoteSkin(new SkinRenderState(base.texture(), base.mouthTexture(), slim), hash, shared));
+        if (previous != null) releaseShared(previous);
+    }
+    
+    private void releaseShared(RemoteSkin remote) {
+        if (--remote.shared().users <= 0) {
+            sharedSkins.remove(remote.hash(), remote.shared());
+            remote.shared().skin.close();
+        }
+    }
+    
     /**
      * Unload a remote player's skin texture
      */
     public void unloadRemoteSkin(UUID playerUUID) {
-        skinTextureCache.remove(playerUUID);
-        mouthOpenTextureCache.remove(playerUUID);
-        hasVoiceTexture.remove(playerUUID);
-        
-        DynamicTexture texture = dynamicTextures.remove(playerUUID);
-        if (texture != null) texture.close();
-        
-        DynamicTexture mouthTexture = mouthOpenDynamicTextures.remove(playerUUID);
-        if (mouthTexture != null) mouthTexture.close();
+        RemoteSkin previous = remoteSkins.remove(playerUUID);
+        if (previous != null) releaseShared(previous);
+        // Allow the tab list to pull a replacement if the server has one
+        requests.forget(playerUUID);
+    }
+    
+    /**
+     * Ask the server for a remote player's skin unless a request is already pending.
+     * Skins of nearby players are pushed by the server; this covers the tab list.
+     */
+    public void requestIfMissing(UUID playerUUID) {
+        if (remoteSkins.containsKey(playerUUID)) return;
+        requests.request(playerUUID);
+    }
+    
+    public SkinRequestQueue getRequestQueue() {
+        return requests;
+    }
+    
+    /**
+     * Get the render snapshot for a remote player (single lookup, no allocation)
+     */
+    @Nullable
+    public SkinRenderState getRemoteState(UUID playerUUID) {
+        RemoteSkin remote = remoteSkins.get(playerUUID);
+        return remote != null ? remote.state() : null;
     }
     
     /**
@@ -108,14 +180,10 @@ public class SkinTextureManager {
      */
     @Nullable
     public ResourceLocation getRemoteSkinTexture(UUID playerUUID, Player player) {
-        // Check if player has voice texture and is talking
-        if (hasVoiceTexture.getOrDefault(playerUUID, false)) {
-            if (VoiceStateTracker.getInstance().shouldShowMouthOpen(player)) {
-                ResourceLocation mouthTexture = mouthOpenTextureCache.get(playerUUID);
-                if (mouthTexture != null) return mouthTexture;
-            }
-        }
-        return skinTextureCache.get(playerUUID);
+        SkinRenderState state = getRemoteState(playerUUID);
+        if (state == null) return null;
+        return state.textureFor(state.hasVoiceTexture()
+                && VoiceStateTracker.getInstance().shouldShowMouthOpen(player));
     }
     
     /**
@@ -123,27 +191,33 @@ public class SkinTextureManager {
      */
     @Nullable
     public ResourceLocation getRemoteSkinTexture(UUID playerUUID) {
-        return skinTextureCache.get(playerUUID);
+        SkinRenderState state = getRemoteState(playerUUID);
+        return state != null ? state.texture() : null;
     }
     
     /**
      * Check if we have a custom skin for a player
      */
     public boolean hasCustomSkin(UUID playerUUID) {
-        return skinTextureCache.containsKey(playerUUID);
+        return remoteSkins.containsKey(playerUUID);
     }
     
     /**
      * Check if player has voice texture
      */
     public boolean playerHasVoiceTexture(UUID playerUUID) {
-        return hasVoiceTexture.getOrDefault(playerUUID, false);
+        SkinRenderState state = getRemoteState(playerUUID);
+        return state != null && state.hasVoiceTexture();
     }
     
     /**
      * Load the local player's skin texture (with voice support)
      */
     public void loadLocalSkin(SkinData skinData) {
+        loadLocalSkin(skinData, "bbtskin/local", "bbtskin/local_mouth");
+    }
+    
+    private void loadLocalSkin(SkinData skinData, String texturePath, String mouthPath) {
         if (skinData.getImageData() == null) {
             BBTSkin.LOGGER.warn("Cannot load local skin without image data");
             return;
@@ -152,47 +226,57 @@ public class SkinTextureManager {
         try {
             unloadLocalSkin();
             
-            // Load main texture
-            NativeImage image = NativeImage.read(new ByteArrayInputStream(skinData.getImageData()));
-            localDynamicTexture = new DynamicTexture(image);
-            localSkinTexture = Minecraft.getInstance().getTextureManager()
-                    .register("bbtskin/local", localDynamicTexture);
+            LoadedSkin loaded = createSkin(skinData, null, texturePath, mouthPath);
+            localSkin = loaded;
             
-            // Load mouth-open texture if available
-            if (skinData.hasVoiceTexture() && skinData.getMouthOpenData() != null) {
-                NativeImage mouthImage = NativeImage.read(new ByteArrayInputStream(skinData.getMouthOpenData()));
-                localMouthOpenDynamicTexture = new DynamicTexture(mouthImage);
-                localMouthOpenTexture = Minecraft.getInstance().getTextureManager()
-                        .register("bbtskin/local_mouth", localMouthOpenDynamicTexture);
-                localHasVoiceTexture = true;
-                
-                BBTSkin.LOGGER.info("Loaded local skin with voice texture");
+            if (loaded.state().hasVoiceTexture()) {
+                BBTSkin.LOGGER.info("Loaded local skin with voice texture: {}", loaded.state().texture());
             } else {
-                localHasVoiceTexture = false;
-                BBTSkin.LOGGER.info("Loaded local skin texture");
+                BBTSkin.LOGGER.info("Loaded local skin texture: {}", loaded.state().texture());
             }
             
         } catch (Exception e) {
             BBTSkin.LOGGER.error("Failed to load local skin texture", e);
+        } finally {
+            localLoadAttempted = true;
         }
     }
     
+    /**
+     * Get the local player's render snapshot, loading the applied skin once if needed.
+     * A failed load is not retried every frame; applying or resetting a skin re-arms it.
+     */
+    @Nullable
+    public SkinRenderState ensureLocalState(SkinManager skinManager) {
+        LoadedSkin loaded = localSkin;
+        if (loaded != null) return loaded.state();
+        if (localLoadAttempted || !skinManager.hasAppliedSkin()) return null;
+        
+        SkinData appliedSkin = skinManager.getAppliedSkin();
+        if (appliedSkin == null) return null;
+        loadLocalSkin(appliedSkin);
+        
+        loaded = localSkin;
+        return loaded != null ? loaded.state() : null;
+    }
+    
+    /**
+     * Get the local player's render snapshot (no loading)
+     */
+    @Nullable
+    public SkinRenderState getLocalState() {
+        LoadedSkin loaded = localSkin;
+        return loaded != null ? loaded.state() : null;
+    }
+    
     /**
      * Unload the local player's skin texture
      */
     public void unloadLocalSkin() {
-        localSkinTexture = null;
-        localMouthOpenTexture = null;
-        localHasVoiceTexture = false;
-        
-        if (localDynamicTexture != null) {
-            localDynamicTexture.close();
-            localDynamicTexture = null;
-        }
-        if (localMouthOpenDynamicTexture != null) {
-            localMouthOpenDynamicTexture.close();
-            localMouthOpenDynamicTexture = null;
-        }
+        LoadedSkin previous = localSkin;
+        localSkin = null;
+        localLoadAttempted = false;
+        if (previous != null) previous.close();
     }
     
     /**
@@ -200,10 +284,10 @@ public class SkinTextureManager {
      */
     @Nullable
     public ResourceLocation getLocalSkinTexture() {
-        if (localHasVoiceTexture && VoiceStateTracker.getInstance().shouldLocalPlayerShowMouthOpen()) {
-            if (localMouthOpenTexture != null) return localMouthOpenTexture;
-        }
-        return localSkinTexture;
+        SkinRenderState state = getLocalState();
+        if (state == null) return null;
+        return state.textureFor(state.hasVoiceTexture()
+                && VoiceStateTracker.getInstance().shouldLocalPlayerShowMouthOpen());
     }
     
     /**
@@ -211,38 +295,35 @@ public class SkinTextureManager {
      */
     @Nullable
     public ResourceLocation getLocalSkinTextureBase() {
-        return localSkinTexture;
+        SkinRenderState state = getLocalState();
+        return state != null ? state.texture() : null;
     }
     
     /**
      * Check if local player has a custom skin loaded
      */
     public boolean hasLocalSkin() {
-        return localSkinTexture != null;
+        return localSkin != null;
     }
     
     /**
      * Check if local player has voice texture
      */
     public boolean localHasVoiceTexture() {
-        return localHasVoiceTexture;
+        SkinRenderState state = getLocalState();
+        return state != null && state.hasVoiceTexture();
     }
     
     /**
      * Clear all remote skin textures
      */
     public void clearRemoteTextures() {
-        for (DynamicTexture texture : dynamicTextures.values()) {
-            texture.close();
-        }
-        for (DynamicTexture texture : mouthOpenDynamicTextures.values()) {
-            texture.close();
+        for (RemoteSkin remote : remoteSkins.values()) {
+            releaseShared(remote);
         }
-        dynamicTextures.clear();
-        mouthOpenDynamicTextures.clear();
-        skinTextureCache.clear();
-        mouthOpenTextureCache.clear();
-        hasVoiceTexture.clear();
+        remoteSkins.clear();
+        sharedSkins.clear();
+        requests.clear();
         
         BBTSkin.LOGGER.info("Cleared all remote skin textures");
     }
@@ -259,57 +340,67 @@ public class SkinTextureManager {
      * Force reload the local skin texture
      */
     public void forceReloadLocalSkin(SkinData skinData) {
-        if (localSkinTexture != null) {
-            Minecraft.getInstance().getTextureManager().release(localSkinTexture);
-        }
-        if (localMouthOpenTexture != null) {
-            Minecraft.getInstance().getTextureManager().release(localMouthOpenTexture);
+        LoadedSkin previous = localSkin;
+        if (previous != null) {
+            Minecraft.getInstance().getTextureManager().release(previous.state().texture());
+            if (previous.state().mouthTexture() != null) {
+                Minecraft.getInstance().getTextureManager().release(previous.state().mouthTexture());
+            }
         }
         unloadLocalSkin();
         
         try { Thread.sleep(10); } catch (InterruptedException ignored) {}
         
-        loadLocalSkinWithUniqueId(skinData);
+        // Unique IDs avoid texture caching
+        long timestamp = System.currentTimeMillis();
+        loadLocalSkin(skinData, "bbtskin/local_" + timestamp, "bbtskin/local_mouth_" + timestamp);
     }
     
     /**
-     * Load local skin with unique ID to avoid texture caching
+     * Texture name for a remote image; the hash is hex, but guard against legacy ids
      */
-    private void loadLocalSkinWithUniqueId(SkinData skinData) {
-        if (skinData.getImageData() == null) {
-            BBTSkin.LOGGER.warn("Cannot load local skin without image data");
-            return;
+    private static String texturePathFor(String hash, UUID playerUUID) {
+        if (hash.isEmpty()) return playerUUID.toString().replace("-", "");
+        return hash.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9_.-]", "_");
+    }
+    
+    /**
+     * Upload the skin (and optional mouth-open texture) and build its render snapshot
+     * @param directImage the PNG in a direct buffer, or null to read the skin's image data
+     */
+    private LoadedSkin createSkin(SkinData skinData, @Nullable ByteBuffer directImage,
+                                  String texturePath, String mouthPath) throws IOException {
+        // Reject malformed or oversized images before NativeImage allocates for them
+        if (directImage != null) {
+            PngProbe.probe(directImage);
+        } else {
+            PngProbe.probe(skinData.getImageData());
+        }
+        if (skinData.hasVoiceTexture() && skinData.getMouthOpenData() != null) {
+            PngProbe.probe(skinData.getMouthOpenData());
         }
         
-        try {
-            long timestamp = System.currentTimeMillis();
-            
-            // Load main texture
-            NativeImage image = NativeImage.read(new ByteArrayInputStream(skinData.getImageData()));
-            localDynamicTexture = new DynamicTexture(image);
-            
-            String uniqueId = "bbtskin/local_" + timestamp;
-            localSkinTexture = Minecraft.getInstance().getTextureManager()
-                    .register(uniqueId, localDynamicTexture);
-            
-            // Load mouth-open texture if available
-            if (skinData.hasVoiceTexture() && skinData.getMouthOpenData() != null) {
+        NativeImage image = directImage != null
+                ? NativeImage.read(directImage.duplicate())
+                : NativeImage.read(new ByteArrayInputStream(skinData.getImageData()));
+        DynamicTexture texture = new DynamicTexture(image);
+        ResourceLocation textureId = Minecraft.getInstance().getTextureManager()
+                .register(texturePath, texture);
+        
+        DynamicTexture mouthTexture = null;
+        ResourceLocation mouthId = null;
+        if (skinData.hasVoiceTexture() && skinData.getMouthOpenData() != null) {
+            try {
                 NativeImage mouthImage = NativeImage.read(new ByteArrayInputStream(skinData.getMouthOpenData()));
-                localMouthOpenDynamicTexture = new DynamicTexture(mouthImage);
-                
-                String mouthUniqueId = "bbtskin/local_mouth_" + timestamp;
-                localMouthOpenTexture = Minecraft.getInstance().getTextureManager()
-                        .register(mouthUniqueId, localMouthOpenDynamicTexture);
-                localHasVoiceTexture = true;
-                
-                BBTSkin.LOGGER.info("Loaded local skin with voice texture: {}", localSkinTexture);
-            } else {
-                localHasVoiceTexture = false;
-                BBTSkin.LOGGER.info("Loaded local skin texture: {}", localSkinTexture);
+                mouthTexture = new DynamicTexture(mouthImage);
+                mouthId = Minecraft.getInstance().getTextureManager()
+                        .register(mouthPath, mouthTexture);
+            } catch (IOException e) {
+                texture.close();
+                throw e;
             }
-            
-        } catch (Exception e) {
-            BBTSkin.LOGGER.error("Failed to load local skin texture", e);
         }
+        
+        return new LoadedSkin(new SkinRenderState(textureId, mouthId, skinData.isSlim()), texture, mouthTexture);
     }
 }
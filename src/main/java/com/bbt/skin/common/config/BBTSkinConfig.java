@@ -28,6 +28,28 @@ public class BBTSkinConfig {
     private boolean enableHighResSkins = true;
     private int maxSkinResolution = 8192;
     private int skinCacheSize = 100;
+    private int serverSkinCacheMb = 512;
+    private int serverTierCacheMb = 128;
+    private int serverPayloadCacheMb = 64;
+    private boolean enableLocalSkinStore = true;
+    private int startupWarmupCount = 32;
+    private int apiFlushIntervalSeconds = 5;
+    private int transferGlobalKbPerTick = 512;
+    private int transferPlayerKbPerTick = 64;
+    private int transferBackoffMspt = 40;
+    private int clientSkinCacheMb = 256;
+    private int preferredSkinResolution = 1024;
+    private boolean enableTransferCompression = true;
+    private int reassemblyBufferMb = 64;
+    private int skinSyncsPerMinute = 6;
+    private int skinSyncBurst = 3;
+    private int uploadChunksPerSecond = 64;
+    private int uploadChunkBurst = 400; // a whole 10 MB skin
+    private int skinRequestsPerSecond = 10;
+    private int skinRequestBurst = 100;
+    private String rateLimitPolicy = "drop"; // "drop" or "kick"
+    private int ingestWorkerThreads = 2;
+    private int ingestQueueSize = 16;
     private boolean enableAutoSync = true;
     private int syncIntervalSeconds = 300;
     private boolean showSkinLoadingIndicator = true;
@@ -76,6 +98,72 @@ public class BBTSkinConfig {
                 if (root.has("skinCacheSize")) {
                     instance.skinCacheSize = root.get("skinCacheSize").getAsInt();
                 }
+                if (root.has("serverSkinCacheMb")) {
+                    instance.serverSkinCacheMb = root.get("serverSkinCacheMb").getAsInt();
+                }
+                if (root.has("serverTierCacheMb")) {
+                    instance.serverTierCacheMb = root.get("serverTierCacheMb").getAsInt();
+                }
+                if (root.has("serverPayloadCacheMb")) {
+                    instance.serverPayloadCacheMb = root.get("serverPayloadCacheMb").getAsInt();
+                }
+                if (root.has("enableLocalSkinStore")) {
+                    instance.enableLocalSkinStore = root.get("enableLocalSkinStore").getAsBoolean();
+                }
+                if (root.has("startupWarmupCount")) {
+                    instance.startupWarmupCount = root.get("startupWarmupCount").getAsInt();
+                }
+                if (root.has("apiFlushIntervalSeconds")) {
+                    instance.apiFlushIntervalSeconds = root.get("apiFlushIntervalSeconds").getAsInt();
+                }
+                if (root.has("transferGlobalKbPerTick")) {
+                    instance.transferGlobalKbPerTick = root.get("transferGlobalKbPerTick").getAsInt();
+                }
+                if (root.has("transferPlayerKbPerTick")) {
+                    instance.transferPlayerKbPerTick = root.get("transferPlayerKbPerTick").getAsInt();
+                }
+                if (root.has("transferBackoffMspt")) {
+                    instance.transferBackoffMspt = root.get("transferBackoffMspt").getAsInt();
+                }
+                if (root.has("clientSkinCacheMb")) {
+                    instance.clientSkinCacheMb = root.get("clientSkinCacheMb").getAsInt();
+                }
+                if (root.has("preferredSkinResolution")) {
+                    instance.preferredSkinResolution = root.get("preferredSkinResolution").getAsInt();
+                }
+                if (root.has("enableTransferCompression")) {
+                    instance.enableTransferCompression = root.get("enableTransferCompression").getAsBoolean();
+                }
+                if (root.has("reassemblyBufferMb")) {
+                    instance.reassemblyBufferMb = root.get("reassemblyBufferMb").getAsInt();
+                }
+                if (root.has("skinSyncsPerMinute")) {
+                    instance.skinSyncsPerMinute = root.get("skinSyncsPerMinute").getAsInt();
+                }
+                if (root.has("skinSyncBurst")) {
+                    instance.skinSyncBurst = root.get("skinSyncBurst").getAsInt();
+                }
+                if (root.has("uploadChunksPerSecond")) {
+                    instance.uploadChunksPerSecond = root.get("uploadChunksPerSecond").getAsInt();
+                }
+                if (root.has("uploadChunkBurst")) {
+                    instance.uploadChunkBurst = root.get("uploadChunkBurst").getAsInt();
+                }
+                if (root.has("skinRequestsPerSecond")) {
+                    instance.skinRequestsPerSecond = root.get("skinRequestsPerSecond").getAsInt();
+                }
+                if (root.has("skinRequestBurst")) {
+                    instance.skinRequestBurst = root.get("skinRequestBurst").getAsInt();
+                }
+                if (root.has("rateLimitPolicy")) {
+                    instance.rateLimitPolicy = root.get("rateLimitPolicy").getAsString();
+                }
+                if (root.has("ingestWorkerThreads")) {
+                    instance.ingestWorkerThreads = root.get("ingestWorkerThreads").getAsInt();
+                }
+                if (root.has("ingestQueueSize")) {
+                    instance.ingestQueueSize = root.get("ingestQueueSize").getAsInt();
+                }
                 if (root.has("enableAutoSync")) {
                     instance.enableAutoSync = root.get("enableAutoSync").getAsBoolean();
                 }
@@ -118,6 +206,28 @@ public class BBTSkinConfig {
             root.addProperty("enableHighResSkins", instance.enableHighResSkins);
             root.addProperty("maxSkinResolution", instance.maxSkinResolution);
             root.addProperty("skinCacheSize", instance.skinCacheSize);
+            root.addProperty("serverSkinCacheMb", instance.serverSkinCacheMb);
+            root.addProperty("serverTierCacheMb", instance.serverTierCacheMb);
+            root.addProperty("serverPayloadCacheMb", instance.serverPayloadCacheMb);
+            root.addProperty("enableLocalSkinStore", instance.enableLocalSkinStore);
+            root.addProperty("startupWarmupCount", instance.startupWarmupCount);
+            root.addProperty("apiFlushIntervalSeconds", instance.apiFlushIntervalSeconds);
+            root.addProperty("transferGlobalKbPerTick", instance.transferGlobalKbPerTick);
+            root.addProperty("transferPlayerKbPerTick", instance.transferPlayerKbPerTick);
+            root.addProperty("transferBackoffMspt", instance.transferBackoffMspt);
+            root.addProperty("clientSkinCacheMb", instance.clientSkinCacheMb);
+            root.addProperty("preferredSkinResolution", instance.preferredSkinResolution);
+            root.addProperty("enableTransferCompression", instance.enableTransferCompression);
+            root.addProperty("reassemblyBufferMb", instance.reassemblyBufferMb);
+            root.addProperty("skinSyncsPerMinute", instance.skinSyncsPerMinute);
+            root.addProperty("skinSyncBurst", instance.skinSyncBurst);
+            root.addProperty("uploadChunksPerSecond", instance.uploadChunksPerSecond);
+            root.addProperty("uploadChunkBurst", instance.uploadChunkBurst);
+            root.addProperty("skinRequestsPerSecond", instance.skinRequestsPerSecond);
+            root.addProperty("skinRequestBurst", instance.skinRequestBurst);
+            root.addProperty("rateLimitPolicy", instance.rateLimitPolicy);
+            root.addProperty("ingestWorkerThreads", instance.ingestWorkerThreads);
+            root.addProperty("ingestQueueSize", instance.ingestQueueSize);
             root.addProperty("enableAutoSync", instance.enableAutoSync);
             root.addProperty("syncIntervalSeconds", instance.syncIntervalSeconds);
             root.addProperty("showSkinLoadingIndicator", instance.showSkinLoadingIndicator);
@@ -138,6 +248,28 @@ public class BBTSkinConfig {
     public boolean isHighResSkinsEnabled() { return enableHighResSkins; }
     public int getMaxSkinResolution() { return maxSkinResolution; }
     public int getSkinCacheSize() { return skinCacheSize; }
+    public int getServerSkinCacheMb() { return serverSkinCacheMb; }
+    public int getServerTierCacheMb() { return serverTierCacheMb; }
+    public int getServerPayloadCacheMb() { return serverPayloadCacheMb; }
+    public boolean isLocalSkinStoreEnabled() { return enableLocalSkinStore; }
+    public int getStartupWarmupCount() { return startupWarmupCount; }
+    public int getApiFlushIntervalSeconds() { return apiFlushIntervalSeconds; }
+    public int getTransferGlobalKbPerTick() { return transferGlobalKbPerTick; }
+    public int getTransferPlayerKbPerTick() { return transferPlayerKbPerTick; }
+    public int getTransferBackoffMspt() { return transferBackoffMspt; }
+    public int getClientSkinCacheMb() { return clientSkinCacheMb; }
+    public int getPreferredSkinResolution() { return preferredSkinResolution; }
+    public boolean isTransferCompressionEnabled() { return enableTransferCompression; }
+    public int getReassemblyBufferMb() { return reassemblyBufferMb; }
+    public int getSkinSyncsPerMinute() { return skinSyncsPerMinute; }
+    public int getSkinSyncBurst() { return skinSyncBurst; }
+    public int getUploadChunksPerSecond() { return uploadChunksPerSecond; }
+    public int getUploadChunkBurst() { return uploadChunkBurst; }
+    public int getSkinRequestsPerSecond() { return skinRequestsPerSecond; }
+    public int getSkinRequestBurst() { return skinRequestBurst; }
+    public boolean isRateLimitKickEnabled() { return "kick".equalsIgnoreCase(rateLimitPolicy); }
+    public int getIngestWorkerThreads() { return ingestWorkerThreads; }
+    public int getIngestQueueSize() { return ingestQueueSize; }
     public boolean isAutoSyncEnabled() { return enableAutoSync; }
     public int getSyncIntervalSeconds() { return syncIntervalSeconds; }
     public boolean showSkinLoadingIndicator() { return showSkinLoadingIndicator; }
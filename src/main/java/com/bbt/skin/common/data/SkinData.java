@@ -3,11 +3,13 @@ package com.bbt.skin.common.data;
 import com.google.gson.JsonObject;
 import org.jetbrains.annotations.Nullable;
 
+import java.nio.file.Path;
 import java.util.UUID;
 
 /**
  * Represents a skin with its metadata and image data.
  * Supports dual textures for voice chat integration (mouth open/closed).
+ * Image bytes may be file-backed and are only loaded when first requested.
  */
 public class SkinData {
     
@@ -23,10 +25,10 @@ public class SkinData {
     private final boolean hasVoiceTexture;
     
     @Nullable
-    private byte[] imageData;  // Default/mouth closed texture
+    private SkinImageHandle imageData;  // Default/mouth closed texture
     
     @Nullable
-    private byte[] mouthOpenData;  // Mouth open texture (when speaking)
+    private SkinImageHandle mouthOpenData;  // Mouth open texture (when speaking)
     
     private SkinData(Builder builder) {
         this.id = builder.id != null ? builder.id : UUID.randomUUID().toString();
@@ -38,7 +40,7 @@ public class SkinData {
         this.ownerUUID = builder.ownerUUID;
         this.imageData = builder.imageData;
         this.mouthOpenData = builder.mouthOpenData;
-        this.hasVoiceTexture = builder.mouthOpenData != null && builder.mouthOpenData.length > 0;
+        this.hasVoiceTexture = builder.mouthOpenData != null && builder.mouthOpenData.isPresent();
     }
     
     // Getters
@@ -53,16 +55,17 @@ public class SkinData {
     /** Returns true if this skin has a separate mouth-open texture for voice chat */
     public boolean hasVoiceTexture() { return hasVoiceTexture; }
     
+    /** Get the image data, loading it on first access for file-backed skins */
     @Nullable
-    public byte[] getImageData() { return imageData; }
+    public byte[] getImageData() { return imageData != null ? imageData.get() : null; }
     
     /** Get the mouth-open texture data (for voice chat integration) */
     @Nullable
-    public byte[] getMouthOpenData() { return mouthOpenData; }
+    public byte[] getMouthOpenData() { return mouthOpenData != null ? mouthOpenData.get() : null; }
     
-    public void setImageData(byte[] data) { this.imageData = data; }
+    public void setImageData(byte[] data) { this.imageData = data != null ? SkinImageHandle.of(data) : null; }
     
-    public void setMouthOpenData(byte[] data) { this.mouthOpenData = data; }
+    public void setMouthOpenData(byte[] data) { this.mouthOpenData = data != null ? SkinImageHandle.of(data) : null; }
     
     /**
      * Get the appropriate texture based on talking state
@@ -72,9 +75,9 @@ public class SkinData {
     @Nullable
     public byte[] getTextureForState(boolean isTalking) {
         if (isTalking && hasVoiceTexture && mouthOpenData != null) {
-            return mouthOpenData;
+            return mouthOpenData.get();
         }
-        return imageData;
+        return getImageData();
     }
     
     /**
@@ -133,8 +136,8 @@ public class SkinData {
         private boolean slim = false;
         private long createdAt = 0;
         private String ownerUUID;
-        private byte[] imageData;
-        private byte[] mouthOpenData;
+        private SkinImageHandle imageData;
+        private SkinImageHandle mouthOpenData;
         
         public Builder id(String id) { this.id = id; return this; }
         public Builder name(String name) { this.name = name; return this; }
@@ -143,8 +146,10 @@ public class SkinData {
         public Builder slim(boolean slim) { this.slim = slim; return this; }
         public Builder createdAt(long createdAt) { this.createdAt = createdAt; return this; }
         public Builder ownerUUID(String ownerUUID) { this.ownerUUID = ownerUUID; return this; }
-        public Builder imageData(byte[] imageData) { this.imageData = imageData; return this; }
-        public Builder mouthOpenData(byte[] mouthOpenData) { this.mouthOpenData = mouthOpenData; return this; }
+        public Builder imageData(byte[] imageData) { this.imageData = imageData != null ? SkinImageHandle.of(imageData) : null; return this; }
+        public Builder mouthOpenData(byte[] mouthOpenData) { this.mouthOpenData = mouthOpenData != null ? SkinImageHandle.of(mouthOpenData) : null; return this; }
+        public Builder imageFile(Path imageFile) { this.imageData = imageFile != null ? SkinImageHandle.ofFile(imageFile) : null; return this; }
+        public Builder mouthOpenFile(Path mouthOpenFile) { this.mouthOpenData = mouthOpenFile != null ? SkinImageHandle.ofFile(mouthOpenFile) : null; return this; }
         
         public SkinData build() {
             if (name == null || name.isEmpty()) {
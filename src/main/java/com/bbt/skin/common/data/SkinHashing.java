@@ -0,0 +1,45 @@
+package com.bbt.skin.common.data;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Content hashing for skin images.
+ * The hex SHA-256 of the PNG bytes identifies a skin independently of its owner or name.
+ */
+public final class SkinHashing {
+    
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    // Length of a raw SHA-256 digest in bytes
+    public static final int DIGEST_LENGTH = 32;
+    
+    private SkinHashing() {}
+    
+    /**
+     * Hex-encoded SHA-256 of the given bytes
+     */
+    public static String sha256(byte[] data) {
+        return toHex(digest(data));
+    }
+    
+    /**
+     * Raw SHA-256 of the given bytes, e.g. to identify a payload on the wire
+     */
+    public static byte[] digest(byte[] data) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(data);
+        } catch (NoSuchAlgorithmException e) {
+            // Every JRE is required to provide SHA-256
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+    
+    public static String toHex(byte[] bytes) {
+        char[] out = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            out[i * 2] = HEX[(bytes[i] >> 4) & 0xF];
+            out[i * 2 + 1] = HEX[bytes[i] & 0xF];
+        }
+        return new String(out);
+    }
+}
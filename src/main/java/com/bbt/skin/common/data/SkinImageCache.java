@@ -0,0 +1,73 @@
+package com.bbt.skin.common.data;
+
+import com.bbt.skin.BBTSkin;
+import com.bbt.skin.common.config.BBTSkinConfig;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Shared, bounded cache of skin image bytes keyed by file path.
+ * Entries are held through soft references so the GC can reclaim them under
+ * memory pressure; the entry count is capped by {@code skinCacheSize}.
+ */
+public final class SkinImageCache {
+    
+    private static final Map<Path, SoftReference<byte[]>> CACHE = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Path, SoftReference<byte[]>> eldest) {
+            return size() > Math.max(1, BBTSkinConfig.get().getSkinCacheSize());
+        }
+    };
+    
+    private SkinImageCache() {}
+    
+    /**
+     * Get the bytes of an image file, reading it from disk only on a cache miss
+     */
+    @Nullable
+    public static byte[] load(Path file) {
+        synchronized (CACHE) {
+            SoftReference<byte[]> ref = CACHE.get(file);
+            byte[] cached = ref != null ? ref.get() : null;
+            if (cached != null) return cached;
+        }
+        
+        byte[] data;
+        try {
+            data = Files.readAllBytes(file);
+        } catch (IOException e) {
+            BBTSkin.LOGGER.warn("Failed to load skin image: {}", file, e);
+            return null;
+        }
+        
+        synchronized (CACHE) {
+            CACHE.put(file, new SoftReference<>(data));
+        }
+        return data;
+    }
+    
+    /**
+     * Drop a file from the cache (after it was deleted or rewritten)
+     */
+    public static void invalidate(@Nullable Path file) {
+        if (file == null) return;
+        synchronized (CACHE) {
+            CACHE.remove(file);
+        }
+    }
+    
+    /**
+     * Drop all cached images
+     */
+    public static void clear() {
+        synchronized (CACHE) {
+            CACHE.clear();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.bbt.skin.common.data;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.file.Path;
+
+/**
+ * Handle to a skin image that is either held in memory or loaded lazily from disk.
+ * File-backed handles read their bytes on first access through {@link SkinImageCache},
+ * so listing and sorting skins never touches the PNG files.
+ */
+public final class SkinImageHandle {
+    
+    @Nullable private final byte[] data;
+    @Nullable private final Path file;
+    
+    private SkinImageHandle(@Nullable byte[] data, @Nullable Path file) {
+        this.data = data;
+        this.file = file;
+    }
+    
+    /**
+     * Wrap bytes that are already in memory
+     */
+    public static SkinImageHandle of(byte[] data) {
+        return new SkinImageHandle(data, null);
+    }
+    
+    /**
+     * Reference an image file that is loaded on first access
+     */
+    public static SkinImageHandle ofFile(Path file) {
+        return new SkinImageHandle(null, file);
+    }
+    
+    /**
+     * Get the image bytes, loading them if needed (null if the file cannot be read)
+     */
+    @Nullable
+    public byte[] get() {
+        if (data != null) return data;
+        return file != null ? SkinImageCache.load(file) : null;
+    }
+    
+    /**
+     * Returns true if this handle holds (or points at) any image data
+     */
+    public boolean isPresent() {
+        return data != null ? data.length > 0 : file != null;
+    }
+    
+    @Nullable
+    public Path getFile() {
+        return file;
+    }
+}
@@ -1,12 +1,13 @@
 package com.bbt.skin.common.data;
 
 import com.bbt.skin.BBTSkin;
+import com.bbt.skin.common.image.PngProbe;
+import com.bbt.skin.common.image.SkinDimensions;
+import com.bbt.skin.common.network.NetworkConstants;
 import net.minecraft.client.Minecraft;
 import net.minecraftforge.fml.loading.FMLPaths;
 import org.jetbrains.annotations.Nullable;
 
-import javax.imageio.ImageIO;
-import java.awt.image.BufferedImage;
 import java.io.*;
 import java.nio.file.*;
 import java.util.*;
@@ -51,6 +52,9 @@ public class SkinManager {
         loadedSkins.clear();
         selectedSkin = null;
         
+        // Files may have changed on disk since the last scan
+        SkinImageCache.clear();
+        
         try (Stream<Path> files = Files.list(skinsDirectory)) {
             files.filter(p -> p.toString().endsWith(".meta"))
                  .forEach(metaFile -> {
@@ -154,23 +158,21 @@ public class SkinManager {
             throw new IOException("Skin name cannot be empty");
         }
         
-        // Read and validate image
-        BufferedImage image = ImageIO.read(sourceFile.toFile());
-        if (image == null) {
-            throw new IOException("Failed to read image file");
+        // Read once and validate the header; pixels are only decoded when the texture is loaded
+        if (Files.size(sourceFile) > NetworkConstants.MAX_SKIN_SIZE) {
+            throw new IOException("Skin file is too large");
         }
+        byte[] imageData = Files.readAllBytes(sourceFile);
+        PngProbe.Info png = PngProbe.probe(imageData);
         
-        int width = image.getWidth();
-        int height = image.getHeight();
+        int width = png.width();
+        int height = png.height();
         
         // Validate dimensions
-        if (!isValidSkinDimensions(width, height)) {
+        if (!SkinDimensions.isValid(width, height)) {
             throw new IOException("Invalid skin dimensions: " + width + "x" + height);
         }
         
-        // Read bytes
-        byte[] imageData = Files.readAllBytes(sourceFile);
-        
         SkinData result = importSkin(name, imageData, width, height, slim);
         if (result == null) {
             throw new IOException("Failed to import skin");
@@ -204,6 +206,8 @@ public class SkinManager {
             if (meta.getSkinFilePath() != null && Files.exists(meta.getSkinFilePath())) {
                 Files.delete(meta.getSkinFilePath());
             }
+            SkinImageCache.invalidate(meta.getSkinFilePath());
+            SkinImageCache.invalidate(meta.getMouthOpenPath());
             if (meta.getMetaFilePath() != null && Files.exists(meta.getMetaFilePath())) {
                 Files.delete(meta.getMetaFilePath());
             }
@@ -403,25 +407,6 @@ public class SkinManager {
         return result;
     }
     
-    /**
-     * Validate skin dimensions
-     */
-    private boolean isValidSkinDimensions(int width, int height) {
-        // Standard: 64x64, 64x32
-        if (width == 64 && (height == 64 || height == 32)) return true;
-        
-        // High-res: multiples (128x128, 256x256, 512x512, etc.)
-        if (width == height && width >= 64 && width <= 8192) {
-            return (width & (width - 1)) == 0; // Is power of 2
-        }
-        
-        // Allow non-power-of-2 but valid aspect ratio
-        if (width >= 64 && height >= 32 && width == height * 2) return true;
-        if (width >= 64 && height >= 64 && width == height) return true;
-        
-        return false;
-    }
-    
     /**
      * Sanitize filename
      */
@@ -6,7 +6,6 @@ import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.security.MessageDigest;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.Properties;
@@ -178,15 +177,7 @@ public class SkinMetadata {
      */
     public static String calculateChecksum(Path skinFile) throws IOException {
         try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] fileBytes = Files.readAllBytes(skinFile);
-            byte[] hash = digest.digest(fileBytes);
-            
-            StringBuilder hex = new StringBuilder();
-            for (byte b : hash) {
-                hex.append(String.format("%02x", b));
-            }
-            return hex.toString();
+            return SkinHashing.sha256(Files.readAllBytes(skinFile));
         } catch (Exception e) {
             throw new IOException("Failed to calculate checksum", e);
         }
@@ -221,37 +212,21 @@ public class SkinMetadata {
     }
     
     /**
-     * Convert to SkinData for compatibility
+     * Convert to SkinData for compatibility.
+     * Image files are referenced, not read; bytes load on first access.
      */
     public SkinData toSkinData() {
-        SkinData.Builder builder = new SkinData.Builder()
+        return new SkinData.Builder()
                 .id(generateId())
                 .name(name)
                 .width(width)
                 .height(height)
                 .slim(slim)
                 .createdAt(timestamp)
-                .ownerUUID(uploadedUuid);
-        
-        // Load main image data if available
-        if (skinFilePath != null && Files.exists(skinFilePath)) {
-            try {
-                builder.imageData(Files.readAllBytes(skinFilePath));
-            } catch (IOException e) {
-                BBTSkin.LOGGER.warn("Failed to load skin image: {}", skinFilePath, e);
-            }
-        }
-        
-        // Load mouth-open texture if available
-        if (mouthOpenPath != null && Files.exists(mouthOpenPath)) {
-            try {
-                builder.mouthOpenData(Files.readAllBytes(mouthOpenPath));
-            } catch (IOException e) {
-                BBTSkin.LOGGER.warn("Failed to load mouth-open texture: {}", mouthOpenPath, e);
-            }
-        }
-        
-        return builder.build();
+                .ownerUUID(uploadedUuid)
+                .imageFile(skinFilePath)
+                .mouthOpenFile(mouthOpenPath)
+                .build();
     }
     
     /**
@@ -0,0 +1,301 @@
+package com.bbt.skin.common.image;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Minimal canonical PNG writer.
+ * Output depends only on the pixels: the smallest colour type that represents them
+ * losslessly (palette, RGB or RGBA), a per-row filter chosen by the minimum sum of
+ * absolute differences, maximum zlib compression and no ancillary chunks beyond tRNS.
+ * Images are read and compressed row by row, so only a couple of rows are held
+ * uncompressed at a time however large the image is.
+ */
+public final class PngEncoder {
+    
+    private static final byte[] SIGNATURE = { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n' };
+    private static final int COLOR_RGB = 2;
+    private static final int COLOR_PALETTE = 3;
+    private static final int COLOR_RGBA = 6;
+    private static final int MAX_PALETTE = 256;
+    
+    /**
+     * Source of the pixels of an image, one row at a time.
+     * Rows are read from the top and may be read more than once.
+     */
+    @FunctionalInterface
+    public interface Rows {
+        /**
+         * Fill {@code row} with the ARGB pixels of row {@code y}
+         */
+        void read(int y, int[] row);
+    }
+    
+    private PngEncoder() {}
+    
+    /**
+     * Encode ARGB pixels (row-major, as returned by {@code BufferedImage.getRGB})
+     */
+    public static byte[] encode(int[] argb, int width, int height) {
+        if (argb.length != width * height) {
+            throw new IllegalArgumentException("Pixel count does not match " + width + "x" + height);
+        }
+        return encode((y, row) -> System.arraycopy(argb, y * width, row, 0, width), width, height);
+    }
+    
+    /**
+     * Encode an image read row by row. The rows are read twice: once to choose the
+     * colour type, once to filter and compress them.
+     */
+    public static byte[] encode(Rows rows, int width, int height) {
+        int[] row = new int[width];
+        ColorSet colors = new ColorSet();
+        boolean paletted = true;
+        boolean opaque = true;
+        for (int y = 0; y < height && (paletted || opaque); y++) {
+            rows.read(y, row);
+            for (int pixel : row) {
+                if (opaque && (pixel >>> 24) != 0xFF) opaque = false;
+                if (paletted && !colors.add(pixel)) paletted = false;
+            }
+        }
+        
+        int[] palette = paletted ? sortPalette(colors.toArray()) : null;
+        int colorType = palette != null ? COLOR_PALETTE : opaque ? COLOR_RGB : COLOR_RGBA;
+        int bytesPerPixel = colorType == COLOR_RGBA ? 4 : colorType == COLOR_RGB ? 3 : 1;
+        
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.write(SIGNATURE);
+            
+            byte[] header = new byte[13];
+            putInt(header, 0, width);
+            putInt(header, 4, height);
+            header[8] = 8; // bit depth
+            header[9] = (byte) colorType;
+            writeChunk(out, "IHDR", header);
+            
+            if (palette != null) {
+                byte[] plte = new byte[palette.length * 3];
+                byte[] trns = new byte[palette.length];
+                int lastTranslucent = -1;
+                for (int i = 0; i < palette.length; i++) {
+                    plte[i * 3] = (byte) (palette[i] >> 16);
+                    plte[i * 3 + 1] = (byte) (palette[i] >> 8);
+                    plte[i * 3 + 2] = (byte) palette[i];
+                    trns[i] = (byte) (palette[i] >>> 24);
+                    if ((palette[i] >>> 24) != 0xFF) lastTranslucent = i;
+                }
+                writeChunk(out, "PLTE", plte);
+                if (lastTranslucent >= 0) {
+                    writeChunk(out, "tRNS", Arrays.copyOf(trns, lastTranslucent + 1));
+                }
+            }
+            
+            writeChunk(out, "IDAT", compressRows(rows, row, width, height, colorType, bytesPerPixel, palette));
+            writeChunk(out, "IEND", new byte[0]);
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            // ByteArrayOutputStream does not throw
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    /**
+     * Palette order: translucent colours (alpha < 255) first so the tRNS chunk stays short,
+     * then opaque ones, each by ARGB value
+     */
+    private static int[] sortPalette(int[] colors) {
+        Integer[] boxed = Arrays.stream(colors).boxed().toArray(Integer[]::new);
+        Arrays.sort(boxed, (a, b) -> {
+            boolean aOpaque = (a >>> 24) == 0xFF;
+            boolean bOpaque = (b >>> 24) == 0xFF;
+            if (aOpaque != bOpaque) return aOpaque ? 1 : -1;
+            return Integer.compareUnsigned(a, b);
+        });
+        int[] palette = new int[boxed.length];
+        for (int i = 0; i < palette.length; i++) {
+            palette[i] = boxed[i];
+        }
+        return palette;
+    }
+    
+    /**
+     * Convert, filter and deflate the image one row at a time
+     */
+    private static byte[] compressRows(Rows rows, int[] row, int width, int height, int colorType,
+                                       int bytesPerPixel, int[] palette) {
+        int[] sortedPalette = null;
+        int[] paletteIndex = null;
+        if (colorType == COLOR_PALETTE) {
+            // Binary search over the colours, mapped back to palette positions
+            sortedPalette = palette.clone();
+            Arrays.sort(sortedPalette);
+            paletteIndex = new int[palette.length];
+            for (int i = 0; i < palette.length; i++) {
+                paletteIndex[Arrays.binarySearch(sortedPalette, palette[i])] = i;
+            }
+        }
+        
+        int stride = width * bytesPerPixel;
+        // The row above the first one counts as zeros
+        byte[] previous = new byte[stride];
+        byte[] current = new byte[stride];
+        byte[] candidate = new byte[stride];
+        byte[] filtered = new byte[stride + 1];
+        // Filtering palette indices does not help; libpng recommends no filter for them
+        boolean adaptive = colorType != COLOR_PALETTE;
+        
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[16384];
+            for (int y = 0; y < height; y++) {
+                rows.read(y, row);
+                toScanline(row, current, colorType, sortedPalette, paletteIndex);
+                filterRow(current, previous, candidate, filtered, bytesPerPixel, adaptive);
+                
+                deflater.setInput(filtered);
+                while (!deflater.needsInput()) {
+                    out.write(buffer, 0, deflater.deflate(buffer));
+                }
+                byte[] swap = previous;
+                previous = current;
+                current = swap;
+            }
+            deflater.finish();
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+    
+    private static void toScanline(int[] row, byte[] raw, int colorType, int[] sortedPalette, int[] paletteIndex) {
+        int out = 0;
+        for (int pixel : row) {
+            switch (colorType) {
+                case COLOR_PALETTE -> raw[out++] = (byte) paletteIndex[Arrays.binarySearch(sortedPalette, pixel)];
+                case COLOR_RGB -> {
+                    raw[out++] = (byte) (pixel >> 16);
+                    raw[out++] = (byte) (pixel >> 8);
+                    raw[out++] = (byte) pixel;
+                }
+                default -> {
+                    raw[out++] = (byte) (pixel >> 16);
+                    raw[out++] = (byte) (pixel >> 8);
+                    raw[out++] = (byte) pixel;
+                    raw[out++] = (byte) (pixel >>> 24);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Apply the filter with the smallest sum of absolute values to a row
+     * @param out receives the filter type followed by the filtered row
+     */
+    private static void filterRow(byte[] raw, byte[] prev, byte[] candidate, byte[] out, int bpp, boolean adaptive) {
+        int stride = raw.length;
+        long bestScore = Long.MAX_VALUE;
+        
+        for (int type = 0; type <= (adaptive ? 4 : 0); type++) {
+            long score = 0;
+            for (int x = 0; x < stride; x++) {
+                int cur = raw[x] & 0xFF;
+                int left = x >= bpp ? raw[x - bpp] & 0xFF : 0;
+                int up = prev[x] & 0xFF;
+                int upLeft = x >= bpp ? prev[x - bpp] & 0xFF : 0;
+                int value = switch (type) {
+                    case 1 -> cur - left;
+                    case 2 -> cur - up;
+                    case 3 -> cur - ((left + up) >> 1);
+                    case 4 -> cur - paeth(left, up, upLeft);
+                    default -> cur;
+                };
+                candidate[x] = (byte) value;
+                score += Math.abs((int) (byte) value);
+                if (score >= bestScore) break;
+            }
+            if (score < bestScore) {
+                bestScore = score;
+                out[0] = (byte) type;
+                System.arraycopy(candidate, 0, out, 1, stride);
+            }
+        }
+    }
+    
+    private static int paeth(int a, int b, int c) {
+        int p = a + b - c;
+        int pa = Math.abs(p - a);
+        int pb = Math.abs(p - b);
+        int pc = Math.abs(p - c);
+        if (pa <= pb && pa <= pc) return a;
+        return pb <= pc ? b : c;
+    }
+    
+    /**
+     * Distinct colours of an image, up to the size of a palette
+     */
+    private static final class ColorSet {
+        // Open addressing; kept at most a quarter full
+        private final int[] slots = new int[MAX_PALETTE * 4];
+        private final boolean[] used = new boolean[slots.length];
+        private final int[] colors = new int[MAX_PALETTE];
+        private int size = 0;
+        private int last;
+        
+        /**
+         * @return false if the colour is new and the set is already full
+         */
+        boolean add(int color) {
+            if (size > 0 && color == last) return true;
+            int mask = slots.length - 1;
+            int i = (color * 0x9E3779B9) >>> 22 & mask;
+            while (used[i]) {
+                if (slots[i] == color) {
+                    last = color;
+                    return true;
+                }
+                i = (i + 1) & mask;
+            }
+            if (size == MAX_PALETTE) return false;
+            used[i] = true;
+            slots[i] = color;
+            colors[size++] = color;
+            last = color;
+            return true;
+        }
+        
+        int[] toArray() {
+            return Arrays.copyOf(colors, size);
+        }
+    }
+    
+    private static void writeChunk(DataOutputStream out, String type, byte[] data) throws IOException {
+        byte[] typeBytes = type.getBytes(StandardCharsets.ISO_8859_1);
+        CRC32 crc = new CRC32();
+        crc.update(typeBytes);
+        crc.update(data);
+        out.writeInt(data.length);
+        out.write(typeBytes);
+        out.write(data);
+        out.writeInt((int) crc.getValue());
+    }
+    
+    private static void putInt(byte[] target, int offset, int value) {
+        target[offset] = (byte) (value >>> 24);
+        target[offset + 1] = (byte) (value >>> 16);
+        target[offset + 2] = (byte) (value >>> 8);
+        target[offset + 3] = (byte) value;
+    }
+}
@@ -0,0 +1,167 @@
+package com.bbt.skin.common.image;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+/**
+ * Header-only PNG validation.
+ * Checks the signature, the IHDR fields and the chunk structure by walking the chunk
+ * headers, without inflating or decoding any pixels. Dimensions beyond the largest skin
+ * are rejected here, and so is any image that would inflate to more than the largest
+ * accepted skin holds at 8-bit RGBA, so a small file declaring a huge image (a
+ * decompression bomb) never reaches ImageIO or NativeImage.
+ */
+public final class PngProbe {
+
+    private static final byte[] SIGNATURE = { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n' };
+    // Largest width or height accepted anywhere (the largest high-resolution skin)
+    public static final int MAX_DIMENSION = 8192;
+    // Deflate cannot expand data by more than about 1032:1
+    private static final long MAX_DEFLATE_RATIO = 1032;
+    // A standard 64x64 skin at 16-bit RGBA; standard skins are accepted at any depth
+    private static final long STANDARD_RAW_SIZE = 64 * (64 * 8 + 1);
+
+    private static final int COLOR_GRAY = 0;
+    private static final int COLOR_RGB = 2;
+    private static final int COLOR_PALETTE = 3;
+    private static final int COLOR_GRAY_ALPHA = 4;
+    private static final int COLOR_RGBA = 6;
+
+    /**
+     * What the header of a valid PNG declares
+     * @param rawSize size of the filtered scanlines once inflated (not counting interlacing overhead)
+     * @param dataSize compressed bytes across all IDAT chunks
+     */
+    public record Info(int width, int height, int bitDepth, int colorType, boolean interlaced,
+                       long rawSize, long dataSize) {
+    }
+
+    private PngProbe() {}
+
+    /**
+     * Validate a PNG held in memory
+     * @throws IOException describing the first problem found
+     */
+    public static Info probe(byte[] png) throws IOException {
+        return probe(ByteBuffer.wrap(png));
+    }
+
+    /**
+     * Validate the PNG between the buffer's position and limit; the buffer itself is not moved
+     * @throws IOException describing the first problem found
+     */
+    public static Info probe(ByteBuffer png) throws IOException {
+        int start = png.position();
+        int end = png.limit();
+        if (end - start < SIGNATURE.length) throw new IOException("Not a PNG file");
+        for (int i = 0; i < SIGNATURE.length; i++) {
+            if (png.get(start + i) != SIGNATURE[i]) throw new IOException("Not a PNG file");
+        }
+
+        Info header = null;
+        boolean palette = false;
+        boolean ended = false;
+        long dataSize = 0;
+        int pos = start + SIGNATURE.length;
+        while (!ended) {
+            if (end - pos < 12) throw new IOException("Truncated PNG");
+            int length = png.getInt(pos);
+            int type = png.getInt(pos + 4);
+            if (length < 0 || length > end - pos - 12) throw new IOException("Truncated PNG");
+            if (!isChunkType(type)) throw new IOException("Corrupt PNG chunk");
+
+            String name = typeName(type);
+            if (header == null) {
+                if (!name.equals("IHDR") || length != 13) throw new IOException("PNG does not start with IHDR");
+                header = readHeader(png, pos);
+            } else {
+                switch (name) {
+                    case "IHDR" -> throw new IOException("Duplicate PNG header");
+                    case "PLTE" -> palette = true;
+                    case "IDAT" -> dataSize += length;
+                    case "IEND" -> ended = true;
+                    default -> {
+                        // Decoders must reject unknown critical chunks (upper-case first letter)
+                        if ((type & 0x20000000) == 0) throw new IOException("Unknown critical PNG chunk " + name);
+                    }
+                }
+            }
+            pos += length + 12;
+        }
+
+        if (header.colorType() == COLOR_PALETTE && !palette) throw new IOException("PNG palette missing");
+        if (dataSize == 0) throw new IOException("PNG has no image data");
+        if (dataSize * MAX_DEFLATE_RATIO < header.rawSize()) throw new IOException("PNG image data is truncated");
+        return new Info(header.width(), header.height(), header.bitDepth(), header.colorType(),
+                header.interlaced(), header.rawSize(), dataSize);
+    }
+
+    private static Info readHeader(ByteBuffer png, int chunkStart) throws IOException {
+        byte[] chunk = new byte[17];
+        png.get(chunkStart + 4, chunk);
+        CRC32 crc = new CRC32();
+        crc.update(chunk);
+        if ((int) crc.getValue() != png.getInt(chunkStart + 8 + 13)) throw new IOException("Corrupt PNG header");
+
+        int width = png.getInt(chunkStart + 8);
+        int height = png.getInt(chunkStart + 12);
+        int bitDepth = png.get(chunkStart + 16) & 0xFF;
+        int colorType = png.get(chunkStart + 17) & 0xFF;
+        int compression = png.get(chunkStart + 18) & 0xFF;
+        int filter = png.get(chunkStart + 19) & 0xFF;
+        int interlace = png.get(chunkStart + 20) & 0xFF;
+
+        if (width <= 0 || height <= 0 || width > MAX_DIMENSION || height > MAX_DIMENSION) {
+            throw new IOException("Invalid PNG dimensions: " + width + "x" + height);
+        }
+        int channels = channels(colorType, bitDepth);
+        if (channels == 0) throw new IOException("Unsupported PNG format: type " + colorType + ", depth " + bitDepth);
+        if (compression != 0 || filter != 0 || interlace > 1) throw new IOException("Unsupported PNG encoding");
+
+        // One filter byte per row
+        long rowBytes = ((long) width * channels * bitDepth + 7) / 8;
+        long rawSize = height * (rowBytes + 1);
+        if (rawSize > maxRawSize(height)) {
+            throw new IOException("PNG image data too large: " + width + "x" + height + " at depth " + bitDepth);
+        }
+        return new Info(width, height, bitDepth, colorType, interlace == 1, rawSize, 0);
+    }
+
+    /**
+     * Inflated size of the largest accepted skin as 8-bit RGBA with a filter byte per row.
+     * Deeper formats are only accepted while they stay below it (e.g. no 16-bit RGBA at the maximum size).
+     */
+    private static long maxRawSize(int height) {
+        long max = SkinDimensions.maxResolution();
+        return Math.max(max * max * 4 + height, STANDARD_RAW_SIZE);
+    }
+
+    /**
+     * Channels per pixel, or 0 if the PNG specification does not allow this bit depth for the colour type
+     */
+    private static int channels(int colorType, int bitDepth) {
+        return switch (colorType) {
+            case COLOR_GRAY -> bitDepth == 1 || bitDepth == 2 || bitDepth == 4 || bitDepth == 8 || bitDepth == 16 ? 1 : 0;
+            case COLOR_PALETTE -> bitDepth == 1 || bitDepth == 2 || bitDepth == 4 || bitDepth == 8 ? 1 : 0;
+            case COLOR_RGB -> bitDepth == 8 || bitDepth == 16 ? 3 : 0;
+            case COLOR_GRAY_ALPHA -> bitDepth == 8 || bitDepth == 16 ? 2 : 0;
+            case COLOR_RGBA -> bitDepth == 8 || bitDepth == 16 ? 4 : 0;
+            default -> 0;
+        };
+    }
+
+    private static boolean isChunkType(int type) {
+        for (int shift = 24; shift >= 0; shift -= 8) {
+            int c = (type >>> shift) & 0xFF;
+            if (!((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z'))) return false;
+        }
+        return true;
+    }
+
+    private static String typeName(int type) {
+        byte[] name = { (byte) (type >>> 24), (byte) (type >>> 16), (byte) (type >>> 8), (byte) type };
+        return new String(name, StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,35 @@
+package com.bbt.skin.common.image;
+
+import com.bbt.skin.common.config.BBTSkinConfig;
+
+/**
+ * The skin shapes BBTSkin accepts, shared by client import and server upload checks
+ * so both sides always agree.
+ */
+public final class SkinDimensions {
+
+    private SkinDimensions() {}
+
+    /**
+     * Standard 64x64 and legacy 64x32 skins, plus power-of-two squares up to the
+     * configured resolution limit when high-resolution skins are enabled
+     */
+    public static boolean isValid(int width, int height) {
+        // Standard: 64x64, 64x32
+        if (width == 64 && (height == 64 || height == 32)) return true;
+
+        if (!BBTSkinConfig.get().isHighResSkinsEnabled() || width > maxResolution()) return false;
+
+        // High-res: power-of-two squares (128x128, 256x256, ...)
+        return width == height && width >= 64 && (width & (width - 1)) == 0;
+    }
+
+    /**
+     * The largest width or height of any accepted skin
+     */
+    public static int maxResolution() {
+        BBTSkinConfig config = BBTSkinConfig.get();
+        if (!config.isHighResSkinsEnabled()) return 64;
+        return Math.min(PngProbe.MAX_DIMENSION, config.getMaxSkinResolution());
+    }
+}
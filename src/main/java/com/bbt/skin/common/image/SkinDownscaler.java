@@ -0,0 +1,114 @@
+package com.bbt.skin.common.image;
+
+import org.jetbrains.annotations.Nullable;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+/**
+ * Halves high-resolution skins step by step.
+ * Every step averages 2x2 blocks weighted by alpha, so transparent pixels do not darken
+ * the edges of overlay parts. Skins never go below the vanilla 64 pixel width.
+ */
+public final class SkinDownscaler {
+    
+    public static final int MIN_RESOLUTION = 64;
+    
+    /**
+     * A downscaled skin encoded as a canonical PNG
+     */
+    public record Scaled(byte[] imageData, int width, int height) {
+    }
+    
+    private SkinDownscaler() {}
+    
+    /**
+     * Halve ARGB pixels (both dimensions must be even)
+     */
+    public static int[] halve(int[] argb, int width, int height) {
+        return halve((y, row) -> System.arraycopy(argb, y * width, row, 0, width), width, height);
+    }
+    
+    /**
+     * Halve an image read row by row (both dimensions must be even), so the full-size
+     * pixels never have to be held at once
+     */
+    public static int[] halve(PngEncoder.Rows rows, int width, int height) {
+        int halfWidth = width / 2;
+        int halfHeight = height / 2;
+        int[] out = new int[halfWidth * halfHeight];
+        int[] top = new int[width];
+        int[] bottom = new int[width];
+        
+        for (int y = 0; y < halfHeight; y++) {
+            rows.read(y * 2, top);
+            rows.read(y * 2 + 1, bottom);
+            for (int x = 0; x < halfWidth; x++) {
+                int i = x * 2;
+                int[] block = { top[i], top[i + 1], bottom[i], bottom[i + 1] };
+                
+                int alphaSum = 0;
+                long red = 0, green = 0, blue = 0;
+                for (int pixel : block) {
+                    int alpha = pixel >>> 24;
+                    alphaSum += alpha;
+                    red += (long) ((pixel >> 16) & 0xFF) * alpha;
+                    green += (long) ((pixel >> 8) & 0xFF) * alpha;
+                    blue += (long) (pixel & 0xFF) * alpha;
+                }
+                
+                if (alphaSum == 0) {
+                    out[y * halfWidth + x] = 0;
+                    continue;
+                }
+                int a = (alphaSum + 2) / 4;
+                int r = (int) ((red + alphaSum / 2) / alphaSum);
+                int g = (int) ((green + alphaSum / 2) / alphaSum);
+                int b = (int) ((blue + alphaSum / 2) / alphaSum);
+                out[y * halfWidth + x] = (a << 24) | (r << 16) | (g << 8) | b;
+            }
+        }
+        return out;
+    }
+    
+    /**
+     * Decode a skin PNG and halve it until it is no wider than {@code maxResolution}
+     * @return the scaled skin, or null if the image cannot be decoded or is already small enough
+     */
+    @Nullable
+    public static Scaled fit(byte[] png, int maxResolution) {
+        BufferedImage image;
+        try {
+            image = ImageIO.read(new ByteArrayInputStream(png));
+        } catch (IOException e) {
+            return null;
+        }
+        if (image == null) return null;
+        
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int limit = Math.max(MIN_RESOLUTION, maxResolution);
+        if (width <= limit) return null;
+        
+        // The first step reads the decoded image directly instead of copying all its pixels
+        int[] pixels = null;
+        while (width > limit && width / 2 >= MIN_RESOLUTION && width % 2 == 0 && height % 2 == 0) {
+            pixels = pixels == null ? halve(rowsOf(image), width, height) : halve(pixels, width, height);
+            width /= 2;
+            height /= 2;
+        }
+        byte[] encoded = pixels != null ? PngEncoder.encode(pixels, width, height)
+                : PngEncoder.encode(rowsOf(image), width, height);
+        return new Scaled(encoded, width, height);
+    }
+    
+    /**
+     * Read the rows of a decoded image as ARGB pixels
+     */
+    public static PngEncoder.Rows rowsOf(BufferedImage image) {
+        int width = image.getWidth();
+        return (y, row) -> image.getRGB(0, y, width, 1, row, 0, width);
+    }
+}
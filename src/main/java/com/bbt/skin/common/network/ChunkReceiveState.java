@@ -0,0 +1,155 @@
+package com.bbt.skin.common.network;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.CRC32C;
+
+/**
+ * Receiver side of a chunked transfer.
+ * Chunks are checked against their CRC32C and written straight to their offset in one
+ * buffer sized for the whole payload, so assembling the transfer copies nothing. The
+ * receiver acknowledges the first chunk (so the sender learns where to resume), every
+ * few new chunks, anything unexpected (duplicates, corrupt chunks, gaps) and completion.
+ */
+public class ChunkReceiveState {
+    
+    public enum Outcome { ADDED, DUPLICATE, CORRUPT, INVALID }
+    
+    private static final int ACK_INTERVAL = ChunkSendWindow.WINDOW_CHUNKS / 2;
+    // Bound on missing chunks listed in one acknowledgement
+    private static final int MAX_MISSING = 32;
+    
+    private final int totalSize;
+    private final int chunkSize;
+    private final boolean[] present;
+    private final boolean direct;
+    private ByteBuffer buffer;
+    private int received = 0;
+    private int contiguous = 0;
+    private int highest = 0;
+    private int lastAcked = 0;
+    // Whether the last chunk left a hole before it
+    private boolean opensGap = false;
+    
+    /**
+     * @param direct reassemble into a pooled direct buffer (see {@link SkinBufferPool})
+     *               instead of a heap array
+     */
+    public ChunkReceiveState(int totalSize, int totalChunks, int chunkSize, boolean direct) {
+        if (!isValidLayout(totalSize, totalChunks, chunkSize)) {
+            throw new IllegalArgumentException("Invalid chunk layout: " + totalSize + " bytes in " + totalChunks);
+        }
+        this.totalSize = totalSize;
+        this.chunkSize = chunkSize;
+        this.present = new boolean[totalChunks];
+        this.direct = direct;
+        this.buffer = direct ? SkinBufferPool.acquire(totalSize) : ByteBuffer.wrap(new byte[totalSize]);
+    }
+    
+    /**
+     * Whether a transfer announced with these sizes can be reassembled
+     */
+    public static boolean isValidLayout(int totalSize, int totalChunks, int chunkSize) {
+        return totalSize > 0 && totalSize <= NetworkConstants.MAX_SKIN_SIZE && chunkSize > 0
+                && totalChunks == (totalSize + chunkSize - 1) / chunkSize;
+    }
+    
+    /**
+     * CRC32C of a chunk as sent on the wire
+     */
+    public static int checksum(byte[] data) {
+        return checksum(data, 0, data.length);
+    }
+    
+    /**
+     * CRC32C of a chunk sent straight from a slice of the payload
+     */
+    public static int checksum(byte[] data, int offset, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(data, offset, length);
+        return (int) crc.getValue();
+    }
+    
+    /**
+     * Keep a chunk if it is new, intact and of the size its position requires
+     */
+    public Outcome accept(int index, byte[] data, int checksum) {
+        if (buffer == null || index < 0 || index >= present.length) return Outcome.INVALID;
+        int offset = index * chunkSize;
+        if (data.length != Math.min(chunkSize, totalSize - offset)) return Outcome.INVALID;
+        if (present[index]) return Outcome.DUPLICATE;
+        
+        // A corrupt chunk still counts as seen, so it is listed as missing
+        opensGap = index > highest;
+        highest = Math.max(highest, index + 1);
+        if (checksum(data) != checksum) return Outcome.CORRUPT;
+        
+        buffer.put(offset, data);
+        present[index] = true;
+        received++;
+        while (contiguous < present.length && present[contiguous]) {
+            contiguous++;
+        }
+        return Outcome.ADDED;
+    }
+    
+    /**
+     * Whether the sender should hear about the chunk just handled
+     */
+    public boolean shouldAck(Outcome outcome, int index) {
+        return outcome != Outcome.ADDED
+                || index == 0
+                || opensGap
+                || isComplete()
+                || contiguous - lastAcked >= ACK_INTERVAL;
+    }
+    
+    /**
+     * Record that an acknowledgement is being sent
+     * @return the number of leading chunks held
+     */
+    public int markAcked() {
+        lastAcked = contiguous;
+        return contiguous;
+    }
+    
+    /**
+     * Chunks below the highest one received that are still missing
+     */
+    public int[] missing() {
+        int count = 0;
+        int[] missing = new int[Math.min(MAX_MISSING, Math.max(0, highest - contiguous))];
+        for (int i = contiguous; i < highest && count < missing.length; i++) {
+            if (!present[i]) missing[count++] = i;
+        }
+        return count == missing.length ? missing : Arrays.copyOf(missing, count);
+    }
+    
+    public boolean isComplete() {
+        return received >= present.length;
+    }
+    
+    public int getTotalChunks() {
+        return present.length;
+    }
+    
+    /**
+     * Hand over the reassembled payload (position 0, limit = total size).
+     * The caller owns the buffer from now on and releases it to the pool if it is direct.
+     */
+    public ByteBuffer take() {
+        ByteBuffer payload = buffer;
+        buffer = null;
+        return payload.clear().limit(totalSize);
+    }
+    
+    /**
+     * Give up on an incomplete transfer and return its buffer to the pool
+     */
+    public void release() {
+        if (buffer != null && direct) {
+            SkinBufferPool.release(buffer);
+        }
+        buffer = null;
+    }
+}
@@ -0,0 +1,144 @@
+package com.bbt.skin.common.network;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Sender side of a chunked transfer.
+ * At most {@link #WINDOW_CHUNKS} chunks are unacknowledged at a time. The receiver
+ * acknowledges how many leading chunks it holds and lists chunks it is missing or that
+ * failed their checksum; those are resent. Only the first chunk goes out before the
+ * first acknowledgement, so a receiver holding part of the transfer from an earlier
+ * connection can let the sender skip ahead. If acknowledgements stop, the unacknowledged
+ * chunks are resent a few times before the transfer is given up.
+ */
+public class ChunkSendWindow {
+    
+    public static final int WINDOW_CHUNKS = 8;
+    private static final long ACK_TIMEOUT_MS = 5000;
+    private static final int MAX_TIMEOUTS = 4;
+    
+    private final int totalChunks;
+    // Chunks the receiver asked for again, sent before new ones
+    private final Deque<Integer> resend = new ArrayDeque<>();
+    // Chunks resent on request; later acks still listing them are ignored until a timeout
+    private final Set<Integer> resent = new HashSet<>();
+    private int acked = 0;
+    private int nextNew = 0;
+    private int highestSent = 0;
+    private boolean probing = true;
+    private long lastProgress;
+    private int timeouts = 0;
+    private int retransmits = 0;
+    private int resumed = 0;
+    
+    public ChunkSendWindow(int totalChunks, long now) {
+        this.totalChunks = totalChunks;
+        this.lastProgress = now;
+    }
+    
+    /**
+     * Whether a chunk may be sent now
+     */
+    public boolean canSend() {
+        if (!resend.isEmpty()) return true;
+        int window = probing ? 1 : WINDOW_CHUNKS;
+        return nextNew < totalChunks && nextNew < acked + window;
+    }
+    
+    /**
+     * Index of the chunk to send next; only valid after {@link #canSend()} returned true
+     */
+    public int peekNext() {
+        Integer index = resend.peek();
+        return index != null ? index : nextNew;
+    }
+    
+    /**
+     * Take the chunk to send next and record that it is in flight
+     */
+    public int next(long now) {
+        if (acked == highestSent && resend.isEmpty()) {
+            // Nothing was in flight, so the ack timer starts now
+            lastProgress = now;
+        }
+        
+        Integer requested = resend.poll();
+        int index = requested != null ? requested : nextNew++;
+        if (requested != null) resent.add(requested);
+        if (index < highestSent) {
+            retransmits++;
+        } else {
+            highestSent = index + 1;
+        }
+        return index;
+    }
+    
+    /**
+     * Apply an acknowledgement
+     * @param received number of leading chunks the receiver holds
+     * @param missing chunks the receiver lacks or rejected
+     */
+    public void onAck(int received, int[] missing, long now) {
+        received = Math.max(0, Math.min(totalChunks, received));
+        if (received > acked) {
+            if (probing && received > highestSent) {
+                resumed = received - highestSent;
+            }
+            acked = received;
+            highestSent = Math.max(highestSent, acked);
+            lastProgress = now;
+            timeouts = 0;
+        }
+        probing = false;
+        if (nextNew < acked) nextNew = acked;
+        
+        resend.removeIf(index -> index < acked);
+        resent.removeIf(index -> index < acked);
+        for (int index : missing) {
+            if (index >= acked && index < highestSent && !resend.contains(index) && !resent.contains(index)) {
+                resend.add(index);
+            }
+        }
+    }
+    
+    /**
+     * Resend unacknowledged chunks if the receiver went quiet
+     * @return false once the transfer should be given up
+     */
+    public boolean checkTimeout(long now) {
+        if (isDone() || highestSent <= acked || now - lastProgress < ACK_TIMEOUT_MS) return true;
+        
+        if (++timeouts > MAX_TIMEOUTS) return false;
+        resend.clear();
+        resent.clear();
+        nextNew = acked;
+        lastProgress = now;
+        return true;
+    }
+    
+    public boolean isDone() {
+        return acked >= totalChunks;
+    }
+    
+    public int getTotalChunks() {
+        return totalChunks;
+    }
+    
+    public int getAcked() {
+        return acked;
+    }
+    
+    public int getRetransmits() {
+        return retransmits;
+    }
+    
+    /**
+     * Chunks skipped because the receiver already held them from an interrupted transfer
+     */
+    public int getResumed() {
+        return resumed;
+    }
+}
@@ -19,6 +19,9 @@ public class NetworkConstants {
     // Timeouts (milliseconds)
     public static final int SKIN_REQUEST_TIMEOUT = 30000;
     public static final int SKIN_SYNC_TIMEOUT = 60000;
+    // Partial chunked transfers: discarded when idle this long, or alive longer than the lifetime
+    public static final int REASSEMBLY_IDLE_TIMEOUT = 120000;
+    public static final int REASSEMBLY_MAX_LIFETIME = 600000;
     
     private NetworkConstants() {}
 }
@@ -1,13 +1,23 @@
 package com.bbt.skin.common.network;
 
 import com.bbt.skin.BBTSkin;
+import com.bbt.skin.common.network.packet.SkinAnnouncePacket;
+import com.bbt.skin.common.network.packet.SkinAnnounceReplyPacket;
 import com.bbt.skin.common.network.packet.SkinApplyPacket;
+import com.bbt.skin.common.network.packet.SkinBatchRequestPacket;
+import com.bbt.skin.common.network.packet.SkinCapabilitiesPacket;
+import com.bbt.skin.common.network.packet.SkinChunkAckPacket;
 import com.bbt.skin.common.network.packet.SkinChunkPacket;
+import com.bbt.skin.common.network.packet.SkinInventoryPacket;
+import com.bbt.skin.common.network.packet.SkinOfferPacket;
+import com.bbt.skin.common.network.packet.SkinOfferReplyPacket;
 import com.bbt.skin.common.network.packet.SkinRequestPacket;
 import com.bbt.skin.common.network.packet.SkinResetPacket;
 import com.bbt.skin.common.network.packet.SkinResponseChunkPacket;
 import com.bbt.skin.common.network.packet.SkinResponsePacket;
 import com.bbt.skin.common.network.packet.SkinSyncPacket;
+import com.bbt.skin.common.network.packet.SkinTransferBeginPacket;
+import com.bbt.skin.common.network.packet.SkinTransferChunkPacket;
 import net.minecraft.resources.ResourceLocation;
 import net.minecraft.server.level.ServerPlayer;
 import net.minecraftforge.network.NetworkDirection;
@@ -22,17 +32,40 @@ import java.util.Optional;
  */
 public class NetworkHandler {
     
-    private static final String PROTOCOL_VERSION = "1";
+    // 2: skins are announced by content hash before any image bytes are sent;
+    //    chunked payloads carry an encoding negotiated through SkinCapabilitiesPacket,
+    //    which also carries each side's skin resolution limit; chunks carry a CRC32C
+    //    and are acknowledged through SkinChunkAckPacket; clients offer their skin's hash
+    //    (SkinOfferPacket) and upload only if the server asks for it; capabilities carry
+    //    the largest chunk each side receives and response chunks carry their chunk size;
+    //    clients with the compact chunk feature get a transfer header once
+    //    (SkinTransferBeginPacket) and chunks that refer to it by id (SkinTransferChunkPacket);
+    //    upload chunks carry the SHA-256 of their whole payload; clients request skins in
+    //    batches (SkinBatchRequestPacket) from servers that list the feature
+    // 2 is a hard break from 1: SkinChunkPacket and SkinResponseChunkPacket changed in place,
+    // so "1" peers are refused at login and clients and servers had to update together.
+    // From 2 on, peers of the same major version connect. Within one, packets and capability
+    // fields are only appended, and a new packet is only sent to a peer whose capabilities say
+    // it knows it, so a minor bump ("2.1") never locks out clients or servers on "2".
+    private static final String PROTOCOL_VERSION = "2";
+    private static final String PROTOCOL_MAJOR = "2";
     
     public static final SimpleChannel CHANNEL = NetworkRegistry.newSimpleChannel(
             new ResourceLocation(BBTSkin.MOD_ID, "main"),
             () -> PROTOCOL_VERSION,
-            PROTOCOL_VERSION::equals,
-            PROTOCOL_VERSION::equals
+            NetworkHandler::isCompatibleVersion,
+            NetworkHandler::isCompatibleVersion
     );
     
     private static int packetId = 0;
     
+    /**
+     * Whether a peer's protocol version has our major version
+     */
+    private static boolean isCompatibleVersion(String version) {
+        return version.equals(PROTOCOL_MAJOR) || version.startsWith(PROTOCOL_MAJOR + ".");
+    }
+    
     public static void register() {
         // Client -> Server packets
         CHANNEL.registerMessage(packetId++, SkinSyncPacket.class,
@@ -78,6 +111,70 @@ public class NetworkHandler {
                 SkinApplyPacket::handle,
                 Optional.of(NetworkDirection.PLAY_TO_CLIENT));
         
+        // Content-hash handshake
+        CHANNEL.registerMessage(packetId++, SkinAnnouncePacket.class,
+                SkinAnnouncePacket::encode,
+                SkinAnnouncePacket::decode,
+                SkinAnnouncePacket::handle,
+                Optional.of(NetworkDirection.PLAY_TO_CLIENT));
+        
+        CHANNEL.registerMessage(packetId++, SkinAnnounceReplyPacket.class,
+                SkinAnnounceReplyPacket::encode,
+                SkinAnnounceReplyPacket::decode,
+                SkinAnnounceReplyPacket::handle,
+                Optional.of(NetworkDirection.PLAY_TO_SERVER));
+        
+        CHANNEL.registerMessage(packetId++, SkinInventoryPacket.class,
+                SkinInventoryPacket::encode,
+                SkinInventoryPacket::decode,
+                SkinInventoryPacket::handle,
+                Optional.of(NetworkDirection.PLAY_TO_SERVER));
+        
+        // Upload handshake: the client offers its skin's hash, the server asks for the bytes if needed
+        CHANNEL.registerMessage(packetId++, SkinOfferPacket.class,
+                SkinOfferPacket::encode,
+                SkinOfferPacket::decode,
+                SkinOfferPacket::handle,
+                Optional.of(NetworkDirection.PLAY_TO_SERVER));
+        
+        CHANNEL.registerMessage(packetId++, SkinOfferReplyPacket.class,
+                SkinOfferReplyPacket::encode,
+                SkinOfferReplyPacket::decode,
+                SkinOfferReplyPacket::handle,
+                Optional.of(NetworkDirection.PLAY_TO_CLIENT));
+        
+        // Sent both ways: client first, server answers
+        CHANNEL.registerMessage(packetId++, SkinCapabilitiesPacket.class,
+                SkinCapabilitiesPacket::encode,
+                SkinCapabilitiesPacket::decode,
+                SkinCapabilitiesPacket::handle);
+        
+        // Sent both ways: acknowledges chunks of uploads and downloads
+        CHANNEL.registerMessage(packetId++, SkinChunkAckPacket.class,
+                SkinChunkAckPacket::encode,
+                SkinChunkAckPacket::decode,
+                SkinChunkAckPacket::handle);
+        
+        // Compact chunked downloads, only sent to clients that list FEATURE_COMPACT_CHUNKS
+        CHANNEL.registerMessage(packetId++, SkinTransferBeginPacket.class,
+                SkinTransferBeginPacket::encode,
+                SkinTransferBeginPacket::decode,
+                SkinTransferBeginPacket::handle,
+                Optional.of(NetworkDirection.PLAY_TO_CLIENT));
+        
+        CHANNEL.registerMessage(packetId++, SkinTransferChunkPacket.class,
+                SkinTransferChunkPacket::encode,
+                SkinTransferChunkPacket::decode,
+                SkinTransferChunkPacket::handle,
+                Optional.of(NetworkDirection.PLAY_TO_CLIENT));
+        
+        // Batched skin requests, only sent to servers that list FEATURE_BATCH_REQUESTS
+        CHANNEL.registerMessage(packetId++, SkinBatchRequestPacket.class,
+                SkinBatchRequestPacket::encode,
+                SkinBatchRequestPacket::decode,
+                SkinBatchRequestPacket::handle,
+                Optional.of(NetworkDirection.PLAY_TO_SERVER));
+        
         BBTSkin.LOGGER.info("Registered {} network packets", packetId);
     }
     
@@ -95,87 +192,81 @@ public class NetworkHandler {
     }
     
     /**
-     * Send skin data to server, using chunked packets for large skins
+     * Send skin data to server, using chunked packets for large skins.
+     * Large skins are deflated first when the server accepts compressed payloads.
      */
     public static void sendSkinToServer(String skinId, byte[] skinData, boolean slim, 
-                                        String skinName, int width, int height) {
+                                        String skinName, int width, int height, boolean allowCompression) {
         // Check if we need chunking (> 30KB)
         if (skinData.length <= SkinChunkPacket.MAX_CHUNK_SIZE) {
             // Small enough for single packet
+            SkinUploadSession.cancel();
             sendToServer(new SkinSyncPacket(skinId, skinData, slim, skinName, width, height));
+            return;
+        }
+        
+        byte[] compressed = allowCompression ? SkinCompression.compress(skinData) : null;
+        if (compressed != null) {
+            BBTSkin.LOGGER.debug("Compressed skin {} from {} to {} bytes", skinName, skinData.length, compressed.length);
+            sendChunkedSkinToServer(skinId, compressed, SkinCompression.ENCODING_DEFLATE, skinData.length,
+                    slim, skinName, width, height);
         } else {
             // Need to chunk
-            sendChunkedSkinToServer(skinId, skinData, slim, skinName, width, height);
+            sendChunkedSkinToServer(skinId, skinData, SkinCompression.ENCODING_RAW, skinData.length,
+                    slim, skinName, width, height);
         }
     }
     
     /**
-     * Send large skin data in chunks
+     * Send large skin data in chunks, paced by the server's acknowledgements
      */
-    private static void sendChunkedSkinToServer(String skinId, byte[] skinData, boolean slim,
-                                                 String skinName, int width, int height) {
-        int totalSize = skinData.length;
-        int totalChunks = (int) Math.ceil((double) totalSize / SkinChunkPacket.MAX_CHUNK_SIZE);
-        
-        BBTSkin.LOGGER.info("Sending skin {} in {} chunks ({} bytes)", skinName, totalChunks, totalSize);
-        
-        for (int i = 0; i < totalChunks; i++) {
-            int offset = i * SkinChunkPacket.MAX_CHUNK_SIZE;
-            int length = Math.min(SkinChunkPacket.MAX_CHUNK_SIZE, totalSize - offset);
-            
-            byte[] chunkData = new byte[length];
-            System.arraycopy(skinData, offset, chunkData, 0, length);
-            
-            SkinChunkPacket packet = new SkinChunkPacket(
-                    skinId, skinName, slim, width, height,
-                    totalSize, i, totalChunks, chunkData
-            );
-            
-            sendToServer(packet);
-        }
+    private static void sendChunkedSkinToServer(String skinId, byte[] skinData, int encoding, int rawSize,
+                                                 boolean slim, String skinName, int width, int height) {
+        SkinUploadSession.start(skinId, skinName, slim, width, height, skinData, encoding, rawSize);
     }
     
     /**
-     * Send skin data to a player, using chunked packets for large skins
+     * Number of packets needed to send a skin of the given size to a client
+     * @param chunkSize chunk size negotiated with the client
      */
-    public static void sendSkinToPlayer(String playerUUID, String skinId, byte[] skinData, 
-                                        boolean slim, String skinName, int width, int height,
-                                        ServerPlayer targetPlayer) {
-        // Check if we need chunking
-        if (skinData.length <= SkinResponseChunkPacket.MAX_CHUNK_SIZE) {
-            // Small enough for single packet
-            sendToPlayer(new SkinResponsePacket(playerUUID, skinId, skinData, slim, skinName, width, height), 
-                    targetPlayer);
-        } else {
-            // Need to chunk
-            sendChunkedSkinToPlayer(playerUUID, skinId, skinData, slim, skinName, width, height, targetPlayer);
+    public static int getResponsePacketCount(int size, int chunkSize) {
+        if (size <= chunkSize) {
+            return 1;
         }
+        return (int) Math.ceil((double) size / chunkSize);
+    }
+    
+    /**
+     * Whether a skin transfer to a client is sent as acknowledged chunks rather than one packet
+     */
+    public static boolean isChunkedResponse(int size, int encoding, int chunkSize) {
+        return getResponsePacketCount(size, chunkSize) > 1 || encoding != SkinCompression.ENCODING_RAW;
     }
     
     /**
-     * Send large skin data to player in chunks
+     * Build the packet with the given index of a skin transfer to a client.
+     * Small raw skins are a single {@link SkinResponsePacket}; large or compressed
+     * payloads are split into chunks.
      */
-    private static void sendChunkedSkinToPlayer(String playerUUID, String skinId, byte[] skinData,
-                                                 boolean slim, String skinName, int width, int height,
-                                                 ServerPlayer targetPlayer) {
+    public static Object createResponsePacket(String playerUUID, String skinId, byte[] skinData,
+                                              int encoding, int rawSize, boolean slim, String skinName,
+                                              int width, int height, int chunkSize, int index) {
         int totalSize = skinData.length;
-        int totalChunks = (int) Math.ceil((double) totalSize / SkinResponseChunkPacket.MAX_CHUNK_SIZE);
-        
-        BBTSkin.LOGGER.debug("Sending skin to {} in {} chunks", targetPlayer.getName().getString(), totalChunks);
-        
-        for (int i = 0; i < totalChunks; i++) {
-            int offset = i * SkinResponseChunkPacket.MAX_CHUNK_SIZE;
-            int length = Math.min(SkinResponseChunkPacket.MAX_CHUNK_SIZE, totalSize - offset);
-            
-            byte[] chunkData = new byte[length];
-            System.arraycopy(skinData, offset, chunkData, 0, length);
-            
-            SkinResponseChunkPacket packet = new SkinResponseChunkPacket(
-                    playerUUID, skinId, skinName, slim, width, height,
-                    totalSize, i, totalChunks, chunkData
-            );
-            
-            sendToPlayer(packet, targetPlayer);
+        int totalChunks = getResponsePacketCount(totalSize, chunkSize);
+        if (!isChunkedResponse(totalSize, encoding, chunkSize)) {
+            // Small enough for single packet
+            return new SkinResponsePacket(playerUUID, skinId, skinData, slim, skinName, width, height);
         }
+        
+        int offset = index * chunkSize;
+        int length = Math.min(chunkSize, totalSize - offset);
+        
+        byte[] chunkData = new byte[length];
+        System.arraycopy(skinData, offset, chunkData, 0, length);
+        
+        return new SkinResponseChunkPacket(
+                playerUUID, skinId, skinName, slim, width, height,
+                totalSize, index, totalChunks, chunkSize, encoding, rawSize, chunkData
+        );
     }
 }
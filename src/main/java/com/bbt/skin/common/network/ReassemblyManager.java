@@ -0,0 +1,174 @@
+package com.bbt.skin.common.network;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Bookkeeping for partially received chunked transfers.
+ * Every transfer reserves its declared size before its buffer is allocated; a transfer
+ * that would exceed the global or per-peer ceiling is refused. Transfers idle for longer
+ * than the idle timeout, or alive longer than the lifetime limit, are discarded by
+ * {@link #sweep}, so stalled or abandoned transfers cannot pin memory.
+ * Partial transfers otherwise survive reconnects, which is what makes resuming possible.
+ */
+public class ReassemblyManager<K, T> {
+    
+    private final Map<K, Entry<T>> entries = new HashMap<>();
+    private final Map<UUID, Long> peerBytes = new HashMap<>();
+    private final long maxTotalBytes;
+    private final long maxPeerBytes;
+    private final long idleTimeoutMs;
+    private final long maxLifetimeMs;
+    // Frees the buffer of a transfer that is dropped before completing
+    private final Consumer<T> discard;
+    
+    private long totalBytes = 0;
+    private long expired = 0;
+    private long rejected = 0;
+    
+    private static class Entry<T> {
+        final T value;
+        @Nullable final UUID peer;
+        final long bytes;
+        final long created;
+        long lastActivity;
+        
+        Entry(T value, @Nullable UUID peer, long bytes, long now) {
+            this.value = value;
+            this.peer = peer;
+            this.bytes = bytes;
+            this.created = now;
+            this.lastActivity = now;
+        }
+    }
+    
+    public ReassemblyManager(long maxTotalBytes, long maxPeerBytes, long idleTimeoutMs, long maxLifetimeMs,
+                             Consumer<T> discard) {
+        this.maxTotalBytes = maxTotalBytes;
+        this.maxPeerBytes = maxPeerBytes;
+        this.idleTimeoutMs = idleTimeoutMs;
+        this.maxLifetimeMs = maxLifetimeMs;
+        this.discard = discard;
+    }
+    
+    /**
+     * Look up a live transfer and mark it active
+     */
+    @Nullable
+    public synchronized T get(K key, long now) {
+        Entry<T> entry = entries.get(key);
+        if (entry == null) return null;
+        if (isExpired(entry, now)) {
+            drop(key, entry);
+            expired++;
+            return null;
+        }
+        entry.lastActivity = now;
+        return entry.value;
+    }
+    
+    /**
+     * Start a transfer, replacing any under the same key. The factory (which allocates the
+     * buffer) only runs if the declared size fits the ceilings.
+     * @param peer the sending player for per-peer accounting, or null for none
+     * @return the new transfer, or null if it was refused
+     */
+    @Nullable
+    public synchronized T start(K key, @Nullable UUID peer, long bytes, Supplier<T> factory, long now) {
+        Entry<T> previous = entries.get(key);
+        if (previous != null) drop(key, previous);
+        
+        // Reclaim stalled transfers before refusing
+        if (!fits(peer, bytes)) sweep(now);
+        if (!fits(peer, bytes)) {
+            rejected++;
+            return null;
+        }
+        
+        T value = factory.get();
+        entries.put(key, new Entry<>(value, peer, bytes, now));
+        totalBytes += bytes;
+        if (peer != null) peerBytes.merge(peer, bytes, Long::sum);
+        return value;
+    }
+    
+    /**
+     * Forget a completed transfer whose buffer the caller has taken over
+     */
+    public synchronized void complete(K key) {
+        Entry<T> entry = entries.remove(key);
+        if (entry != null) release(entry);
+    }
+    
+    /**
+     * Discard stalled transfers
+     * @return the number discarded
+     */
+    public synchronized int sweep(long now) {
+        int count = 0;
+        for (Iterator<Map.Entry<K, Entry<T>>> it = entries.entrySet().iterator(); it.hasNext(); ) {
+            Entry<T> entry = it.next().getValue();
+            if (isExpired(entry, now)) {
+                it.remove();
+                release(entry);
+                discard.accept(entry.value);
+                count++;
+            }
+        }
+        expired += count;
+        return count;
+    }
+    
+    /**
+     * Discard everything (e.g. when the server stops)
+     */
+    public synchronized void clear() {
+        for (Entry<T> entry : entries.values()) {
+            discard.accept(entry.value);
+        }
+        entries.clear();
+        peerBytes.clear();
+        totalBytes = 0;
+    }
+    
+    private boolean fits(@Nullable UUID peer, long bytes) {
+        if (bytes <= 0 || bytes > maxPeerBytes || totalBytes + bytes > maxTotalBytes) return false;
+        return peer == null || peerBytes.getOrDefault(peer, 0L) + bytes <= maxPeerBytes;
+    }
+    
+    private boolean isExpired(Entry<T> entry, long now) {
+        return now - entry.lastActivity > idleTimeoutMs || now - entry.created > maxLifetimeMs;
+    }
+    
+    private void drop(K key, Entry<T> entry) {
+        entries.remove(key);
+        release(entry);
+        discard.accept(entry.value);
+    }
+    
+    private void release(Entry<T> entry) {
+        totalBytes -= entry.bytes;
+        if (entry.peer != null) {
+            peerBytes.computeIfPresent(entry.peer, (k, v) -> v - entry.bytes > 0 ? v - entry.bytes : null);
+        }
+    }
+    
+    public synchronized int size() {
+        return entries.size();
+    }
+    
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+    
+    public synchronized long getExpiredCount() {
+        return expired;
+    }
+    
+    public synchronized long getRejectedCount() {
+        return rejected;
+    }
+}
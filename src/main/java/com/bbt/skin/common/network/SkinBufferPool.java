@@ -0,0 +1,64 @@
+package com.bbt.skin.common.network;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Pool of direct buffers for reassembling and decoding received skins.
+ * Buffers come in power-of-two capacities so a freed buffer fits the next skin of
+ * similar size; at most {@link #MAX_POOLED_BYTES} are kept for reuse, the rest are left
+ * to the garbage collector.
+ */
+public final class SkinBufferPool {
+    
+    private static final int MIN_CAPACITY = 16 * 1024;
+    private static final long MAX_POOLED_BYTES = 32L * 1024 * 1024;
+    
+    // Free buffers by log2 of their capacity
+    @SuppressWarnings("unchecked")
+    private static final Deque<ByteBuffer>[] free = new Deque[32];
+    private static long pooledBytes = 0;
+    
+    private SkinBufferPool() {}
+    
+    /**
+     * A direct buffer with position 0 and limit {@code size}
+     */
+    public static synchronized ByteBuffer acquire(int size) {
+        int bucket = bucketFor(size);
+        Deque<ByteBuffer> buffers = free[bucket];
+        ByteBuffer buffer = buffers != null ? buffers.poll() : null;
+        if (buffer != null) {
+            pooledBytes -= buffer.capacity();
+        } else {
+            buffer = ByteBuffer.allocateDirect(1 << bucket);
+        }
+        buffer.clear().limit(size);
+        return buffer;
+    }
+    
+    /**
+     * Return a buffer obtained from {@link #acquire}; it must not be used afterwards
+     */
+    public static synchronized void release(ByteBuffer buffer) {
+        if (buffer == null || !buffer.isDirect()) return;
+        
+        int capacity = buffer.capacity();
+        if (Integer.bitCount(capacity) != 1 || pooledBytes + capacity > MAX_POOLED_BYTES) return;
+        
+        int bucket = Integer.numberOfTrailingZeros(capacity);
+        if (free[bucket] == null) free[bucket] = new ArrayDeque<>();
+        free[bucket].push(buffer);
+        pooledBytes += capacity;
+    }
+    
+    private static int bucketFor(int size) {
+        int capacity = Math.max(MIN_CAPACITY, size);
+        return 32 - Integer.numberOfLeadingZeros(capacity - 1);
+    }
+    
+    public static synchronized long getPooledBytes() {
+        return pooledBytes;
+    }
+}
@@ -0,0 +1,240 @@
+package com.bbt.skin.common.network;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Optional compressed encoding for chunked skin transfers.
+ * Payloads are deflated with a preset dictionary of PNG structure, and only sent
+ * compressed when that actually saves bytes. The payloads are whole PNG files whose image
+ * data is already deflated, so the dictionary covers their headers and chunk framing;
+ * template scanlines only match PNGs written without compression, which deflate well anyway.
+ * Both sides build the same dictionary; peers agree on its use when they connect.
+ */
+public final class SkinCompression {
+    
+    public static final int ENCODING_RAW = 0;
+    public static final int ENCODING_DEFLATE = 1;
+    
+    // Compressed payloads must save at least this share to be worth decoding
+    private static final double MIN_SAVING = 0.03;
+    
+    private static final byte[] DICTIONARY = buildDictionary();
+    
+    private static final AtomicLong attempts = new AtomicLong();
+    private static final AtomicLong used = new AtomicLong();
+    private static final AtomicLong rawBytes = new AtomicLong();
+    private static final AtomicLong encodedBytes = new AtomicLong();
+    private static final AtomicLong compressNanos = new AtomicLong();
+    private static final AtomicLong decompressNanos = new AtomicLong();
+    
+    private SkinCompression() {}
+    
+    /**
+     * Deflate a payload
+     * @return the compressed bytes, or null if compression does not pay off
+     */
+    @Nullable
+    public static byte[] compress(byte[] raw) {
+        long start = System.nanoTime();
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        byte[] result;
+        try {
+            deflater.setDictionary(DICTIONARY);
+            deflater.setInput(raw);
+            deflater.finish();
+            
+            ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 2 + 64);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(buffer);
+                out.write(buffer, 0, n);
+                if (out.size() >= raw.length) break;
+            }
+            result = deflater.finished() ? out.toByteArray() : null;
+        } finally {
+            deflater.end();
+        }
+        compressNanos.addAndGet(System.nanoTime() - start);
+        attempts.incrementAndGet();
+        
+        if (result == null || result.length > raw.length * (1.0 - MIN_SAVING)) {
+            rawBytes.addAndGet(raw.length);
+            encodedBytes.addAndGet(raw.length);
+            return null;
+        }
+        used.incrementAndGet();
+        rawBytes.addAndGet(raw.length);
+        encodedBytes.addAndGet(result.length);
+        return result;
+    }
+    
+    /**
+     * Inflate a payload of known original size
+     * @return the original bytes, or null if the data is corrupt or larger than announced
+     */
+    @Nullable
+    public static byte[] decompress(byte[] data, int rawSize) {
+        if (rawSize <= 0 || rawSize > NetworkConstants.MAX_SKIN_SIZE) return null;
+        
+        ByteBuffer result = ByteBuffer.wrap(new byte[rawSize]);
+        return inflate(ByteBuffer.wrap(data), result) ? result.array() : null;
+    }
+    
+    /**
+     * Inflate into {@code output} until it is full; the stream must end exactly there
+     */
+    private static boolean inflate(ByteBuffer input, ByteBuffer output) {
+        long start = System.nanoTime();
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(input);
+            while (output.hasRemaining() && !inflater.finished()) {
+                int n = inflater.inflate(output);
+                if (n == 0) {
+                    if (inflater.needsDictionary()) {
+                        inflater.setDictionary(DICTIONARY);
+                    } else if (!inflater.finished()) {
+                        // Truncated stream
+                        return false;
+                    }
+                }
+            }
+            // Exactly the announced size, with nothing left over
+            if (output.hasRemaining()) return false;
+            return inflater.finished() || (inflater.inflate(new byte[1]) == 0 && inflater.finished());
+        } catch (DataFormatException e) {
+            return false;
+        } finally {
+            inflater.end();
+            decompressNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+    
+    /**
+     * Check the sizes a transfer declares before anything is allocated for it
+     */
+    public static boolean isValidPayload(int encoding, int payloadSize, int rawSize) {
+        if (payloadSize <= 0 || payloadSize > NetworkConstants.MAX_SKIN_SIZE) return false;
+        return switch (encoding) {
+            case ENCODING_RAW -> rawSize == payloadSize;
+            case ENCODING_DEFLATE -> rawSize > 0 && rawSize <= NetworkConstants.MAX_SKIN_SIZE;
+            default -> false;
+        };
+    }
+    
+    /**
+     * Restore a reassembled payload sent with the given encoding
+     * @return the original bytes, or null if they cannot be decoded
+     */
+    @Nullable
+    public static byte[] decode(byte[] payload, int encoding, int rawSize) {
+        return switch (encoding) {
+            case ENCODING_RAW -> payload;
+            case ENCODING_DEFLATE -> decompress(payload, rawSize);
+            default -> null;
+        };
+    }
+    
+    /**
+     * Restore a payload reassembled in a pooled direct buffer, without copying raw payloads.
+     * The payload buffer is consumed: it is either returned or released to the pool.
+     * @return a pooled direct buffer holding the original bytes (flipped for reading),
+     *         or null if they cannot be decoded
+     */
+    @Nullable
+    public static ByteBuffer decodeDirect(ByteBuffer payload, int encoding, int rawSize) {
+        if (encoding == ENCODING_RAW) return payload;
+        
+        ByteBuffer result = null;
+        if (encoding == ENCODING_DEFLATE && rawSize > 0 && rawSize <= NetworkConstants.MAX_SKIN_SIZE) {
+            result = SkinBufferPool.acquire(rawSize);
+            if (inflate(payload, result)) {
+                result.flip();
+            } else {
+                SkinBufferPool.release(result);
+                result = null;
+            }
+        }
+        SkinBufferPool.release(payload);
+        return result;
+    }
+    
+    /**
+     * Preset dictionary: PNG signature, IHDR chunks of common skin sizes, frequent chunk
+     * headers, and one transparent template scanline for PNGs stored without compression
+     */
+    private static byte[] buildDictionary() {
+        ByteBuffer buf = ByteBuffer.allocate(4096);
+        
+        // Transparent template scanline (filter byte + RGBA), far end of the window
+        buf.put((byte) 0);
+        buf.put(new byte[64 * 4]);
+        
+        for (String name : new String[] { "tEXtSoftware\0", "pHYs", "gAMA", "sRGB", "iCCPICC Profile\0", "IDAT" }) {
+            buf.putInt(0);
+            buf.put(name.getBytes(StandardCharsets.ISO_8859_1));
+        }
+        
+        // IHDR for 64x32 legacy skins and square HD sizes, 8-bit RGBA
+        int[][] sizes = { { 64, 32 }, { 1024, 1024 }, { 512, 512 }, { 256, 256 }, { 128, 128 }, { 64, 64 } };
+        for (int[] size : sizes) {
+            buf.put(new byte[] { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n' });
+            putChunk(buf, "IHDR", ByteBuffer.allocate(13)
+                    .putInt(size[0]).putInt(size[1])
+                    .put((byte) 8).put((byte) 6).put((byte) 0).put((byte) 0).put((byte) 0)
+                    .array());
+        }
+        
+        // IEND closes every PNG
+        putChunk(buf, "IEND", new byte[0]);
+        
+        byte[] dictionary = new byte[buf.position()];
+        buf.flip();
+        buf.get(dictionary);
+        return dictionary;
+    }
+    
+    private static void putChunk(ByteBuffer buf, String type, byte[] data) {
+        byte[] typeBytes = type.getBytes(StandardCharsets.ISO_8859_1);
+        CRC32 crc = new CRC32();
+        crc.update(typeBytes);
+        crc.update(data);
+        buf.putInt(data.length);
+        buf.put(typeBytes);
+        buf.put(data);
+        buf.putInt((int) crc.getValue());
+    }
+    
+    public static long getAttempts() {
+        return attempts.get();
+    }
+    
+    public static long getCompressedCount() {
+        return used.get();
+    }
+    
+    public static long getRawBytes() {
+        return rawBytes.get();
+    }
+    
+    public static long getEncodedBytes() {
+        return encodedBytes.get();
+    }
+    
+    public static long getCompressMillis() {
+        return compressNanos.get() / 1_000_000;
+    }
+    
+    public static long getDecompressMillis() {
+        return decompressNanos.get() / 1_000_000;
+    }
+}
@@ -0,0 +1,109 @@
+package com.bbt.skin.common.network;
+
+import com.bbt.skin.BBTSkin;
+import com.bbt.skin.common.data.SkinHashing;
+import com.bbt.skin.common.network.packet.SkinChunkPacket;
+
+/**
+ * The client's chunked upload of its own skin, paced by the server's acknowledgements.
+ * Only one upload runs at a time; starting a new one replaces it. The server keeps
+ * partial uploads across reconnects, so re-uploading the same payload (same hash) resumes it.
+ * Accessed from the client thread only.
+ */
+public class SkinUploadSession {
+    
+    private static SkinUploadSession current = null;
+    
+    private final String skinId;
+    private final String skinName;
+    private final boolean slim;
+    private final int width;
+    private final int height;
+    private final byte[] payload;
+    private final int encoding;
+    private final int rawSize;
+    // SHA-256 of the payload, sent with every chunk
+    private final byte[] payloadHash;
+    private final ChunkSendWindow window;
+    
+    private SkinUploadSession(String skinId, String skinName, boolean slim, int width, int height,
+                              byte[] payload, int encoding, int rawSize) {
+        this.skinId = skinId;
+        this.skinName = skinName;
+        this.slim = slim;
+        this.width = width;
+        this.height = height;
+        this.payload = payload;
+        this.encoding = encoding;
+        this.rawSize = rawSize;
+        this.payloadHash = SkinHashing.digest(payload);
+        int totalChunks = (int) Math.ceil((double) payload.length / SkinChunkPacket.MAX_CHUNK_SIZE);
+        this.window = new ChunkSendWindow(totalChunks, System.currentTimeMillis());
+    }
+    
+    /**
+     * Start uploading a chunked payload, replacing any upload in progress
+     */
+    public static void start(String skinId, String skinName, boolean slim, int width, int height,
+                             byte[] payload, int encoding, int rawSize) {
+        current = new SkinUploadSession(skinId, skinName, slim, width, height, payload, encoding, rawSize);
+        BBTSkin.LOGGER.info("Sending skin {} in {} chunks ({} bytes)", skinName,
+                current.window.getTotalChunks(), payload.length);
+        current.pump();
+    }
+    
+    /**
+     * The server acknowledged chunks of our upload
+     */
+    public static void handleAck(String skinId, int received, int[] missing) {
+        SkinUploadSession session = current;
+        if (session == null || !session.skinId.equals(skinId)) return;
+        
+        session.window.onAck(received, missing, System.currentTimeMillis());
+        if (session.window.isDone()) {
+            if (session.window.getResumed() > 0) {
+                BBTSkin.LOGGER.info("Upload of skin {} resumed, {} chunks were already on the server",
+                        session.skinName, session.window.getResumed());
+            }
+            current = null;
+            return;
+        }
+        session.pump();
+    }
+    
+    /**
+     * Resend chunks the server did not acknowledge in time (called every client tick)
+     */
+    public static void tick() {
+        SkinUploadSession session = current;
+        if (session == null) return;
+        
+        if (!session.window.checkTimeout(System.currentTimeMillis())) {
+            BBTSkin.LOGGER.warn("Giving up on upload of skin {}: server stopped acknowledging", session.skinName);
+            current = null;
+            return;
+        }
+        session.pump();
+    }
+    
+    /**
+     * Drop the upload (disconnect); the server keeps what it received for a later resume
+     */
+    public static void cancel() {
+        current = null;
+    }
+    
+    private void pump() {
+        while (window.canSend()) {
+            int index = window.next(System.currentTimeMillis());
+            int offset = index * SkinChunkPacket.MAX_CHUNK_SIZE;
+            int length = Math.min(SkinChunkPacket.MAX_CHUNK_SIZE, payload.length - offset);
+            
+            byte[] chunkData = new byte[length];
+            System.arraycopy(payload, offset, chunkData, 0, length);
+            
+            NetworkHandler.sendToServer(new SkinChunkPacket(skinId, skinName, slim, width, height,
+                    payload.length, index, window.getTotalChunks(), encoding, rawSize, payloadHash, chunkData));
+        }
+    }
+}
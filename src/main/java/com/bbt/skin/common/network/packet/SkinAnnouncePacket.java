@@ -0,0 +1,105 @@
+package com.bbt.skin.common.network.packet;
+
+import com.bbt.skin.BBTSkin;
+import com.bbt.skin.client.BBTSkinClient;
+import com.bbt.skin.common.network.NetworkConstants;
+import com.bbt.skin.common.network.NetworkHandler;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraftforge.api.distmarker.Dist;
+import net.minecraftforge.fml.DistExecutor;
+import net.minecraftforge.network.NetworkEvent;
+
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Packet sent from server to client announcing a player's skin by content hash.
+ * The client answers with a {@link SkinAnnounceReplyPacket}; image bytes follow only if it needs them.
+ * When the server already knows the client lacks the image it sends the bytes right away
+ * ({@code dataFollows}) and no reply is expected.
+ */
+public class SkinAnnouncePacket {
+    
+    private final String playerUUID;
+    private final String skinHash;
+    private final int size;
+    private final boolean slim;
+    private final String skinName;
+    private final int width;
+    private final int height;
+    private final boolean dataFollows;
+    
+    public SkinAnnouncePacket(String playerUUID, String skinHash, int size,
+                              boolean slim, String skinName, int width, int height, boolean dataFollows) {
+        this.playerUUID = playerUUID;
+        this.skinHash = skinHash;
+        this.size = size;
+        this.slim = slim;
+        this.skinName = skinName;
+        this.width = width;
+        this.height = height;
+        this.dataFollows = dataFollows;
+    }
+    
+    public static void encode(SkinAnnouncePacket packet, FriendlyByteBuf buf) {
+        buf.writeUtf(packet.playerUUID, NetworkConstants.MAX_STRING_LENGTH);
+        buf.writeUtf(packet.skinHash, NetworkConstants.MAX_STRING_LENGTH);
+        buf.writeInt(packet.size);
+        buf.writeBoolean(packet.slim);
+        buf.writeUtf(packet.skinName, NetworkConstants.MAX_STRING_LENGTH);
+        buf.writeInt(packet.width);
+        buf.writeInt(packet.height);
+        buf.writeBoolean(packet.dataFollows);
+    }
+    
+    public static SkinAnnouncePacket decode(FriendlyByteBuf buf) {
+        return new SkinAnnouncePacket(
+                buf.readUtf(NetworkConstants.MAX_STRING_LENGTH),
+                buf.readUtf(NetworkConstants.MAX_STRING_LENGTH),
+                buf.readInt(),
+                buf.readBoolean(),
+                buf.readUtf(NetworkConstants.MAX_STRING_LENGTH),
+                buf.readInt(),
+                buf.readInt(),
+                buf.readBoolean()
+        );
+    }
+    
+    public static void handle(SkinAnnouncePacket packet, Supplier<NetworkEvent.Context> ctx) {
+        ctx.get().enqueueWork(() -> {
+            // Handle on client side only
+            DistExecutor.unsafeRunWhenOn(Dist.CLIENT, () -> () -> handleClient(packet));
+        });
+        ctx.get().setPacketHandled(true);
+    }
+    
+    private static void handleClient(SkinAnnouncePacket packet) {
+        try {
+            UUID uuid = UUID.fromString(packet.playerUUID);
+            BBTSkinClient.getInstance().handleSkinAnnounce(uuid, packet.skinHash,
+                    packet.slim, packet.skinName, packet.width, packet.height, have -> {
+                        if (!packet.dataFollows) {
+                            NetworkHandler.sendToServer(new SkinAnnounceReplyPacket(packet.playerUUID,
+                                    packet.skinHash, have));
+                        }
+                        
+                        if (have) {
+                            BBTSkin.LOGGER.debug("Reused cached skin for player {} ({} bytes saved)",
+                                    packet.playerUUID, packet.size);
+                        }
+                    });
+        } catch (IllegalArgumentException e) {
+            BBTSkin.LOGGER.warn("Invalid UUID in skin announce: {}", packet.playerUUID);
+        }
+    }
+    
+    // Getters
+    public String getPlayerUUID() { return playerUUID; }
+    public String getSkinHash() { return skinHash; }
+    public int getSize() { return size; }
+    public boolean isSlim() { return slim; }
+    public String getSkinName() { return skinName; }
+    public int getWidth() { return width; }
+    public int getHeight() { return height; }
+    public boolean isDataFollows() { return dataFollows; }
+}
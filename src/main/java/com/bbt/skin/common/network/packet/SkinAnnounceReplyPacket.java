@@ -0,0 +1,54 @@
+package com.bbt.skin.common.network.packet;
+
+import com.bbt.skin.common.network.NetworkConstants;
+import com.bbt.skin.server.network.ServerSkinHandler;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraftforge.network.NetworkEvent;
+
+import java.util.function.Supplier;
+
+/**
+ * Packet sent from client to server answering a {@link SkinAnnouncePacket}:
+ * either the client already holds the image ("have it") or the server should send it
+ */
+public class SkinAnnounceReplyPacket {
+    
+    private final String playerUUID;
+    private final String skinHash;
+    private final boolean have;
+    
+    public SkinAnnounceReplyPacket(String playerUUID, String skinHash, boolean have) {
+        this.playerUUID = playerUUID;
+        this.skinHash = skinHash;
+        this.have = have;
+    }
+    
+    public static void encode(SkinAnnounceReplyPacket packet, FriendlyByteBuf buf) {
+        buf.writeUtf(packet.playerUUID, NetworkConstants.MAX_STRING_LENGTH);
+        buf.writeUtf(packet.skinHash, NetworkConstants.MAX_STRING_LENGTH);
+        buf.writeBoolean(packet.have);
+    }
+    
+    public static SkinAnnounceReplyPacket decode(FriendlyByteBuf buf) {
+        return new SkinAnnounceReplyPacket(
+                buf.readUtf(NetworkConstants.MAX_STRING_LENGTH),
+                buf.readUtf(NetworkConstants.MAX_STRING_LENGTH),
+                buf.readBoolean()
+        );
+    }
+    
+    public static void handle(SkinAnnounceReplyPacket packet, Supplier<NetworkEvent.Context> ctx) {
+        ctx.get().enqueueWork(() -> {
+            ServerPlayer player = ctx.get().getSender();
+            if (player != null) {
+                ServerSkinHandler.handleAnnounceReply(player, packet.playerUUID, packet.skinHash, packet.have);
+            }
+        });
+        ctx.get().setPacketHandled(true);
+    }
+    
+    public String getPlayerUUID() { return playerUUID; }
+    public String getSkinHash() { return skinHash; }
+    public boolean isHave() { return have; }
+}
@@ -0,0 +1,65 @@
+package com.bbt.skin.common.network.packet;
+
+import com.bbt.skin.server.network.PacketRateLimiter;
+import com.bbt.skin.server.network.ServerSkinHandler;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraftforge.network.NetworkEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Packet sent from client to server to request the skins of several players at once,
+ * e.g. everyone in the tab list. Only sent to servers that list
+ * {@link SkinCapabilitiesPacket#FEATURE_BATCH_REQUESTS}; counts as one request for rate limiting.
+ */
+public class SkinBatchRequestPacket {
+
+    public static final int MAX_TARGETS = 64;
+
+    private final List<UUID> targets;
+
+    public SkinBatchRequestPacket(List<UUID> targets) {
+        this.targets = targets;
+    }
+
+    public static void encode(SkinBatchRequestPacket packet, FriendlyByteBuf buf) {
+        int count = Math.min(packet.targets.size(), MAX_TARGETS);
+        buf.writeVarInt(count);
+        for (int i = 0; i < count; i++) {
+            buf.writeUUID(packet.targets.get(i));
+        }
+    }
+
+    public static SkinBatchRequestPacket decode(FriendlyByteBuf buf) {
+        int count = buf.readVarInt();
+        if (count < 0 || count > MAX_TARGETS) {
+            throw new IllegalArgumentException("Too many players in skin request: " + count);
+        }
+
+        List<UUID> targets = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            targets.add(buf.readUUID());
+        }
+        return new SkinBatchRequestPacket(targets);
+    }
+
+    public static void handle(SkinBatchRequestPacket packet, Supplier<NetworkEvent.Context> ctx) {
+        ctx.get().enqueueWork(() -> {
+            ServerPlayer player = ctx.get().getSender();
+            if (player != null && ServerSkinHandler.checkRateLimit(player, PacketRateLimiter.Kind.REQUEST)) {
+                for (UUID target : packet.targets) {
+                    ServerSkinHandler.handleSkinRequest(player, target);
+                }
+            }
+        });
+        ctx.get().setPacketHandled(true);
+    }
+
+    public List<UUID> getTargets() {
+        return targets;
+    }
+}
@@ -0,0 +1,93 @@
+package com.bbt.skin.common.network.packet;
+
+import com.bbt.skin.client.BBTSkinClient;
+import com.bbt.skin.common.config.BBTSkinConfig;
+import com.bbt.skin.server.network.ServerSkinHandler;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraftforge.api.distmarker.Dist;
+import net.minecraftforge.fml.DistExecutor;
+import net.minecraftforge.network.NetworkEvent;
+
+import java.util.function.Supplier;
+
+/**
+ * Optional transfer features supported by one side of a connection.
+ * The client sends its set after joining and the server answers with its own;
+ * a feature is used only when both sides list it.
+ * The resolution is the largest skin width the sender wants: the client's preferred
+ * display resolution, or the largest upload the server accepts. The chunk size is the
+ * largest chunk payload the sender accepts.
+ * Fields are only ever appended; a peer that sends fewer gets the defaults, so builds
+ * with more capabilities can mix with older ones of the same protocol version.
+ */
+public class SkinCapabilitiesPacket {
+    
+    // Chunked payloads may be deflated (see SkinCompression)
+    public static final int FEATURE_DEFLATE = 1;
+    // Chunked downloads use SkinTransferBeginPacket and SkinTransferChunkPacket
+    public static final int FEATURE_COMPACT_CHUNKS = 1 << 1;
+    // Skins of several players are requested with one SkinBatchRequestPacket
+    public static final int FEATURE_BATCH_REQUESTS = 1 << 2;
+    
+    private final int features;
+    private final int maxResolution;
+    private final int maxChunkSize;
+    
+    public SkinCapabilitiesPacket(int features, int maxResolution, int maxChunkSize) {
+        this.features = features;
+        this.maxResolution = maxResolution;
+        this.maxChunkSize = maxChunkSize;
+    }
+    
+    /**
+     * Features this side is configured to use
+     */
+    public static int localFeatures() {
+        int features = FEATURE_COMPACT_CHUNKS | FEATURE_BATCH_REQUESTS;
+        if (BBTSkinConfig.get().isTransferCompressionEnabled()) {
+            features |= FEATURE_DEFLATE;
+        }
+        return features;
+    }
+    
+    public static void encode(SkinCapabilitiesPacket packet, FriendlyByteBuf buf) {
+        buf.writeVarInt(packet.features);
+        buf.writeVarInt(packet.maxResolution);
+        buf.writeVarInt(packet.maxChunkSize);
+    }
+    
+    public static SkinCapabilitiesPacket decode(FriendlyByteBuf buf) {
+        int features = buf.readVarInt();
+        int maxResolution = buf.readVarInt();
+        // Peers without chunk size negotiation use the fixed chunk size
+        int maxChunkSize = buf.isReadable() ? buf.readVarInt() : SkinResponseChunkPacket.MAX_CHUNK_SIZE;
+        return new SkinCapabilitiesPacket(features, maxResolution, maxChunkSize);
+    }
+    
+    public static void handle(SkinCapabilitiesPacket packet, Supplier<NetworkEvent.Context> ctx) {
+        ctx.get().enqueueWork(() -> {
+            ServerPlayer player = ctx.get().getSender();
+            if (player != null) {
+                ServerSkinHandler.handleClientCapabilities(player, packet.features, packet.maxResolution,
+                        packet.maxChunkSize);
+            } else {
+                DistExecutor.unsafeRunWhenOn(Dist.CLIENT, () -> () -> BBTSkinClient.handleServerCapabilities(
+                        packet.features, packet.maxResolution, packet.maxChunkSize));
+            }
+        });
+        ctx.get().setPacketHandled(true);
+    }
+    
+    public int getFeatures() {
+        return features;
+    }
+    
+    public int getMaxResolution() {
+        return maxResolution;
+    }
+    
+    public int getMaxChunkSize() {
+        return maxChunkSize;
+    }
+}
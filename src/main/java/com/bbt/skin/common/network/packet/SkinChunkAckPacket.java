@@ -0,0 +1,77 @@
+package com.bbt.skin.common.network.packet;
+
+import com.bbt.skin.common.network.NetworkConstants;
+import com.bbt.skin.common.network.SkinUploadSession;
+import com.bbt.skin.server.network.ServerSkinHandler;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraftforge.network.NetworkEvent;
+
+import java.util.function.Supplier;
+
+/**
+ * Acknowledges chunks of a transfer in either direction (see ChunkSendWindow).
+ * The client acknowledges {@link SkinResponseChunkPacket}s of an owner's skin; the server
+ * acknowledges the client's own upload, with an empty owner.
+ */
+public class SkinChunkAckPacket {
+    
+    // Bound on missing chunk indices in one packet
+    private static final int MAX_MISSING = 64;
+    
+    private final String playerUUID;
+    private final String skinId;
+    private final int received;
+    private final int[] missing;
+    
+    public SkinChunkAckPacket(String playerUUID, String skinId, int received, int[] missing) {
+        this.playerUUID = playerUUID;
+        this.skinId = skinId;
+        this.received = received;
+        this.missing = missing;
+    }
+    
+    public static void encode(SkinChunkAckPacket packet, FriendlyByteBuf buf) {
+        buf.writeUtf(packet.playerUUID, NetworkConstants.MAX_STRING_LENGTH);
+        buf.writeUtf(packet.skinId, NetworkConstants.MAX_STRING_LENGTH);
+        buf.writeVarInt(packet.received);
+        int count = Math.min(packet.missing.length, MAX_MISSING);
+        buf.writeVarInt(count);
+        for (int i = 0; i < count; i++) {
+            buf.writeVarInt(packet.missing[i]);
+        }
+    }
+    
+    public static SkinChunkAckPacket decode(FriendlyByteBuf buf) {
+        String playerUUID = buf.readUtf(NetworkConstants.MAX_STRING_LENGTH);
+        String skinId = buf.readUtf(NetworkConstants.MAX_STRING_LENGTH);
+        int received = buf.readVarInt();
+        int count = buf.readVarInt();
+        if (count < 0 || count > MAX_MISSING) {
+            throw new IllegalArgumentException("Too many missing chunks in ack: " + count);
+        }
+        int[] missing = new int[count];
+        for (int i = 0; i < count; i++) {
+            missing[i] = buf.readVarInt();
+        }
+        return new SkinChunkAckPacket(playerUUID, skinId, received, missing);
+    }
+    
+    public static void handle(SkinChunkAckPacket packet, Supplier<NetworkEvent.Context> ctx) {
+        ctx.get().enqueueWork(() -> {
+            ServerPlayer player = ctx.get().getSender();
+            if (player != null) {
+                ServerSkinHandler.handleChunkAck(player, packet.playerUUID, packet.skinId,
+                        packet.received, packet.missing);
+            } else {
+                SkinUploadSession.handleAck(packet.skinId, packet.received, packet.missing);
+            }
+        });
+        ctx.get().setPacketHandled(true);
+    }
+    
+    public String getPlayerUUID() { return playerUUID; }
+    public String getSkinId() { return skinId; }
+    public int getReceived() { return received; }
+    public int[] getMissing() { return missing; }
+}
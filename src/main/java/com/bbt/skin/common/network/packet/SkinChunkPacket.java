@@ -1,28 +1,47 @@
 package com.bbt.skin.common.network.packet;
 
 import com.bbt.skin.BBTSkin;
+import com.bbt.skin.common.config.BBTSkinConfig;
+import com.bbt.skin.common.data.SkinHashing;
+import com.bbt.skin.common.network.ChunkReceiveState;
 import com.bbt.skin.common.network.NetworkConstants;
+import com.bbt.skin.common.network.NetworkHandler;
+import com.bbt.skin.common.network.ReassemblyManager;
+import com.bbt.skin.common.network.SkinCompression;
+import com.bbt.skin.server.network.PacketRateLimiter;
 import com.bbt.skin.server.network.ServerSkinHandler;
 import net.minecraft.network.FriendlyByteBuf;
 import net.minecraft.server.level.ServerPlayer;
 import net.minecraftforge.network.NetworkEvent;
 
-import java.util.Map;
+import java.security.MessageDigest;
+import java.util.Arrays;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Supplier;
 
 /**
  * Packet for sending large skin data in chunks (client -> server)
  * Minecraft's packet limit is 32KB, so we chunk larger skins.
+ * Each chunk carries a CRC32C; the server acknowledges chunks with {@link SkinChunkAckPacket}
+ * and keeps partial uploads across reconnects so they can be resumed, within the memory
+ * ceilings and deadlines of a {@link ReassemblyManager}.
+ * Chunks also carry the SHA-256 of the whole payload: an upload only resumes with chunks
+ * of the same payload, and the reassembled payload is checked against it.
  */
 public class SkinChunkPacket {
     
     // Max chunk size - leave room for headers (use 28KB to be safe)
     public static final int MAX_CHUNK_SIZE = 28000;
     
-    // Pending uploads on server
-    private static final Map<UUID, PendingUpload> pendingUploads = new ConcurrentHashMap<>();
+    // Pending uploads on server, one per player
+    private static final ReassemblyManager<UUID, PendingUpload> pendingUploads = new ReassemblyManager<>(
+            Math.max(1, BBTSkinConfig.get().getReassemblyBufferMb()) * 1024L * 1024L,
+            NetworkConstants.MAX_SKIN_SIZE,
+            NetworkConstants.REASSEMBLY_IDLE_TIMEOUT,
+            NetworkConstants.REASSEMBLY_MAX_LIFETIME,
+            // Heap buffers need no returning, and the Netty thread may still be writing to one
+            upload -> { });
+    private static long lastSweep = 0;
     
     private final String skinId;
     private final String skinName;
@@ -32,10 +51,24 @@ public class SkinChunkPacket {
     private final int totalSize;
     private final int chunkIndex;
     private final int totalChunks;
+    private final int encoding;
+    private final int rawSize;
+    // SHA-256 of the whole payload
+    private final byte[] payloadHash;
     private final byte[] chunkData;
+    // CRC32C of chunkData as sent
+    private final int checksum;
     
     public SkinChunkPacket(String skinId, String skinName, boolean slim, int width, int height,
-                          int totalSize, int chunkIndex, int totalChunks, byte[] chunkData) {
+                          int totalSize, int chunkIndex, int totalChunks, int encoding, int rawSize,
+                          byte[] payloadHash, byte[] chunkData) {
+        this(skinId, skinName, slim, width, height, totalSize, chunkIndex, totalChunks, encoding, rawSize,
+                payloadHash, chunkData, ChunkReceiveState.checksum(chunkData));
+    }
+    
+    private SkinChunkPacket(String skinId, String skinName, boolean slim, int width, int height, int totalSize,
+                           int chunkIndex, int totalChunks, int encoding, int rawSize, byte[] payloadHash,
+                           byte[] chunkData, int checksum) {
         this.skinId = skinId;
         this.skinName = skinName;
         this.slim = slim;
@@ -44,7 +77,11 @@ public class SkinChunkPacket {
         this.totalSize = totalSize;
         this.chunkIndex = chunkIndex;
         this.totalChunks = totalChunks;
+        this.encoding = encoding;
+        this.rawSize = rawSize;
+        this.payloadHash = payloadHash;
         this.chunkData = chunkData;
+        this.checksum = checksum;
     }
     
     public static void encode(SkinChunkPacket packet, FriendlyByteBuf buf) {
@@ -56,8 +93,12 @@ public class SkinChunkPacket {
         buf.writeInt(packet.totalSize);
         buf.writeInt(packet.chunkIndex);
         buf.writeInt(packet.totalChunks);
+        buf.writeByte(packet.encoding);
+        buf.writeInt(packet.rawSize);
+        buf.writeBytes(packet.payloadHash);
         buf.writeInt(packet.chunkData.length);
         buf.writeBytes(packet.chunkData);
+        buf.writeInt(packet.checksum);
     }
     
     public static SkinChunkPacket decode(FriendlyByteBuf buf) {
@@ -69,56 +110,104 @@ public class SkinChunkPacket {
         int totalSize = buf.readInt();
         int chunkIndex = buf.readInt();
         int totalChunks = buf.readInt();
+        int encoding = buf.readByte();
+        int rawSize = buf.readInt();
+        byte[] payloadHash = new byte[SkinHashing.DIGEST_LENGTH];
+        buf.readBytes(payloadHash);
         int chunkLen = buf.readInt();
         
-        byte[] chunkData = new byte[Math.min(chunkLen, MAX_CHUNK_SIZE + 1000)];
+        if (chunkLen < 0 || chunkLen > MAX_CHUNK_SIZE) {
+            throw new IllegalArgumentException("Invalid skin chunk length: " + chunkLen);
+        }
+        
+        byte[] chunkData = new byte[chunkLen];
         buf.readBytes(chunkData);
+        int checksum = buf.readInt();
         
         return new SkinChunkPacket(skinId, skinName, slim, width, height,
-                totalSize, chunkIndex, totalChunks, chunkData);
+                totalSize, chunkIndex, totalChunks, encoding, rawSize, payloadHash, chunkData, checksum);
     }
     
     public static void handle(SkinChunkPacket packet, Supplier<NetworkEvent.Context> ctx) {
-        ctx.get().enqueueWork(() -> {
-            ServerPlayer player = ctx.get().getSender();
-            if (player == null) return;
-            
-            UUID playerUUID = player.getUUID();
-            
-            // Get or create pending upload
-            PendingUpload pending = pendingUploads.computeIfAbsent(playerUUID,
-                    k -> new PendingUpload(packet.skinId, packet.skinName, packet.slim,
-                            packet.width, packet.height, packet.totalSize, packet.totalChunks));
-            
-            // If skinId changed, start fresh
-            if (!pending.skinId.equals(packet.skinId)) {
-                pending = new PendingUpload(packet.skinId, packet.skinName, packet.slim,
-                        packet.width, packet.height, packet.totalSize, packet.totalChunks);
-                pendingUploads.put(playerUUID, pending);
+        // Reassembled on the Netty thread: one connection's packets arrive in order on one thread,
+        // so a pending upload is only ever touched by that thread
+        ctx.get().setPacketHandled(true);
+        ServerPlayer player = ctx.get().getSender();
+        if (player == null || !ServerSkinHandler.checkRateLimit(player, PacketRateLimiter.Kind.UPLOAD_CHUNK)) return;
+        
+        UUID playerUUID = player.getUUID();
+        // Check the declared sizes before anything is allocated for them
+        if (!ChunkReceiveState.isValidLayout(packet.totalSize, packet.totalChunks, MAX_CHUNK_SIZE)
+                || !SkinCompression.isValidPayload(packet.encoding, packet.totalSize, packet.rawSize)) {
+            BBTSkin.LOGGER.warn("Ignoring skin chunk with invalid sizes from {}", player.getName().getString());
+            return;
+        }
+        
+        // Get or create pending upload
+        long now = System.currentTimeMillis();
+        PendingUpload pending = pendingUploads.get(playerUUID, now);
+        
+        // If the payload changed, start fresh; otherwise this may resume an interrupted upload
+        if (pending == null || !pending.matches(packet)) {
+            // A new upload counts as a sync; it is broadcast once complete
+            if (!ServerSkinHandler.checkRateLimit(player, PacketRateLimiter.Kind.SYNC)) return;
+            pending = pendingUploads.start(playerUUID, playerUUID, packet.totalSize,
+                    () -> new PendingUpload(packet.skinId, packet.skinName, packet.slim,
+                            packet.width, packet.height, packet.totalSize, packet.totalChunks,
+                            packet.encoding, packet.rawSize, packet.payloadHash), now);
+            if (pending == null) {
+                BBTSkin.LOGGER.debug("Refusing skin upload from {}: reassembly memory is full",
+                        player.getName().getString());
+                return;
             }
+        }
+        
+        // Add chunk
+        ChunkReceiveState.Outcome outcome = pending.chunks.accept(packet.chunkIndex, packet.chunkData, packet.checksum);
+        if (outcome == ChunkReceiveState.Outcome.CORRUPT) {
+            BBTSkin.LOGGER.warn("Chunk {} of skin '{}' from {} failed its checksum",
+                    packet.chunkIndex, packet.skinName, player.getName().getString());
+        }
+        if (pending.chunks.shouldAck(outcome, packet.chunkIndex)) {
+            NetworkHandler.sendToPlayer(new SkinChunkAckPacket("", pending.skinId,
+                    pending.chunks.markAcked(), pending.chunks.missing()), player);
+        }
+        
+        BBTSkin.LOGGER.debug("Received chunk {}/{} for skin '{}' from {}",
+                packet.chunkIndex + 1, packet.totalChunks, packet.skinName, 
+                player.getName().getString());
+        
+        // Check if complete
+        if (pending.chunks.isComplete()) {
+            pendingUploads.complete(playerUUID);
+            BBTSkin.LOGGER.info("Assembled skin '{}' ({} bytes) from {} chunks",
+                    pending.skinName, pending.totalSize, pending.totalChunks);
             
-            // Add chunk
-            pending.addChunk(packet.chunkIndex, packet.chunkData);
-            
-            BBTSkin.LOGGER.debug("Received chunk {}/{} for skin '{}' from {}",
-                    packet.chunkIndex + 1, packet.totalChunks, packet.skinName, 
-                    player.getName().getString());
-            
-            // Check if complete
-            if (pending.isComplete()) {
-                byte[] fullData = pending.assemble();
-                if (fullData != null) {
-                    BBTSkin.LOGGER.info("Assembled skin '{}' ({} bytes) from {} chunks",
-                            pending.skinName, fullData.length, pending.totalChunks);
-                    
-                    // Process complete skin
-                    ServerSkinHandler.handleSkinSync(player, pending.skinId, fullData,
-                            pending.slim, pending.skinName, pending.width, pending.height);
-                }
-                pendingUploads.remove(playerUUID);
-            }
-        });
-        ctx.get().setPacketHandled(true);
+            // Inflating is left to the ingest workers along with the rest of processing
+            ServerSkinHandler.handleSkinSync(player, pending.assembler(), pending.totalSize,
+                    pending.slim, pending.skinName);
+        }
+    }
+    
+    /**
+     * Discard stalled uploads, at most once a second (called every server tick)
+     */
+    public static void sweepPendingUploads() {
+        long now = System.currentTimeMillis();
+        if (now - lastSweep < 1000) return;
+        lastSweep = now;
+        
+        int expired = pendingUploads.sweep(now);
+        if (expired > 0) {
+            BBTSkin.LOGGER.debug("Discarded {} stalled skin uploads", expired);
+        }
+    }
+    
+    /**
+     * Partial uploads (for status reporting)
+     */
+    public static ReassemblyManager<?, ?> getPendingUploads() {
+        return pendingUploads;
     }
     
     /**
@@ -132,11 +221,13 @@ public class SkinChunkPacket {
         final int height;
         final int totalSize;
         final int totalChunks;
-        final byte[][] chunks;
-        int receivedCount = 0;
+        final int encoding;
+        final int rawSize;
+        final byte[] payloadHash;
+        final ChunkReceiveState chunks;
         
         PendingUpload(String skinId, String skinName, boolean slim, int width, int height,
-                     int totalSize, int totalChunks) {
+                     int totalSize, int totalChunks, int encoding, int rawSize, byte[] payloadHash) {
             this.skinId = skinId;
             this.skinName = skinName;
             this.slim = slim;
@@ -144,35 +235,36 @@ public class SkinChunkPacket {
             this.height = height;
             this.totalSize = totalSize;
             this.totalChunks = totalChunks;
-            this.chunks = new byte[totalChunks][];
-        }
-        
-        void addChunk(int index, byte[] data) {
-            if (index >= 0 && index < totalChunks && chunks[index] == null) {
-                chunks[index] = data;
-                receivedCount++;
-            }
+            this.encoding = encoding;
+            this.rawSize = rawSize;
+            this.payloadHash = payloadHash;
+            this.chunks = new ChunkReceiveState(totalSize, totalChunks, MAX_CHUNK_SIZE, false);
         }
         
-        boolean isComplete() {
-            return receivedCount >= totalChunks;
+        /**
+         * Whether a chunk belongs to this exact payload
+         */
+        boolean matches(SkinChunkPacket packet) {
+            return Arrays.equals(payloadHash, packet.payloadHash) && skinId.equals(packet.skinId)
+                    && totalSize == packet.totalSize && totalChunks == packet.totalChunks
+                    && encoding == packet.encoding && rawSize == packet.rawSize;
         }
         
-        byte[] assemble() {
-            int actualSize = 0;
-            for (byte[] chunk : chunks) {
-                if (chunk != null) actualSize += chunk.length;
-            }
-            
-            byte[] result = new byte[actualSize];
-            int offset = 0;
-            for (byte[] chunk : chunks) {
-                if (chunk != null) {
-                    System.arraycopy(chunk, 0, result, offset, chunk.length);
-                    offset += chunk.length;
+        /**
+         * Take the completed payload; the returned supplier verifies and decodes it on whichever
+         * thread runs it, and yields null if it is not the payload the client hashed
+         */
+        Supplier<byte[]> assembler() {
+            // Heap reassembly: the backing array is exactly the payload, no copy needed
+            byte[] payload = chunks.take().array();
+            return () -> {
+                if (!MessageDigest.isEqual(payloadHash, SkinHashing.digest(payload))) {
+                    BBTSkin.LOGGER.warn("Discarding skin upload '{}': reassembled payload does not match its hash",
+                            skinName);
+                    return null;
                 }
-            }
-            return result;
+                return SkinCompression.decode(payload, encoding, rawSize);
+            };
         }
     }
 }
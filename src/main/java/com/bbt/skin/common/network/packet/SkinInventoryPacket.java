@@ -0,0 +1,67 @@
+package com.bbt.skin.common.network.packet;
+
+import com.bbt.skin.common.data.SkinHashing;
+import com.bbt.skin.server.network.ServerSkinHandler;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraftforge.network.NetworkEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Packet sent from client to server after joining, listing content hashes of skins
+ * the client already holds in its disk cache. Hashes are sent as raw 32-byte digests.
+ */
+public class SkinInventoryPacket {
+    
+    public static final int MAX_HASHES = 512;
+    private static final int HASH_BYTES = 32;
+    
+    private final List<String> hashes;
+    
+    public SkinInventoryPacket(List<String> hashes) {
+        this.hashes = hashes;
+    }
+    
+    public static void encode(SkinInventoryPacket packet, FriendlyByteBuf buf) {
+        int count = Math.min(packet.hashes.size(), MAX_HASHES);
+        buf.writeVarInt(count);
+        for (int i = 0; i < count; i++) {
+            String hash = packet.hashes.get(i);
+            for (int j = 0; j < HASH_BYTES; j++) {
+                buf.writeByte(Integer.parseInt(hash, j * 2, j * 2 + 2, 16));
+            }
+        }
+    }
+    
+    public static SkinInventoryPacket decode(FriendlyByteBuf buf) {
+        int count = buf.readVarInt();
+        if (count < 0 || count > MAX_HASHES) {
+            throw new IllegalArgumentException("Too many hashes in skin inventory: " + count);
+        }
+        
+        List<String> hashes = new ArrayList<>(count);
+        byte[] raw = new byte[HASH_BYTES];
+        for (int i = 0; i < count; i++) {
+            buf.readBytes(raw);
+            hashes.add(SkinHashing.toHex(raw));
+        }
+        return new SkinInventoryPacket(hashes);
+    }
+    
+    public static void handle(SkinInventoryPacket packet, Supplier<NetworkEvent.Context> ctx) {
+        ctx.get().enqueueWork(() -> {
+            ServerPlayer player = ctx.get().getSender();
+            if (player != null) {
+                ServerSkinHandler.handleSkinInventory(player, packet.hashes);
+            }
+        });
+        ctx.get().setPacketHandled(true);
+    }
+    
+    public List<String> getHashes() {
+        return hashes;
+    }
+}
@@ -0,0 +1,69 @@
+package com.bbt.skin.common.network.packet;
+
+import com.bbt.skin.common.network.NetworkConstants;
+import com.bbt.skin.server.network.PacketRateLimiter;
+import com.bbt.skin.server.network.ServerSkinHandler;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraftforge.network.NetworkEvent;
+
+import java.util.function.Supplier;
+
+/**
+ * Packet sent from client to server before uploading its skin: the hash and size of the
+ * bytes it would upload. The server answers with a {@link SkinOfferReplyPacket}; the image
+ * is only uploaded if the server does not already hold exactly this skin.
+ */
+public class SkinOfferPacket {
+    
+    private final String skinId;
+    private final String sourceHash;
+    private final int size;
+    private final boolean slim;
+    private final String skinName;
+    
+    public SkinOfferPacket(String skinId, String sourceHash, int size, boolean slim, String skinName) {
+        this.skinId = skinId;
+        this.sourceHash = sourceHash;
+        this.size = size;
+        this.slim = slim;
+        this.skinName = skinName;
+    }
+    
+    public static void encode(SkinOfferPacket packet, FriendlyByteBuf buf) {
+        buf.writeUtf(packet.skinId, NetworkConstants.MAX_STRING_LENGTH);
+        buf.writeUtf(packet.sourceHash, NetworkConstants.MAX_STRING_LENGTH);
+        buf.writeInt(packet.size);
+        buf.writeBoolean(packet.slim);
+        buf.writeUtf(packet.skinName, NetworkConstants.MAX_STRING_LENGTH);
+    }
+    
+    public static SkinOfferPacket decode(FriendlyByteBuf buf) {
+        String skinId = buf.readUtf(NetworkConstants.MAX_STRING_LENGTH);
+        String sourceHash = buf.readUtf(NetworkConstants.MAX_STRING_LENGTH);
+        int size = buf.readInt();
+        if (size <= 0 || size > NetworkConstants.MAX_SKIN_SIZE) {
+            // An offer must be for a skin the client could actually upload
+            throw new IllegalArgumentException("Invalid offered skin size: " + size);
+        }
+        return new SkinOfferPacket(skinId, sourceHash, size, buf.readBoolean(),
+                buf.readUtf(NetworkConstants.MAX_STRING_LENGTH));
+    }
+    
+    public static void handle(SkinOfferPacket packet, Supplier<NetworkEvent.Context> ctx) {
+        ctx.get().enqueueWork(() -> {
+            ServerPlayer player = ctx.get().getSender();
+            if (player != null && ServerSkinHandler.checkRateLimit(player, PacketRateLimiter.Kind.REQUEST)) {
+                ServerSkinHandler.handleSkinOffer(player, packet.sourceHash, packet.slim, packet.skinName);
+            }
+        });
+        ctx.get().setPacketHandled(true);
+    }
+    
+    // Getters
+    public String getSkinId() { return skinId; }
+    public String getSourceHash() { return sourceHash; }
+    public int getSize() { return size; }
+    public boolean isSlim() { return slim; }
+    public String getSkinName() { return skinName; }
+}
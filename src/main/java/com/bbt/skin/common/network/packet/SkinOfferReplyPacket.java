@@ -0,0 +1,48 @@
+package com.bbt.skin.common.network.packet;
+
+import com.bbt.skin.client.BBTSkinClient;
+import com.bbt.skin.common.network.NetworkConstants;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraftforge.api.distmarker.Dist;
+import net.minecraftforge.fml.DistExecutor;
+import net.minecraftforge.network.NetworkEvent;
+
+import java.util.function.Supplier;
+
+/**
+ * Packet sent from server to client answering a {@link SkinOfferPacket}:
+ * either the server already holds the offered skin or the client should upload it
+ */
+public class SkinOfferReplyPacket {
+    
+    private final String sourceHash;
+    private final boolean upload;
+    
+    public SkinOfferReplyPacket(String sourceHash, boolean upload) {
+        this.sourceHash = sourceHash;
+        this.upload = upload;
+    }
+    
+    public static void encode(SkinOfferReplyPacket packet, FriendlyByteBuf buf) {
+        buf.writeUtf(packet.sourceHash, NetworkConstants.MAX_STRING_LENGTH);
+        buf.writeBoolean(packet.upload);
+    }
+    
+    public static SkinOfferReplyPacket decode(FriendlyByteBuf buf) {
+        return new SkinOfferReplyPacket(
+                buf.readUtf(NetworkConstants.MAX_STRING_LENGTH),
+                buf.readBoolean()
+        );
+    }
+    
+    public static void handle(SkinOfferReplyPacket packet, Supplier<NetworkEvent.Context> ctx) {
+        ctx.get().enqueueWork(() -> {
+            // Handle on client side only
+            DistExecutor.unsafeRunWhenOn(Dist.CLIENT, () -> () -> BBTSkinClient.handleOfferReply(packet.sourceHash, packet.upload));
+        });
+        ctx.get().setPacketHandled(true);
+    }
+    
+    public String getSourceHash() { return sourceHash; }
+    public boolean isUpload() { return upload; }
+}
@@ -1,6 +1,7 @@
 package com.bbt.skin.common.network.packet;
 
 import com.bbt.skin.common.network.NetworkConstants;
+import com.bbt.skin.server.network.PacketRateLimiter;
 import com.bbt.skin.server.network.ServerSkinHandler;
 import net.minecraft.network.FriendlyByteBuf;
 import net.minecraft.server.level.ServerPlayer;
@@ -30,7 +31,7 @@ public class SkinRequestPacket {
     public static void handle(SkinRequestPacket packet, Supplier<NetworkEvent.Context> ctx) {
         ctx.get().enqueueWork(() -> {
             ServerPlayer player = ctx.get().getSender();
-            if (player != null) {
+            if (player != null && ServerSkinHandler.checkRateLimit(player, PacketRateLimiter.Kind.REQUEST)) {
                 ServerSkinHandler.handleSkinRequest(player, packet.targetPlayerUUID);
             }
         });
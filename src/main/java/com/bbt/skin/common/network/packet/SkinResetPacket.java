@@ -1,5 +1,6 @@
 package com.bbt.skin.common.network.packet;
 
+import com.bbt.skin.server.network.PacketRateLimiter;
 import com.bbt.skin.server.network.ServerSkinHandler;
 import net.minecraft.network.FriendlyByteBuf;
 import net.minecraft.server.level.ServerPlayer;
@@ -26,7 +27,7 @@ public class SkinResetPacket {
     public static void handle(SkinResetPacket packet, Supplier<NetworkEvent.Context> ctx) {
         ctx.get().enqueueWork(() -> {
             ServerPlayer player = ctx.get().getSender();
-            if (player != null) {
+            if (player != null && ServerSkinHandler.checkRateLimit(player, PacketRateLimiter.Kind.SYNC)) {
                 ServerSkinHandler.handleSkinReset(player);
             }
         });
@@ -2,25 +2,55 @@ package com.bbt.skin.common.network.packet;
 
 import com.bbt.skin.BBTSkin;
 import com.bbt.skin.client.BBTSkinClient;
+import com.bbt.skin.common.config.BBTSkinConfig;
+import com.bbt.skin.common.network.ChunkReceiveState;
 import com.bbt.skin.common.network.NetworkConstants;
+import com.bbt.skin.common.network.NetworkHandler;
+import com.bbt.skin.common.network.ReassemblyManager;
+import com.bbt.skin.common.network.SkinBufferPool;
+import com.bbt.skin.common.network.SkinCompression;
 import net.minecraft.network.FriendlyByteBuf;
 import net.minecraftforge.api.distmarker.Dist;
 import net.minecraftforge.fml.DistExecutor;
 import net.minecraftforge.network.NetworkEvent;
 
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Supplier;
 
 /**
  * Packet for receiving large skin data in chunks (server -> client)
+ * Each chunk carries a CRC32C; the client acknowledges chunks with {@link SkinChunkAckPacket}
+ * and keeps partial downloads across reconnects so the server can resume them, within the
+ * memory ceiling and deadlines of a {@link ReassemblyManager}.
+ * Clients with the compact chunk feature get {@link SkinTransferBeginPacket} and
+ * {@link SkinTransferChunkPacket} instead; both reassemble here.
  */
 public class SkinResponseChunkPacket {
     
+    // Chunk size for clients that have not negotiated one
     public static final int MAX_CHUNK_SIZE = 28000;
+    // Largest chunk this client accepts, advertised through SkinCapabilitiesPacket
+    public static final int MAX_RECEIVE_CHUNK_SIZE = 128 * 1024;
+    // Compact transfer headers kept at once; the server runs only a few transfers per client
+    private static final int MAX_COMPACT_TRANSFERS = 64;
     
-    // Pending downloads on client
-    private static final Map<String, PendingDownload> pendingDownloads = new ConcurrentHashMap<>();
+    // Pending downloads on client, by owner and skin
+    private static final ReassemblyManager<String, PendingDownload> pendingDownloads = new ReassemblyManager<>(
+            Math.max(1, BBTSkinConfig.get().getReassemblyBufferMb()) * 1024L * 1024L,
+            NetworkConstants.MAX_SKIN_SIZE,
+            NetworkConstants.REASSEMBLY_IDLE_TIMEOUT,
+            NetworkConstants.REASSEMBLY_MAX_LIFETIME,
+            download -> download.chunks.release());
+    // Compact transfers by the id the server gave them, until their last chunk arrives
+    private static final Map<Integer, CompactTransfer> compactTransfers = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, CompactTransfer> eldest) {
+            return size() > MAX_COMPACT_TRANSFERS;
+        }
+    };
+    private static long lastSweep = 0;
     
     private final String playerUUID;
     private final String skinId;
@@ -31,11 +61,25 @@ public class SkinResponseChunkPacket {
     private final int totalSize;
     private final int chunkIndex;
     private final int totalChunks;
+    // Size of every chunk but the last, as negotiated with this client
+    private final int chunkSize;
+    private final int encoding;
+    private final int rawSize;
     private final byte[] chunkData;
+    // CRC32C of chunkData as sent
+    private final int checksum;
     
     public SkinResponseChunkPacket(String playerUUID, String skinId, String skinName, boolean slim,
                                    int width, int height, int totalSize, int chunkIndex,
-                                   int totalChunks, byte[] chunkData) {
+                                   int totalChunks, int chunkSize, int encoding, int rawSize, byte[] chunkData) {
+        this(playerUUID, skinId, skinName, slim, width, height, totalSize, chunkIndex, totalChunks,
+                chunkSize, encoding, rawSize, chunkData, ChunkReceiveState.checksum(chunkData));
+    }
+    
+    private SkinResponseChunkPacket(String playerUUID, String skinId, String skinName, boolean slim,
+                                    int width, int height, int totalSize, int chunkIndex,
+                                    int totalChunks, int chunkSize, int encoding, int rawSize, byte[] chunkData,
+                                    int checksum) {
         this.playerUUID = playerUUID;
         this.skinId = skinId;
         this.skinName = skinName;
@@ -45,7 +89,11 @@ public class SkinResponseChunkPacket {
         this.totalSize = totalSize;
         this.chunkIndex = chunkIndex;
         this.totalChunks = totalChunks;
+        this.chunkSize = chunkSize;
+        this.encoding = encoding;
+        this.rawSize = rawSize;
         this.chunkData = chunkData;
+        this.checksum = checksum;
     }
     
     public static void encode(SkinResponseChunkPacket packet, FriendlyByteBuf buf) {
@@ -58,8 +106,12 @@ public class SkinResponseChunkPacket {
         buf.writeInt(packet.totalSize);
         buf.writeInt(packet.chunkIndex);
         buf.writeInt(packet.totalChunks);
+        buf.writeInt(packet.chunkSize);
+        buf.writeByte(packet.encoding);
+        buf.writeInt(packet.rawSize);
         buf.writeInt(packet.chunkData.length);
         buf.writeBytes(packet.chunkData);
+        buf.writeInt(packet.checksum);
     }
     
     public static SkinResponseChunkPacket decode(FriendlyByteBuf buf) {
@@ -72,13 +124,24 @@ public class SkinResponseChunkPacket {
         int totalSize = buf.readInt();
         int chunkIndex = buf.readInt();
         int totalChunks = buf.readInt();
+        int chunkSize = buf.readInt();
+        int encoding = buf.readByte();
+        int rawSize = buf.readInt();
         int chunkLen = buf.readInt();
         
-        byte[] chunkData = new byte[Math.min(chunkLen, MAX_CHUNK_SIZE + 1000)];
+        if (chunkSize <= 0 || chunkSize > MAX_RECEIVE_CHUNK_SIZE) {
+            throw new IllegalArgumentException("Invalid skin chunk size: " + chunkSize);
+        }
+        if (chunkLen < 0 || chunkLen > chunkSize) {
+            throw new IllegalArgumentException("Invalid skin chunk length: " + chunkLen);
+        }
+        
+        byte[] chunkData = new byte[chunkLen];
         buf.readBytes(chunkData);
+        int checksum = buf.readInt();
         
         return new SkinResponseChunkPacket(playerUUID, skinId, skinName, slim, width, height,
-                totalSize, chunkIndex, totalChunks, chunkData);
+                totalSize, chunkIndex, totalChunks, chunkSize, encoding, rawSize, chunkData, checksum);
     }
     
     public static void handle(SkinResponseChunkPacket packet, Supplier<NetworkEvent.Context> ctx) {
@@ -89,98 +152,167 @@ public class SkinResponseChunkPacket {
     }
     
     private static void handleClient(SkinResponseChunkPacket packet) {
-        String key = packet.playerUUID + ":" + packet.skinId;
-        
+        TransferHeader header = new TransferHeader(packet.playerUUID, packet.skinId, packet.skinName,
+                packet.slim, packet.width, packet.height, packet.totalSize, packet.totalChunks,
+                packet.chunkSize, packet.encoding, packet.rawSize);
+        if (!header.isValid()) {
+            BBTSkin.LOGGER.warn("Ignoring skin chunk with invalid sizes for player {}", packet.playerUUID);
+            return;
+        }
+        receiveChunk(downloadKey(header), header, packet.chunkIndex, packet.chunkData, packet.checksum);
+    }
+    
+    /**
+     * Remember the header of a compact transfer until its chunks arrive
+     */
+    static void beginTransfer(int transferId, TransferHeader header) {
+        if (!header.isValid()) {
+            compactTransfers.remove(transferId);
+            BBTSkin.LOGGER.warn("Ignoring skin transfer with invalid sizes for player {}", header.playerUUID());
+            return;
+        }
+        compactTransfers.put(transferId, new CompactTransfer(header, downloadKey(header)));
+    }
+    
+    /**
+     * Add a chunk of a compact transfer started by {@link SkinTransferBeginPacket}
+     */
+    static void receiveTransferChunk(int transferId, int chunkIndex, byte[] chunkData, int checksum) {
+        CompactTransfer transfer = compactTransfers.get(transferId);
+        if (transfer == null) {
+            BBTSkin.LOGGER.debug("Ignoring chunk {} of unknown skin transfer {}", chunkIndex, transferId);
+            return;
+        }
+        if (receiveChunk(transfer.downloadKey(), transfer.header(), chunkIndex, chunkData, checksum)) {
+            compactTransfers.remove(transferId);
+        }
+    }
+    
+    /**
+     * Add a chunk to the download it belongs to, and hand the skin on once complete
+     * @return true if the download is finished
+     */
+    private static boolean receiveChunk(String key, TransferHeader header, int chunkIndex, byte[] chunkData,
+                                        int checksum) {
         // Get or create pending download
-        PendingDownload pending = pendingDownloads.computeIfAbsent(key,
-                k -> new PendingDownload(packet.playerUUID, packet.skinId, packet.skinName,
-                        packet.slim, packet.width, packet.height, packet.totalSize, packet.totalChunks));
+        long now = System.currentTimeMillis();
+        PendingDownload pending = pendingDownloads.get(key, now);
         
-        // If skinId changed, start fresh
-        if (!pending.skinId.equals(packet.skinId)) {
-            pending = new PendingDownload(packet.playerUUID, packet.skinId, packet.skinName,
-                    packet.slim, packet.width, packet.height, packet.totalSize, packet.totalChunks);
-            pendingDownloads.put(key, pending);
+        // If the payload changed (e.g. other encoding), start fresh; otherwise this may resume
+        if (pending == null || !pending.matches(header)) {
+            pending = pendingDownloads.start(key, null, header.totalSize(),
+                    () -> new PendingDownload(header), now);
+            if (pending == null) {
+                BBTSkin.LOGGER.debug("Deferring skin for player {}: reassembly memory is full", header.playerUUID());
+                return false;
+            }
         }
         
         // Add chunk
-        pending.addChunk(packet.chunkIndex, packet.chunkData);
+        ChunkReceiveState.Outcome outcome = pending.chunks.accept(chunkIndex, chunkData, checksum);
+        if (outcome == ChunkReceiveState.Outcome.CORRUPT) {
+            BBTSkin.LOGGER.warn("Chunk {} of skin for player {} failed its checksum", chunkIndex, header.playerUUID());
+        }
+        if (pending.chunks.shouldAck(outcome, chunkIndex)) {
+            NetworkHandler.sendToServer(new SkinChunkAckPacket(header.playerUUID(), header.skinId(),
+                    pending.chunks.markAcked(), pending.chunks.missing()));
+        }
         
         BBTSkin.LOGGER.debug("Received response chunk {}/{} for player {}",
-                packet.chunkIndex + 1, packet.totalChunks, packet.playerUUID);
+                chunkIndex + 1, header.totalChunks(), header.playerUUID());
         
         // Check if complete
-        if (pending.isComplete()) {
-            byte[] fullData = pending.assemble();
-            if (fullData != null) {
-                BBTSkin.LOGGER.info("Assembled remote skin '{}' ({} bytes)",
-                        pending.skinName, fullData.length);
-                
-                // Process complete skin
+        if (!pending.chunks.isComplete()) return false;
+        
+        ByteBuffer image = pending.assemble();
+        pendingDownloads.complete(key);
+        if (image != null) {
+            BBTSkin.LOGGER.info("Assembled remote skin '{}' ({} bytes)",
+                    header.skinName(), image.remaining());
+            
+            // Process complete skin, then hand the buffer back to the pool
+            try {
                 BBTSkinClient client = BBTSkinClient.getInstance();
                 if (client != null) {
-                    client.handleSkinResponse(pending.playerUUID, pending.skinId, fullData,
-                            pending.slim, pending.skinName, pending.width, pending.height);
+                    client.handleSkinResponse(header.playerUUID(), header.skinId(), image,
+                            header.slim(), header.skinName(), header.width(), header.height());
                 }
+            } finally {
+                SkinBufferPool.release(image);
             }
-            pendingDownloads.remove(key);
+        } else {
+            BBTSkin.LOGGER.warn("Discarding undecodable skin for player {}", header.playerUUID());
         }
+        return true;
     }
     
     /**
-     * Tracks chunks for a pending download
+     * Downloads are keyed by owner and skin, so a compact transfer can resume a legacy one and vice versa
      */
-    private static class PendingDownload {
-        final String playerUUID;
-        final String skinId;
-        final String skinName;
-        final boolean slim;
-        final int width;
-        final int height;
-        final int totalSize;
-        final int totalChunks;
-        final byte[][] chunks;
-        int receivedCount = 0;
+    private static String downloadKey(TransferHeader header) {
+        return header.playerUUID() + ":" + header.skinId();
+    }
+    
+    /**
+     * Discard stalled downloads, at most once a second (called every client tick)
+     */
+    public static void sweepPendingDownloads() {
+        long now = System.currentTimeMillis();
+        if (now - lastSweep < 1000) return;
+        lastSweep = now;
+        pendingDownloads.sweep(now);
+    }
+    
+    /**
+     * Everything about a chunked download but the chunk itself: repeated in every
+     * legacy chunk, sent once per transfer in a {@link SkinTransferBeginPacket}
+     */
+    record TransferHeader(String playerUUID, String skinId, String skinName, boolean slim,
+                          int width, int height, int totalSize, int totalChunks, int chunkSize,
+                          int encoding, int rawSize) {
         
-        PendingDownload(String playerUUID, String skinId, String skinName, boolean slim,
-                       int width, int height, int totalSize, int totalChunks) {
-            this.playerUUID = playerUUID;
-            this.skinId = skinId;
-            this.skinName = skinName;
-            this.slim = slim;
-            this.width = width;
-            this.height = height;
-            this.totalSize = totalSize;
-            this.totalChunks = totalChunks;
-            this.chunks = new byte[totalChunks][];
+        /**
+         * Check the declared sizes before anything is allocated for them
+         */
+        boolean isValid() {
+            return chunkSize <= MAX_RECEIVE_CHUNK_SIZE
+                    && ChunkReceiveState.isValidLayout(totalSize, totalChunks, chunkSize)
+                    && SkinCompression.isValidPayload(encoding, totalSize, rawSize);
         }
+    }
+    
+    /**
+     * A started compact transfer, with its download key built once rather than per chunk
+     */
+    private record CompactTransfer(TransferHeader header, String downloadKey) {
+    }
+    
+    /**
+     * Tracks chunks for a pending download
+     */
+    private static class PendingDownload {
+        final TransferHeader header;
+        final ChunkReceiveState chunks;
         
-        void addChunk(int index, byte[] data) {
-            if (index >= 0 && index < totalChunks && chunks[index] == null) {
-                chunks[index] = data;
-                receivedCount++;
-            }
+        PendingDownload(TransferHeader header) {
+            this.header = header;
+            this.chunks = new ChunkReceiveState(header.totalSize(), header.totalChunks(), header.chunkSize(), true);
         }
         
-        boolean isComplete() {
-            return receivedCount >= totalChunks;
+        /**
+         * Whether a chunk belongs to this exact payload
+         */
+        boolean matches(TransferHeader other) {
+            return header.skinId().equals(other.skinId()) && header.totalSize() == other.totalSize()
+                    && header.totalChunks() == other.totalChunks() && header.chunkSize() == other.chunkSize()
+                    && header.encoding() == other.encoding() && header.rawSize() == other.rawSize();
         }
         
-        byte[] assemble() {
-            int actualSize = 0;
-            for (byte[] chunk : chunks) {
-                if (chunk != null) actualSize += chunk.length;
-            }
-            
-            byte[] result = new byte[actualSize];
-            int offset = 0;
-            for (byte[] chunk : chunks) {
-                if (chunk != null) {
-                    System.arraycopy(chunk, 0, result, offset, chunk.length);
-                    offset += chunk.length;
-                }
-            }
-            return result;
+        /**
+         * The decoded image in a pooled direct buffer, or null if it cannot be decoded
+         */
+        ByteBuffer assemble() {
+            return SkinCompression.decodeDirect(chunks.take(), header.encoding(), header.rawSize());
         }
     }
 }
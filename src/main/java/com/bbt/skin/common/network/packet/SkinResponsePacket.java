@@ -2,7 +2,6 @@ package com.bbt.skin.common.network.packet;
 
 import com.bbt.skin.BBTSkin;
 import com.bbt.skin.client.BBTSkinClient;
-import com.bbt.skin.common.data.SkinData;
 import com.bbt.skin.common.network.NetworkConstants;
 import net.minecraft.network.FriendlyByteBuf;
 import net.minecraftforge.api.distmarker.Dist;
@@ -83,29 +82,15 @@ public class SkinResponsePacket {
     
     private static void handleClient(SkinResponsePacket packet) {
         if (packet.skinData.length > 0) {
-            // Build skin data
-            SkinData remoteSkin = new SkinData.Builder()
-                    .id(packet.skinId)
-                    .name(packet.skinName)
-                    .width(packet.width)
-                    .height(packet.height)
-                    .slim(packet.slim)
-                    .ownerUUID(packet.playerUUID)
-                    .imageData(packet.skinData)
-                    .build();
-            
-            try {
-                UUID uuid = UUID.fromString(packet.playerUUID);
-                BBTSkinClient.getInstance().getTextureManager().loadRemoteSkin(uuid, remoteSkin);
-                BBTSkin.LOGGER.info("Received skin for player {}", packet.playerUUID);
-            } catch (IllegalArgumentException e) {
-                BBTSkin.LOGGER.warn("Invalid UUID in skin response: {}", packet.playerUUID);
-            }
+            // Same path as reassembled chunked skins (texture + disk cache)
+            BBTSkinClient.getInstance().handleSkinResponse(packet.playerUUID, packet.skinId, packet.skinData,
+                    packet.slim, packet.skinName, packet.width, packet.height);
         } else {
             // Reset notification - player cleared their skin
             try {
                 UUID uuid = UUID.fromString(packet.playerUUID);
                 BBTSkinClient.getInstance().getTextureManager().unloadRemoteSkin(uuid);
+                BBTSkinClient.getInstance().getRemoteSkinCache().forget(uuid);
                 BBTSkin.LOGGER.info("Cleared skin for player {}", packet.playerUUID);
             } catch (IllegalArgumentException e) {
                 BBTSkin.LOGGER.warn("Invalid UUID in skin reset: {}", packet.playerUUID);
@@ -2,6 +2,7 @@ package com.bbt.skin.common.network.packet;
 
 import com.bbt.skin.BBTSkin;
 import com.bbt.skin.common.network.NetworkConstants;
+import com.bbt.skin.server.network.PacketRateLimiter;
 import com.bbt.skin.server.network.ServerSkinHandler;
 import net.minecraft.network.FriendlyByteBuf;
 import net.minecraft.server.level.ServerPlayer;
@@ -59,13 +60,13 @@ public class SkinSyncPacket {
     }
     
     public static void handle(SkinSyncPacket packet, Supplier<NetworkEvent.Context> ctx) {
-        ctx.get().enqueueWork(() -> {
-            ServerPlayer player = ctx.get().getSender();
-            if (player != null && packet.skinData.length > 0) {
-                ServerSkinHandler.handleSkinSync(player, packet.skinId, packet.skinData, 
-                        packet.slim, packet.skinName, packet.width, packet.height);
-            }
-        });
+        // Handed straight to the ingest workers from the Netty thread; only publishing uses the server thread
+        ServerPlayer player = ctx.get().getSender();
+        if (player != null && packet.skinData.length > 0
+                && ServerSkinHandler.checkRateLimit(player, PacketRateLimiter.Kind.SYNC)) {
+            ServerSkinHandler.handleSkinSync(player, () -> packet.skinData, packet.skinData.length,
+                    packet.slim, packet.skinName);
+        }
         ctx.get().setPacketHandled(true);
     }
     
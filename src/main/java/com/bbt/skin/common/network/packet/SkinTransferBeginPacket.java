@@ -0,0 +1,97 @@
+package com.bbt.skin.common.network.packet;
+
+import com.bbt.skin.common.network.NetworkConstants;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraftforge.api.distmarker.Dist;
+import net.minecraftforge.fml.DistExecutor;
+import net.minecraftforge.network.NetworkEvent;
+
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Packet sent from server to client before the chunks of a compact skin transfer.
+ * Carries the header a {@link SkinResponseChunkPacket} repeats in every chunk, once,
+ * with a binary UUID and varints; the {@link SkinTransferChunkPacket}s that follow
+ * refer to it by transfer id. Only sent to clients with the compact chunk feature.
+ */
+public class SkinTransferBeginPacket {
+    
+    private final int transferId;
+    private final UUID playerUUID;
+    private final String skinId;
+    private final String skinName;
+    private final boolean slim;
+    private final int width;
+    private final int height;
+    private final int totalSize;
+    private final int totalChunks;
+    private final int chunkSize;
+    private final int encoding;
+    private final int rawSize;
+    
+    public SkinTransferBeginPacket(int transferId, UUID playerUUID, String skinId, String skinName, boolean slim,
+                                   int width, int height, int totalSize, int totalChunks, int chunkSize,
+                                   int encoding, int rawSize) {
+        this.transferId = transferId;
+        this.playerUUID = playerUUID;
+        this.skinId = skinId;
+        this.skinName = skinName;
+        this.slim = slim;
+        this.width = width;
+        this.height = height;
+        this.totalSize = totalSize;
+        this.totalChunks = totalChunks;
+        this.chunkSize = chunkSize;
+        this.encoding = encoding;
+        this.rawSize = rawSize;
+    }
+    
+    public static void encode(SkinTransferBeginPacket packet, FriendlyByteBuf buf) {
+        buf.writeVarInt(packet.transferId);
+        buf.writeUUID(packet.playerUUID);
+        buf.writeUtf(packet.skinId, NetworkConstants.MAX_STRING_LENGTH);
+        buf.writeUtf(packet.skinName, NetworkConstants.MAX_STRING_LENGTH);
+        buf.writeBoolean(packet.slim);
+        buf.writeVarInt(packet.width);
+        buf.writeVarInt(packet.height);
+        buf.writeVarInt(packet.totalSize);
+        buf.writeVarInt(packet.totalChunks);
+        buf.writeVarInt(packet.chunkSize);
+        buf.writeByte(packet.encoding);
+        buf.writeVarInt(packet.rawSize);
+    }
+    
+    public static SkinTransferBeginPacket decode(FriendlyByteBuf buf) {
+        return new SkinTransferBeginPacket(
+                buf.readVarInt(),
+                buf.readUUID(),
+                buf.readUtf(NetworkConstants.MAX_STRING_LENGTH),
+                buf.readUtf(NetworkConstants.MAX_STRING_LENGTH),
+                buf.readBoolean(),
+                buf.readVarInt(),
+                buf.readVarInt(),
+                buf.readVarInt(),
+                buf.readVarInt(),
+                buf.readVarInt(),
+                buf.readByte(),
+                buf.readVarInt()
+        );
+    }
+    
+    public static void handle(SkinTransferBeginPacket packet, Supplier<NetworkEvent.Context> ctx) {
+        ctx.get().enqueueWork(() -> {
+            // Handle on client side only
+            DistExecutor.unsafeRunWhenOn(Dist.CLIENT, () -> () -> SkinResponseChunkPacket.beginTransfer(
+                    packet.transferId, new SkinResponseChunkPacket.TransferHeader(packet.playerUUID.toString(),
+                            packet.skinId, packet.skinName, packet.slim, packet.width, packet.height,
+                            packet.totalSize, packet.totalChunks, packet.chunkSize, packet.encoding,
+                            packet.rawSize)));
+        });
+        ctx.get().setPacketHandled(true);
+    }
+    
+    public int getTransferId() { return transferId; }
+    public UUID getPlayerUUID() { return playerUUID; }
+    public String getSkinId() { return skinId; }
+}
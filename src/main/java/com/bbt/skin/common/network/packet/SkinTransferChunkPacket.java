@@ -0,0 +1,75 @@
+package com.bbt.skin.common.network.packet;
+
+import com.bbt.skin.common.network.ChunkReceiveState;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraftforge.api.distmarker.Dist;
+import net.minecraftforge.fml.DistExecutor;
+import net.minecraftforge.network.NetworkEvent;
+
+import java.util.function.Supplier;
+
+/**
+ * One chunk of a compact skin transfer (server -> client): only the transfer id from
+ * its {@link SkinTransferBeginPacket}, the chunk index, the bytes and their CRC32C.
+ * The sender writes straight from a slice of the payload, so no chunk is copied.
+ */
+public class SkinTransferChunkPacket {
+    
+    private final int transferId;
+    private final int chunkIndex;
+    private final byte[] data;
+    private final int offset;
+    private final int length;
+    // CRC32C of the chunk as sent
+    private final int checksum;
+    
+    public SkinTransferChunkPacket(int transferId, int chunkIndex, byte[] payload, int offset, int length) {
+        this(transferId, chunkIndex, payload, offset, length, ChunkReceiveState.checksum(payload, offset, length));
+    }
+    
+    private SkinTransferChunkPacket(int transferId, int chunkIndex, byte[] data, int offset, int length,
+                                    int checksum) {
+        this.transferId = transferId;
+        this.chunkIndex = chunkIndex;
+        this.data = data;
+        this.offset = offset;
+        this.length = length;
+        this.checksum = checksum;
+    }
+    
+    public static void encode(SkinTransferChunkPacket packet, FriendlyByteBuf buf) {
+        buf.writeVarInt(packet.transferId);
+        buf.writeVarInt(packet.chunkIndex);
+        buf.writeVarInt(packet.length);
+        buf.writeBytes(packet.data, packet.offset, packet.length);
+        buf.writeInt(packet.checksum);
+    }
+    
+    public static SkinTransferChunkPacket decode(FriendlyByteBuf buf) {
+        int transferId = buf.readVarInt();
+        int chunkIndex = buf.readVarInt();
+        int length = buf.readVarInt();
+        
+        if (length < 0 || length > SkinResponseChunkPacket.MAX_RECEIVE_CHUNK_SIZE) {
+            throw new IllegalArgumentException("Invalid skin chunk length: " + length);
+        }
+        
+        byte[] data = new byte[length];
+        buf.readBytes(data);
+        int checksum = buf.readInt();
+        
+        return new SkinTransferChunkPacket(transferId, chunkIndex, data, 0, length, checksum);
+    }
+    
+    public static void handle(SkinTransferChunkPacket packet, Supplier<NetworkEvent.Context> ctx) {
+        ctx.get().enqueueWork(() -> {
+            // Handle on client side only
+            DistExecutor.unsafeRunWhenOn(Dist.CLIENT, () -> () -> SkinResponseChunkPacket.receiveTransferChunk(
+                    packet.transferId, packet.chunkIndex, packet.data, packet.checksum));
+        });
+        ctx.get().setPacketHandled(true);
+    }
+    
+    public int getTransferId() { return transferId; }
+    public int getChunkIndex() { return chunkIndex; }
+}
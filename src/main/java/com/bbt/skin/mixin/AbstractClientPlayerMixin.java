@@ -2,9 +2,9 @@ package com.bbt.skin.mixin;
 
 import com.bbt.skin.client.BBTSkinClient;
 import com.bbt.skin.client.gui.widget.PlayerModelWidget;
+import com.bbt.skin.client.render.SkinRenderState;
 import com.bbt.skin.client.render.SkinTextureManager;
-import com.bbt.skin.common.data.SkinData;
-import com.bbt.skin.common.data.SkinManager;
+import com.bbt.skin.client.voice.VoiceStateTracker;
 import net.minecraft.client.Minecraft;
 import net.minecraft.client.player.AbstractClientPlayer;
 import net.minecraft.resources.ResourceLocation;
@@ -30,10 +30,11 @@ public abstract class AbstractClientPlayerMixin {
         UUID playerUUID = player.getUUID();
         
         Minecraft mc = Minecraft.getInstance();
+        boolean isLocal = mc.player != null && mc.player.getUUID().equals(playerUUID);
         
         // PRIORITY 1: Check for preview texture (when viewing skins in GUI)
         // Only apply to local player
-        if (mc.player != null && mc.player.getUUID().equals(playerUUID)) {
+        if (isLocal) {
             ResourceLocation previewTexture = PlayerModelWidget.getCurrentPreviewTexture();
             if (previewTexture != null) {
                 cir.setReturnValue(previewTexture);
@@ -48,33 +49,19 @@ public abstract class AbstractClientPlayerMixin {
         SkinTextureManager textureManager = client.getTextureManager();
         if (textureManager == null) return;
         
-        // PRIORITY 2: Check for local player's applied skin
-        if (mc.player != null && mc.player.getUUID().equals(playerUUID)) {
-            
-            ResourceLocation localSkin = textureManager.getLocalSkinTexture();
-            if (localSkin != null) {
-                cir.setReturnValue(localSkin);
-                return;
-            }
-            
-            // Load applied skin if not loaded
-            SkinManager skinManager = client.getSkinManager();
-            if (skinManager != null) {
-                SkinData appliedSkin = skinManager.getAppliedSkin();
-                if (appliedSkin != null && appliedSkin.getImageData() != null) {
-                    textureManager.loadLocalSkin(appliedSkin);
-                    ResourceLocation texture = textureManager.getLocalSkinTexture();
-                    if (texture != null) {
-                        cir.setReturnValue(texture);
-                        return;
-                    }
-                }
+        if (isLocal) {
+            // PRIORITY 2: Local player's applied skin (loaded once if not loaded yet)
+            SkinRenderState state = textureManager.ensureLocalState(client.getSkinManager());
+            if (state != null) {
+                cir.setReturnValue(state.textureFor(state.hasVoiceTexture()
+                        && VoiceStateTracker.getInstance().shouldShowMouthOpen(player)));
             }
         } else {
-            // PRIORITY 3: Check for remote player's custom skin
-            ResourceLocation remoteSkin = textureManager.getRemoteSkinTexture(playerUUID);
-            if (remoteSkin != null) {
-                cir.setReturnValue(remoteSkin);
+            // PRIORITY 3: Remote player's custom skin
+            SkinRenderState state = textureManager.getRemoteState(playerUUID);
+            if (state != null) {
+                cir.setReturnValue(state.textureFor(state.hasVoiceTexture()
+                        && VoiceStateTracker.getInstance().shouldShowMouthOpen(player)));
             }
         }
     }
@@ -88,28 +75,23 @@ public abstract class AbstractClientPlayerMixin {
         UUID playerUUID = player.getUUID();
         
         Minecraft mc = Minecraft.getInstance();
+        boolean isLocal = mc.player != null && mc.player.getUUID().equals(playerUUID);
         
         // Check for preview mode first
-        if (mc.player != null && mc.player.getUUID().equals(playerUUID)) {
-            if (PlayerModelWidget.hasActivePreview()) {
-                cir.setReturnValue(PlayerModelWidget.isPreviewSlim() ? "slim" : "default");
-                return;
-            }
+        if (isLocal && PlayerModelWidget.hasActivePreview()) {
+            cir.setReturnValue(PlayerModelWidget.isPreviewSlim() ? "slim" : "default");
+            return;
         }
         
         BBTSkinClient client = BBTSkinClient.getInstance();
         if (client == null) return;
         
-        // Check for local player's applied skin
-        if (mc.player != null && mc.player.getUUID().equals(playerUUID)) {
-            SkinManager skinManager = client.getSkinManager();
-            if (skinManager != null) {
-                SkinData appliedSkin = skinManager.getAppliedSkin();
-                if (appliedSkin != null) {
-                    cir.setReturnValue(appliedSkin.isSlim() ? "slim" : "default");
-                    return;
-                }
-            }
+        SkinTextureManager textureManager = client.getTextureManager();
+        if (textureManager == null) return;
+        
+        SkinRenderState state = isLocal ? textureManager.getLocalState() : textureManager.getRemoteState(playerUUID);
+        if (state != null) {
+            cir.setReturnValue(state.modelName());
         }
     }
 }
@@ -15,6 +15,9 @@ import java.net.http.HttpResponse;
 import java.time.Duration;
 import java.util.Base64;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * HTTP client for BBTSkin Cloudflare Worker API
@@ -28,6 +31,7 @@ import java.util.concurrent.CompletableFuture;
 public class SkinApiClient {
     
     private static final Gson GSON = new GsonBuilder().create();
+    private static final int HTTP_THREADS = 2;
     
     private final String baseUrl;
     private final String apiKey;
@@ -38,9 +42,22 @@ public class SkinApiClient {
         this.apiKey = apiKey;
         this.httpClient = HttpClient.newBuilder()
                 .connectTimeout(Duration.ofSeconds(10))
+                .executor(createExecutor())
                 .build();
     }
     
+    /**
+     * Dedicated daemon threads for HTTP work and callbacks, keeping the common pool free
+     */
+    private static ExecutorService createExecutor() {
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newFixedThreadPool(HTTP_THREADS, r -> {
+            Thread thread = new Thread(r, "BBTSkin-Http-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
     /**
      * Get skin data for a player
      */
@@ -84,6 +101,16 @@ public class SkinApiClient {
     public CompletableFuture<Boolean> saveSkin(String playerUuid, String playerName, 
                                                 byte[] imageData, boolean slim,
                                                 int width, int height) {
+        return saveSkin(playerUuid, playerName, imageData, slim, width, height, System.currentTimeMillis(), "");
+    }
+    
+    /**
+     * Save/update skin data for a player, with the time the skin was changed and the
+     * hash of the uploaded bytes it was canonicalized from (empty if unknown)
+     */
+    public CompletableFuture<Boolean> saveSkin(String playerUuid, String playerName, 
+                                                byte[] imageData, boolean slim,
+                                                int width, int height, long timestamp, String sourceHash) {
         String url = baseUrl + "/skins/" + playerUuid;
         
         // Build JSON payload
@@ -94,7 +121,10 @@ public class SkinApiClient {
         payload.addProperty("width", width);
         payload.addProperty("height", height);
         payload.addProperty("imageData", Base64.getEncoder().encodeToString(imageData));
-        payload.addProperty("timestamp", System.currentTimeMillis());
+        payload.addProperty("timestamp", timestamp);
+        if (!sourceHash.isEmpty()) {
+            payload.addProperty("sourceHash", sourceHash);
+        }
         
         HttpRequest request = HttpRequest.newBuilder()
                 .uri(URI.create(url))
@@ -135,7 +165,9 @@ public class SkinApiClient {
         
         return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
                 .thenApply(response -> {
-                    return response.statusCode() == 200 || response.statusCode() == 204;
+                    // 404 means there is nothing left to delete
+                    return response.statusCode() == 200 || response.statusCode() == 204
+                            || response.statusCode() == 404;
                 })
                 .exceptionally(e -> {
                     BBTSkin.LOGGER.error("Failed to delete skin from API", e);
@@ -196,6 +228,7 @@ public class SkinApiClient {
         public int height;
         public byte[] imageData;
         public long timestamp;
+        public String sourceHash;
         
         @Nullable
         public static SkinApiResponse fromJson(JsonObject json) {
@@ -207,6 +240,7 @@ public class SkinApiClient {
                 response.width = json.has("width") ? json.get("width").getAsInt() : 64;
                 response.height = json.has("height") ? json.get("height").getAsInt() : 64;
                 response.timestamp = json.has("timestamp") ? json.get("timestamp").getAsLong() : 0;
+                response.sourceHash = json.has("sourceHash") ? json.get("sourceHash").getAsString() : "";
                 
                 if (json.has("imageData")) {
                     response.imageData = Base64.getDecoder().decode(json.get("imageData").getAsString());
@@ -0,0 +1,199 @@
+package com.bbt.skin.server.api;
+
+import com.bbt.skin.BBTSkin;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Write-ahead journal of API writes that have not been confirmed yet.
+ * Each queued PUT/DELETE is appended as a JSON line and marked done once the API
+ * accepts it, so pending writes survive API outages and server restarts.
+ * Only metadata is journaled; PUT bodies are re-read from the skin stores on replay.
+ */
+public class SkinWriteJournal {
+
+    private static final int MIN_COMPACT_LINES = 256;
+
+    private final Path file;
+    private final Map<UUID, Entry> live = new LinkedHashMap<>();
+    private BufferedWriter writer;
+    private long lines = 0;
+    private long nextSequence = 1;
+
+    /**
+     * A journaled write; the latest entry per player wins
+     */
+    public record Entry(long sequence, UUID playerUUID, boolean delete, String playerName, String hash,
+                        boolean slim, int width, int height, long timestamp) {
+    }
+
+    private SkinWriteJournal(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Open a journal, replaying and compacting any existing entries
+     */
+    public static SkinWriteJournal open(Path file) throws IOException {
+        Files.createDirectories(file.getParent());
+        SkinWriteJournal journal = new SkinWriteJournal(file);
+        journal.replay();
+        journal.rewrite();
+        return journal;
+    }
+
+    /**
+     * Journal a pending skin save
+     */
+    public synchronized Entry appendPut(UUID playerUUID, String playerName, String hash,
+                                        boolean slim, int width, int height, long timestamp) {
+        Entry entry = new Entry(nextSequence++, playerUUID, false, playerName, hash, slim, width, height, timestamp);
+        live.put(playerUUID, entry);
+        writeLine(toJson(entry));
+        return entry;
+    }
+
+    /**
+     * Journal a pending skin delete
+     */
+    public synchronized Entry appendDelete(UUID playerUUID, long timestamp) {
+        Entry entry = new Entry(nextSequence++, playerUUID, true, "", "", false, 0, 0, timestamp);
+        live.put(playerUUID, entry);
+        writeLine(toJson(entry));
+        return entry;
+    }
+
+    /**
+     * Mark a write as completed (or abandoned)
+     */
+    public synchronized void markDone(UUID playerUUID, long sequence) {
+        Entry current = live.get(playerUUID);
+        if (current != null && current.sequence() <= sequence) {
+            live.remove(playerUUID);
+        }
+
+        JsonObject json = new JsonObject();
+        json.addProperty("op", "done");
+        json.addProperty("seq", sequence);
+        json.addProperty("uuid", playerUUID.toString());
+        writeLine(json);
+
+        if (lines >= MIN_COMPACT_LINES && lines > live.size() * 4L) {
+            try {
+                rewrite();
+            } catch (IOException e) {
+                BBTSkin.LOGGER.error("Failed to compact skin write journal", e);
+            }
+        }
+    }
+
+    /**
+     * Writes that were journaled but not yet confirmed, oldest first
+     */
+    public synchronized List<Entry> pending() {
+        return new ArrayList<>(live.values());
+    }
+
+    private void writeLine(JsonObject json) {
+        try {
+            writer.write(json.toString());
+            writer.newLine();
+            writer.flush();
+            lines++;
+        } catch (IOException e) {
+            BBTSkin.LOGGER.error("Failed to append to skin write journal", e);
+        }
+    }
+
+    private void replay() throws IOException {
+        if (!Files.exists(file)) return;
+
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            if (line.isBlank()) continue;
+            try {
+                JsonObject json = JsonParser.parseString(line).getAsJsonObject();
+                long sequence = json.get("seq").getAsLong();
+                UUID playerUUID = UUID.fromString(json.get("uuid").getAsString());
+                nextSequence = Math.max(nextSequence, sequence + 1);
+
+                Entry current = live.get(playerUUID);
+                String op = json.get("op").getAsString();
+                if (op.equals("done")) {
+                    if (current != null && current.sequence() <= sequence) {
+                        live.remove(playerUUID);
+                    }
+                } else if (current == null || current.sequence() < sequence) {
+                    live.put(playerUUID, fromJson(json, sequence, playerUUID, op.equals("delete")));
+                }
+            } catch (Exception e) {
+                // Torn write at the tail of the journal
+                BBTSkin.LOGGER.warn("Skipping unreadable skin write journal line");
+            }
+        }
+
+        if (!live.isEmpty()) {
+            BBTSkin.LOGGER.info("Recovered {} pending skin API writes from journal", live.size());
+        }
+    }
+
+    /**
+     * Rewrite the journal with only the latest pending write per player
+     */
+    private void rewrite() throws IOException {
+        if (writer != null) {
+            writer.close();
+        }
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (BufferedWriter out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            for (Entry entry : live.values()) {
+                out.write(toJson(entry).toString());
+                out.newLine();
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        lines = live.size();
+    }
+
+    private static JsonObject toJson(Entry entry) {
+        JsonObject json = new JsonObject();
+        json.addProperty("op", entry.delete() ? "delete" : "put");
+        json.addProperty("seq", entry.sequence());
+        json.addProperty("uuid", entry.playerUUID().toString());
+        json.addProperty("ts", entry.timestamp());
+        if (!entry.delete()) {
+            json.addProperty("name", entry.playerName());
+            json.addProperty("hash", entry.hash());
+            json.addProperty("slim", entry.slim());
+            json.addProperty("width", entry.width());
+            json.addProperty("height", entry.height());
+        }
+        return json;
+    }
+
+    private static Entry fromJson(JsonObject json, long sequence, UUID playerUUID, boolean delete) {
+        long timestamp = json.has("ts") ? json.get("ts").getAsLong() : 0;
+        if (delete) {
+            return new Entry(sequence, playerUUID, true, "", "", false, 0, 0, timestamp);
+        }
+        return new Entry(sequence, playerUUID, false,
+                json.get("name").getAsString(),
+                json.get("hash").getAsString(),
+                json.get("slim").getAsBoolean(),
+                json.get("width").getAsInt(),
+                json.get("height").getAsInt(),
+                timestamp);
+    }
+}
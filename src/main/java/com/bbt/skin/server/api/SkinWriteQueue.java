@@ -0,0 +1,329 @@
+package com.bbt.skin.server.api;
+
+import com.bbt.skin.BBTSkin;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Write-behind queue for skin persistence.
+ * Pending writes are coalesced per player (last write wins) and flushed to the API
+ * on a fixed interval with a bounded number of concurrent requests. Failed writes are
+ * retried with exponential backoff and jitter; with a journal they also survive restarts.
+ */
+public class SkinWriteQueue {
+
+    private static final int MAX_CONCURRENT_WRITES = 4;
+    private static final long RETRY_BASE_MS = 5000;
+    private static final long RETRY_MAX_MS = 10 * 60 * 1000;
+    private static final int MAX_ATTEMPTS = 12;
+
+    /**
+     * Supplies the image bytes of a journaled save whose body is no longer in memory
+     */
+    @FunctionalInterface
+    public interface BodyLoader {
+        @Nullable
+        byte[] load(UUID playerUUID, String hash);
+    }
+
+    private final SkinApiClient apiClient;
+    @Nullable
+    private final SkinWriteJournal journal;
+    private final BodyLoader bodyLoader;
+    private final Map<UUID, PendingWrite> pending = new LinkedHashMap<>();
+    private final Set<UUID> inFlight = new HashSet<>();
+    private final Map<UUID, String> persistedHashes = new HashMap<>();
+    private final Semaphore permits = new Semaphore(MAX_CONCURRENT_WRITES);
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "BBTSkin-WriteQueue");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private long nextSequence = 1;
+    private long coalesced = 0;
+    private long skipped = 0;
+    private long retries = 0;
+    private long abandoned = 0;
+
+    /**
+     * A queued API write. Saves replayed from the journal start without image bytes.
+     */
+    private static final class PendingWrite {
+        final long sequence;
+        final boolean delete;
+        final String playerName;
+        final String hash;
+        final String sourceHash;
+        final boolean slim;
+        final int width;
+        final int height;
+        final long timestamp;
+        @Nullable byte[] imageData;
+        int attempts = 0;
+        long notBefore = 0;
+
+        PendingWrite(long sequence, boolean delete, String playerName, String hash, String sourceHash,
+                     @Nullable byte[] imageData, boolean slim, int width, int height, long timestamp) {
+            this.sequence = sequence;
+            this.delete = delete;
+            this.playerName = playerName;
+            this.hash = hash;
+            this.sourceHash = sourceHash;
+            this.imageData = imageData;
+            this.slim = slim;
+            this.width = width;
+            this.height = height;
+            this.timestamp = timestamp;
+        }
+    }
+
+    public SkinWriteQueue(SkinApiClient apiClient, int flushIntervalSeconds,
+                          @Nullable SkinWriteJournal journal, BodyLoader bodyLoader) {
+        this.apiClient = apiClient;
+        this.journal = journal;
+        this.bodyLoader = bodyLoader;
+
+        if (journal != null) {
+            long replayAt = System.currentTimeMillis() + RETRY_BASE_MS;
+            for (SkinWriteJournal.Entry entry : journal.pending()) {
+                PendingWrite write = new PendingWrite(entry.sequence(), entry.delete(), entry.playerName(),
+                        entry.hash(), "", null, entry.slim(), entry.width(), entry.height(), entry.timestamp());
+                write.notBefore = replayAt + jitter(RETRY_BASE_MS);
+                pending.put(entry.playerUUID(), write);
+            }
+        }
+
+        long interval = Math.max(1, flushIntervalSeconds);
+        scheduler.scheduleWithFixedDelay(this::flushSafely, interval, interval, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Queue a skin save, replacing any pending write for the player
+     */
+    public synchronized void enqueueSave(UUID playerUUID, String playerName, String hash, String sourceHash,
+                                         byte[] imageData, boolean slim, int width, int height, long timestamp) {
+        if (!pending.containsKey(playerUUID) && !inFlight.contains(playerUUID)
+                && hash.equals(persistedHashes.get(playerUUID))) {
+            // API already holds exactly this image, and no other write for the player can still land
+            skipped++;
+            return;
+        }
+
+        long sequence = journal != null
+                ? journal.appendPut(playerUUID, playerName, hash, slim, width, height, timestamp).sequence()
+                : nextSequence++;
+        enqueue(playerUUID, new PendingWrite(sequence, false, playerName, hash, sourceHash, imageData,
+                slim, width, height, timestamp));
+    }
+
+    /**
+     * Queue a skin delete, replacing any pending write for the player
+     */
+    public synchronized void enqueueDelete(UUID playerUUID) {
+        long timestamp = System.currentTimeMillis();
+        long sequence = journal != null
+                ? journal.appendDelete(playerUUID, timestamp).sequence()
+                : nextSequence++;
+        enqueue(playerUUID, new PendingWrite(sequence, true, "", "", "", null, false, 0, 0, timestamp));
+    }
+
+    private void enqueue(UUID playerUUID, PendingWrite write) {
+        if (pending.put(playerUUID, write) != null) {
+            coalesced++;
+        }
+    }
+
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (Exception e) {
+            BBTSkin.LOGGER.error("Failed to flush skin write queue", e);
+        }
+    }
+
+    /**
+     * Start API requests for all due writes whose player has no request in flight.
+     * @return futures of the requests started
+     */
+    public List<CompletableFuture<Boolean>> flush() {
+        List<CompletableFuture<Boolean>> started = new ArrayList<>();
+
+        while (true) {
+            UUID playerUUID = null;
+            PendingWrite write = null;
+            synchronized (this) {
+                long now = System.currentTimeMillis();
+                for (Map.Entry<UUID, PendingWrite> entry : pending.entrySet()) {
+                    if (!inFlight.contains(entry.getKey()) && entry.getValue().notBefore <= now) {
+                        playerUUID = entry.getKey();
+                        write = entry.getValue();
+                        break;
+                    }
+                }
+                if (write == null) break;
+
+                pending.remove(playerUUID);
+                inFlight.add(playerUUID);
+            }
+
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                synchronized (this) {
+                    inFlight.remove(playerUUID);
+                    pending.putIfAbsent(playerUUID, write);
+                }
+                break;
+            }
+
+            started.add(send(playerUUID, write));
+        }
+
+        return started;
+    }
+
+    private CompletableFuture<Boolean> send(UUID playerUUID, PendingWrite write) {
+        CompletableFuture<Boolean> request;
+        if (write.delete) {
+            request = apiClient.deleteSkin(playerUUID.toString());
+        } else {
+            byte[] body = write.imageData != null ? write.imageData : bodyLoader.load(playerUUID, write.hash);
+            if (body == null) {
+                BBTSkin.LOGGER.warn("Skin data for pending API write of {} is not available yet", playerUUID);
+                request = CompletableFuture.completedFuture(false);
+            } else {
+                write.imageData = body;
+                request = apiClient.saveSkin(playerUUID.toString(), write.playerName, body,
+                        write.slim, write.width, write.height, write.timestamp, write.sourceHash);
+            }
+        }
+
+        return request.whenComplete((success, error) -> {
+            permits.release();
+            synchronized (this) {
+                inFlight.remove(playerUUID);
+                if (Boolean.TRUE.equals(success)) {
+                    onSuccess(playerUUID, write);
+                } else {
+                    onFailure(playerUUID, write);
+                }
+            }
+        });
+    }
+
+    private void onSuccess(UUID playerUUID, PendingWrite write) {
+        if (write.delete) {
+            persistedHashes.remove(playerUUID);
+        } else {
+            persistedHashes.put(playerUUID, write.hash);
+        }
+        if (journal != null) {
+            journal.markDone(playerUUID, write.sequence);
+        }
+    }
+
+    private void onFailure(UUID playerUUID, PendingWrite write) {
+        if (pending.containsKey(playerUUID)) {
+            // A newer write superseded this one while it was in flight
+            return;
+        }
+
+        write.attempts++;
+        if (write.attempts >= MAX_ATTEMPTS) {
+            abandoned++;
+            BBTSkin.LOGGER.error("Giving up on API {} for {} after {} attempts",
+                    write.delete ? "delete" : "save", playerUUID, write.attempts);
+            if (journal != null) {
+                journal.markDone(playerUUID, write.sequence);
+            }
+            return;
+        }
+
+        long delay = Math.min(RETRY_MAX_MS, RETRY_BASE_MS << Math.min(write.attempts - 1, 20));
+        write.notBefore = System.currentTimeMillis() + delay / 2 + jitter(delay / 2);
+        if (journal != null) {
+            // Re-read from the stores on retry instead of pinning the bytes through an outage
+            write.imageData = null;
+        }
+        pending.put(playerUUID, write);
+        retries++;
+    }
+
+    private static long jitter(long bound) {
+        return bound > 0 ? ThreadLocalRandom.current().nextLong(bound) : 0;
+    }
+
+    /**
+     * Flush everything still pending and wait for outstanding requests (server shutdown).
+     * Writes in backoff are left to the journal.
+     */
+    public void drain(long timeoutMillis) {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        int sent = 0;
+
+        while (System.currentTimeMillis() < deadline) {
+            List<CompletableFuture<Boolean>> started = flush();
+            if (started.isEmpty()) break;
+            sent += started.size();
+            try {
+                CompletableFuture.allOf(started.toArray(new CompletableFuture[0]))
+                        .get(Math.max(1, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+            } catch (Exception e) {
+                break;
+            }
+        }
+
+        // Let requests started by the regular flush finish too
+        while (System.currentTimeMillis() < deadline && getInFlightCount() > 0) {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        synchronized (this) {
+            if (!pending.isEmpty()) {
+                BBTSkin.LOGGER.warn("Skin write queue drained with {} writes still pending{}", pending.size(),
+                        journal != null ? " (kept in journal)" : "");
+            }
+        }
+        BBTSkin.LOGGER.info("Drained skin write queue ({} writes sent)", sent);
+    }
+
+    /**
+     * Mark the API as already holding a player's image (e.g. after fetching it)
+     */
+    public synchronized void markPersisted(UUID playerUUID, String hash) {
+        persistedHashes.put(playerUUID, hash);
+    }
+
+    public synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    public synchronized int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    public synchronized long getCoalescedCount() {
+        return coalesced;
+    }
+
+    public synchronized long getSkippedCount() {
+        return skipped;
+    }
+
+    public synchronized long getRetryCount() {
+        return retries;
+    }
+
+    public synchronized long getAbandonedCount() {
+        return abandoned;
+    }
+}
@@ -1,7 +1,19 @@
 package com.bbt.skin.server.command;
 
 import com.bbt.skin.BBTSkin;
+import com.bbt.skin.common.network.ReassemblyManager;
+import com.bbt.skin.common.network.SkinCompression;
+import com.bbt.skin.common.network.packet.SkinChunkPacket;
+import com.bbt.skin.server.api.SkinWriteQueue;
+import com.bbt.skin.server.ingest.SkinIngest;
+import com.bbt.skin.server.ingest.SkinIngestPipeline;
+import com.bbt.skin.server.network.PacketRateLimiter;
 import com.bbt.skin.server.network.ServerSkinHandler;
+import com.bbt.skin.server.network.SkinTransferScheduler;
+import com.bbt.skin.server.store.SkinCache;
+import com.bbt.skin.server.store.SkinPayloadCache;
+import com.bbt.skin.server.store.SkinStore;
+import com.bbt.skin.server.store.SkinTierCache;
 import com.mojang.brigadier.CommandDispatcher;
 import com.mojang.brigadier.arguments.StringArgumentType;
 import com.mojang.brigadier.context.CommandContext;
@@ -109,16 +121,104 @@ public class BBTSkinCommand {
     private static int showStatus(CommandContext<CommandSourceStack> context) {
         CommandSourceStack source = context.getSource();
         
-        int skinCount = ServerSkinHandler.getAllSkins().size();
+        SkinCache cache = ServerSkinHandler.getSkinCache();
+        int skinCount = cache.size();
         boolean apiConfigured = ServerSkinHandler.isApiConfigured();
         
         source.sendSuccess(() -> Component.literal("§6[BBTSkin] Status:"), false);
         source.sendSuccess(() -> Component.literal(
-                "§7  Loaded skins: §f" + skinCount), false);
+                "§7  Loaded skins: §f" + skinCount + " §7(" + cache.getUniqueImages() + " unique)"), false);
+        source.sendSuccess(() -> Component.literal(
+                "§7  Cache memory: §f" + (cache.getTotalBytes() / 1024) + " KB §7/ §f"
+                        + (cache.getMaxBytes() / (1024 * 1024)) + " MB"), false);
+        source.sendSuccess(() -> Component.literal(
+                "§7  Cache hits: §f" + cache.getHits() + " §7misses: §f" + cache.getMisses()
+                        + " §7evictions: §f" + cache.getEvictions()), false);
+        SkinTransferScheduler transfers = ServerSkinHandler.getTransferScheduler();
+        source.sendSuccess(() -> Component.literal(
+                "§7  Transfers queued: §f" + transfers.getQueuedTransfers() + " §7(" + (transfers.getQueuedBytes() / 1024)
+                        + " KB) §7sent: §f" + (transfers.getBytesSent() / 1024) + " KB"
+                        + (transfers.getBudgetFactor() < 1.0
+                                ? " §e(backing off: " + Math.round(transfers.getBudgetFactor() * 100) + "% budget)" : "")), false);
+        source.sendSuccess(() -> Component.literal(
+                "§7  Announced: §f" + transfers.getAnnounceCount() + " §7client cache hits: §f"
+                        + transfers.getCacheHitCount() + " §7(" + (transfers.getBytesSkipped() / 1024) + " KB not sent)"), false);
+        if (transfers.getRetransmittedChunks() + transfers.getResumedChunks() + transfers.getTimedOutCount() > 0) {
+            source.sendSuccess(() -> Component.literal(
+                    "§7  Chunks resent: §f" + transfers.getRetransmittedChunks() + " §7resumed: §f"
+                            + transfers.getResumedChunks() + " §7transfers timed out: §f" + transfers.getTimedOutCount()), false);
+        }
+        PacketRateLimiter limiter = ServerSkinHandler.getRateLimiter();
+        if (limiter.getDroppedCount() > 0 || limiter.getKickCount() > 0) {
+            source.sendSuccess(() -> Component.literal(
+                    "§7  Rate limited: §f" + limiter.getDroppedCount(PacketRateLimiter.Kind.SYNC) + " §7syncs, §f"
+                            + limiter.getDroppedCount(PacketRateLimiter.Kind.UPLOAD_CHUNK) + " §7chunks, §f"
+                            + limiter.getDroppedCount(PacketRateLimiter.Kind.REQUEST) + " §7requests dropped; §f"
+                            + limiter.getKickCount() + " §7players kicked"), false);
+        }
+        ReassemblyManager<?, ?> uploads = SkinChunkPacket.getPendingUploads();
+        source.sendSuccess(() -> Component.literal(
+                "§7  Partial uploads: §f" + uploads.size() + " §7(" + (uploads.getTotalBytes() / 1024)
+                        + " KB) expired: §f" + uploads.getExpiredCount() + " §7refused: §f"
+                        + uploads.getRejectedCount()), false);
+        if (ServerSkinHandler.getMatchedOfferCount() + ServerSkinHandler.getUnchangedUploadCount() > 0) {
+            source.sendSuccess(() -> Component.literal(
+                    "§7  Unchanged skins: §f" + ServerSkinHandler.getMatchedOfferCount() + " §7offers not uploaded, §f"
+                            + ServerSkinHandler.getUnchangedUploadCount() + " §7uploads not re-broadcast"), false);
+        }
+        SkinIngestPipeline ingest = ServerSkinHandler.getIngestPipeline();
+        if (ingest.getSubmittedCount() + ingest.getRefusedCount() > 0) {
+            source.sendSuccess(() -> Component.literal(
+                    "§7  Ingest queue: §f" + ingest.getQueuedCount() + " §7superseded: §f"
+                            + ingest.getSupersededCount() + " §7dropped (queue full): §f" + ingest.getRefusedCount()), false);
+        }
+        if (SkinIngest.getProcessedCount() + SkinIngest.getRejectedCount() > 0) {
+            source.sendSuccess(() -> Component.literal(
+                    "§7  Uploads canonicalized: §f" + SkinIngest.getProcessedCount() + " §7rejected: §f"
+                            + SkinIngest.getRejectedCount() + " §7(" + (SkinIngest.getBytesIn() / 1024) + " KB -> "
+                            + (SkinIngest.getBytesOut() / 1024) + " KB, " + SkinIngest.getEncodeMillis() + " ms)"), false);
+        }
+        SkinTierCache tiers = ServerSkinHandler.getTierCache();
+        if (tiers.size() > 0) {
+            source.sendSuccess(() -> Component.literal(
+                    "§7  Downscaled tiers: §f" + tiers.size() + " §7skins (" + (tiers.getTotalBytes() / 1024)
+                            + " KB, " + tiers.getBuilds() + " rebuilt from stored skins)"), false);
+        }
+        SkinPayloadCache payloads = ServerSkinHandler.getPayloadCache();
+        if (payloads.size() > 0) {
+            source.sendSuccess(() -> Component.literal(
+                    "§7  Compressed payloads: §f" + payloads.size() + " §7skins (" + (payloads.getTotalBytes() / 1024)
+                            + " KB, " + payloads.getCompressions() + " compressed)"), false);
+        }
+        if (SkinCompression.getAttempts() > 0) {
+            long raw = SkinCompression.getRawBytes();
+            long encoded = SkinCompression.getEncodedBytes();
+            source.sendSuccess(() -> Component.literal(
+                    "§7  Compression: §f" + SkinCompression.getCompressedCount() + "/" + SkinCompression.getAttempts()
+                            + " §7payloads, §f" + (raw / 1024) + " KB §7-> §f" + (encoded / 1024) + " KB §7("
+                            + (raw > 0 ? Math.round(encoded * 100.0 / raw) : 100) + "%), CPU §f"
+                            + SkinCompression.getCompressMillis() + " ms §7deflate / §f"
+                            + SkinCompression.getDecompressMillis() + " ms §7inflate"), false);
+        }
+        
+        SkinStore localStore = ServerSkinHandler.getLocalStore();
+        source.sendSuccess(() -> Component.literal(
+                "§7  Local store: " + (localStore != null ? "§f" + localStore.size() + " skins" : "§cDisabled")), false);
         source.sendSuccess(() -> Component.literal(
                 "§7  API configured: " + (apiConfigured ? "§aYes" : "§cNo")), false);
         
-        if (!apiConfigured) {
+        SkinWriteQueue writeQueue = ServerSkinHandler.getWriteQueue();
+        if (writeQueue != null) {
+            source.sendSuccess(() -> Component.literal(
+                    "§7  API writes pending: §f" + writeQueue.getPendingCount() + " §7in flight: §f"
+                            + writeQueue.getInFlightCount() + " §7coalesced: §f" + writeQueue.getCoalescedCount()
+                            + " §7skipped: §f" + writeQueue.getSkippedCount()), false);
+            source.sendSuccess(() -> Component.literal(
+                    "§7  API retries: §f" + writeQueue.getRetryCount() + " §7abandoned: §f"
+                            + writeQueue.getAbandonedCount()), false);
+        }
+        
+        if (!apiConfigured && localStore == null) {
             source.sendSuccess(() -> Component.literal(
                     "§e  Warning: Skins will not persist across restarts!"), false);
         }
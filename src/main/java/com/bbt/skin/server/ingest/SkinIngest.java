@@ -0,0 +1,201 @@
+package com.bbt.skin.server.ingest;
+
+import com.bbt.skin.BBTSkin;
+import com.bbt.skin.common.data.SkinHashing;
+import com.bbt.skin.common.image.PngEncoder;
+import com.bbt.skin.common.image.PngProbe;
+import com.bbt.skin.common.image.SkinDimensions;
+import com.bbt.skin.common.image.SkinDownscaler;
+import com.bbt.skin.common.network.NetworkConstants;
+import org.jetbrains.annotations.Nullable;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ingest stage for uploaded skins.
+ * Decodes and validates the upload, then re-encodes the pixels as a canonical PNG
+ * (metadata stripped, per-row filters, maximum compression). Identical pixels always give
+ * identical bytes, so the canonical form is what gets hashed, stored, persisted and sent.
+ * High-resolution skins also get downscaled tiers (halving down to 64) for clients that
+ * cannot display the full image.
+ * Pixels are read from the decoded image row by row, never copied out whole, and only one
+ * large image is decoded at a time across all workers.
+ */
+public final class SkinIngest {
+    
+    // Images this large take 16 MB or more once decoded (256 MB at 8192x8192)
+    private static final long LARGE_IMAGE_PIXELS = 2048L * 2048;
+    private static final Semaphore largeImages = new Semaphore(1);
+    
+    private static final AtomicLong processed = new AtomicLong();
+    private static final AtomicLong rejected = new AtomicLong();
+    private static final AtomicLong bytesIn = new AtomicLong();
+    private static final AtomicLong bytesOut = new AtomicLong();
+    private static final AtomicLong encodeNanos = new AtomicLong();
+    
+    /**
+     * A validated skin in canonical form; dimensions come from the image itself
+     * @param hash content hash of the canonical image
+     * @param sourceHash content hash of the bytes as uploaded
+     * @param tiers downscaled versions, largest first (empty for 64 pixel skins)
+     */
+    public record Result(byte[] imageData, String hash, String sourceHash, int width, int height, List<Tier> tiers) {
+    }
+    
+    /**
+     * A downscaled version of a skin, canonically encoded and identified by its own hash
+     */
+    public record Tier(String hash, byte[] imageData, int width, int height) {
+    }
+    
+    private SkinIngest() {}
+    
+    /**
+     * Validate and canonicalize an uploaded skin
+     * @return the canonical skin, or null if the upload is not an acceptable skin image
+     */
+    @Nullable
+    public static Result process(byte[] uploaded) {
+        long start = System.nanoTime();
+        Result result = canonicalize(uploaded);
+        encodeNanos.addAndGet(System.nanoTime() - start);
+        
+        if (result == null) {
+            rejected.incrementAndGet();
+            return null;
+        }
+        processed.incrementAndGet();
+        bytesIn.addAndGet(uploaded.length);
+        bytesOut.addAndGet(result.imageData().length);
+        return result;
+    }
+    
+    @Nullable
+    private static Result canonicalize(byte[] uploaded) {
+        if (uploaded.length == 0 || uploaded.length > NetworkConstants.MAX_SKIN_SIZE) return null;
+        
+        try {
+            // Check the header and chunk structure before decoding so oversized images are never expanded
+            PngProbe.Info png = PngProbe.probe(uploaded);
+            int width = png.width();
+            int height = png.height();
+            if (!SkinDimensions.isValid(width, height)) {
+                BBTSkin.LOGGER.warn("Rejected skin upload: invalid dimensions {}x{}", width, height);
+                return null;
+            }
+            
+            boolean large = isLarge(width, height);
+            if (large) largeImages.acquireUninterruptibly();
+            try {
+                BufferedImage image = ImageIO.read(new ByteArrayInputStream(uploaded));
+                if (image == null || image.getWidth() != width || image.getHeight() != height) return null;
+                PngEncoder.Rows rows = SkinDownscaler.rowsOf(image);
+                byte[] encoded = PngEncoder.encode(rows, width, height);
+                return new Result(encoded, SkinHashing.sha256(encoded), SkinHashing.sha256(uploaded),
+                        width, height, buildTiers(rows, width, height));
+            } catch (OutOfMemoryError e) {
+                BBTSkin.LOGGER.warn("Rejected skin upload: not enough memory to process a {}x{} image", width, height);
+                return null;
+            } finally {
+                if (large) largeImages.release();
+            }
+        } catch (IOException | RuntimeException e) {
+            BBTSkin.LOGGER.warn("Rejected skin upload: not a readable PNG ({})", e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * Downscaled tiers of a canonical skin, e.g. after it was loaded from a store
+     * @return the tiers, largest first, or an empty list if the image has none or cannot be read
+     */
+    public static List<Tier> buildTiers(byte[] canonical) {
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(canonical))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) return List.of();
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                // Read the size first so images without tiers are never decoded
+                if (!isTiered(width, height)) return List.of();
+                
+                boolean large = isLarge(width, height);
+                if (large) largeImages.acquireUninterruptibly();
+                try {
+                    BufferedImage image = reader.read(0);
+                    return buildTiers(SkinDownscaler.rowsOf(image), width, height);
+                } finally {
+                    if (large) largeImages.release();
+                }
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException | RuntimeException e) {
+            BBTSkin.LOGGER.warn("Failed to build skin tiers: {}", e.getMessage());
+            return List.of();
+        } catch (OutOfMemoryError e) {
+            BBTSkin.LOGGER.warn("Failed to build skin tiers: not enough memory to decode the image");
+            return List.of();
+        }
+    }
+    
+    private static List<Tier> buildTiers(PngEncoder.Rows rows, int width, int height) {
+        if (!isTiered(width, height)) return List.of();
+        
+        List<Tier> tiers = new ArrayList<>();
+        // The first step reads the decoded image directly instead of copying all its pixels
+        int[] pixels = null;
+        while (width > SkinDownscaler.MIN_RESOLUTION && width % 2 == 0) {
+            pixels = pixels == null ? SkinDownscaler.halve(rows, width, height)
+                    : SkinDownscaler.halve(pixels, width, height);
+            width /= 2;
+            height /= 2;
+            byte[] encoded = PngEncoder.encode(pixels, width, height);
+            tiers.add(new Tier(SkinHashing.sha256(encoded), encoded, width, height));
+        }
+        return tiers;
+    }
+    
+    /**
+     * Only high-resolution squares are tiered; 64x64 and legacy 64x32 skins are sent as-is
+     */
+    private static boolean isTiered(int width, int height) {
+        return width == height && width > SkinDownscaler.MIN_RESOLUTION;
+    }
+    
+    private static boolean isLarge(int width, int height) {
+        return (long) width * height >= LARGE_IMAGE_PIXELS;
+    }
+    
+    public static long getProcessedCount() {
+        return processed.get();
+    }
+    
+    public static long getRejectedCount() {
+        return rejected.get();
+    }
+    
+    public static long getBytesIn() {
+        return bytesIn.get();
+    }
+    
+    public static long getBytesOut() {
+        return bytesOut.get();
+    }
+    
+    public static long getEncodeMillis() {
+        return encodeNanos.get() / 1_000_000;
+    }
+}
@@ -0,0 +1,152 @@
+package com.bbt.skin.server.ingest;
+
+import com.bbt.skin.BBTSkin;
+import net.minecraftforge.server.ServerLifecycleHooks;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Runs uploaded skins through {@link SkinIngest} off the server thread.
+ * Uploads arrive from Netty threads; decompression, validation, re-encoding, hashing and
+ * tier building run on a small pool of workers with a bounded queue, and only the
+ * result is handed to the server thread to be stored and broadcast.
+ * When a player uploads again before an earlier upload is published, the earlier one
+ * is dropped, so results finishing out of order never overwrite a newer skin.
+ * Accepted skins are also handed to a prepare step on the worker (e.g. compressing
+ * their payloads for transfer) before they are published.
+ */
+public class SkinIngestPipeline {
+
+    private final ThreadPoolExecutor workers;
+    private final Consumer<SkinIngest.Result> prepare;
+    // Player -> ticket of the newest upload still being processed
+    private final Map<UUID, Long> latest = new ConcurrentHashMap<>();
+    private final AtomicLong tickets = new AtomicLong();
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong refused = new AtomicLong();
+    private final AtomicLong superseded = new AtomicLong();
+
+    public SkinIngestPipeline(int threads, int queueSize, Consumer<SkinIngest.Result> prepare) {
+        this.prepare = prepare;
+        AtomicInteger counter = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize), r -> {
+                    Thread thread = new Thread(r, "BBTSkin-Ingest-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.NORM_PRIORITY - 1);
+                    return thread;
+                });
+    }
+
+    /**
+     * Process an upload and publish the result on the server thread.
+     * May be called from any thread.
+     * @param upload produces the uploaded PNG on the worker (e.g. by inflating it), or null if it cannot
+     * @param publish receives the canonical skin, or null if the upload was rejected
+     * @return false if the queue is full and the upload was dropped
+     */
+    public boolean submit(UUID playerUUID, Supplier<byte[]> upload, Consumer<SkinIngest.Result> publish) {
+        long ticket = tickets.incrementAndGet();
+        latest.put(playerUUID, ticket);
+        try {
+            workers.execute(() -> process(playerUUID, ticket, upload, publish));
+        } catch (RejectedExecutionException e) {
+            latest.remove(playerUUID, ticket);
+            refused.incrementAndGet();
+            return false;
+        }
+        submitted.incrementAndGet();
+        return true;
+    }
+
+    private void process(UUID playerUUID, long ticket, Supplier<byte[]> upload, Consumer<SkinIngest.Result> publish) {
+        if (!isCurrent(playerUUID, ticket)) {
+            superseded.incrementAndGet();
+            return;
+        }
+
+        SkinIngest.Result result = null;
+        try {
+            byte[] uploaded = upload.get();
+            if (uploaded != null) {
+                result = SkinIngest.process(uploaded);
+            }
+            if (result != null) {
+                prepare.accept(result);
+            }
+        } catch (RuntimeException | OutOfMemoryError e) {
+            // Still published so the upload does not stay pending
+            BBTSkin.LOGGER.error("Skin ingest failed", e);
+        }
+
+        var server = ServerLifecycleHooks.getCurrentServer();
+        if (server == null) return;
+
+        @Nullable SkinIngest.Result canonical = result;
+        server.execute(() -> {
+            // A newer upload or a reset since then wins
+            if (!latest.remove(playerUUID, ticket)) {
+                superseded.incrementAndGet();
+                return;
+            }
+            publish.accept(canonical);
+        });
+    }
+
+    /**
+     * Run other image work (e.g. building tiers of a stored skin) on the same workers and
+     * hand its result to the server thread
+     * @return false if the queue is full and nothing was started
+     */
+    public <T> boolean execute(Supplier<T> work, Consumer<T> publish) {
+        try {
+            workers.execute(() -> {
+                T result = work.get();
+                var server = ServerLifecycleHooks.getCurrentServer();
+                if (server != null) {
+                    server.execute(() -> publish.accept(result));
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            refused.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    private boolean isCurrent(UUID playerUUID, long ticket) {
+        Long current = latest.get(playerUUID);
+        return current != null && current == ticket;
+    }
+
+    /**
+     * Drop any upload of this player that is still being processed (e.g. after a reset)
+     */
+    public void cancel(UUID playerUUID) {
+        latest.remove(playerUUID);
+    }
+
+    public int getQueuedCount() {
+        return workers.getQueue().size() + workers.getActiveCount();
+    }
+
+    public long getSubmittedCount() {
+        return submitted.get();
+    }
+
+    public long getRefusedCount() {
+        return refused.get();
+    }
+
+    public long getSupersededCount() {
+        return superseded.get();
+    }
+}
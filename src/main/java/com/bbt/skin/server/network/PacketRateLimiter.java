@@ -0,0 +1,114 @@
+package com.bbt.skin.server.network;
+
+import java.util.*;
+
+/**
+ * Per-player token buckets for client packets that make the server do expensive work:
+ * a skin sync is broadcast to every player and written to the API, so one client
+ * sending them in a loop would otherwise multiply into traffic for everyone.
+ * Each kind of packet has its own sustained rate and burst. Buckets refill with
+ * elapsed time and are forgotten when the player leaves.
+ * Thread-safe: upload packets are checked on Netty threads.
+ */
+public class PacketRateLimiter {
+
+    public enum Kind {
+        // Skin syncs, chunked upload starts and resets: each one is broadcast
+        SYNC,
+        // Individual chunks of an upload
+        UPLOAD_CHUNK,
+        // Requests for another player's skin
+        REQUEST
+    }
+
+    // Tokens are kept per minute of refill time so per-minute and per-second rates stay integral
+    private static final long PACKET_COST = 60_000;
+    // Refill more than this at once is pointless: every bucket is full by then
+    private static final long MAX_REFILL_MS = 3_600_000;
+
+    private final Map<UUID, PlayerBuckets> players = new HashMap<>();
+    private final long[] perMinute = new long[Kind.values().length];
+    private final long[] burst = new long[Kind.values().length];
+    private final long[] allowed = new long[Kind.values().length];
+    private final long[] dropped = new long[Kind.values().length];
+    private long kicks = 0;
+
+    private static class PlayerBuckets {
+        final TokenBucket[] buckets;
+        long lastRefill;
+
+        PlayerBuckets(long[] burst, long now) {
+            this.buckets = new TokenBucket[burst.length];
+            for (int i = 0; i < burst.length; i++) {
+                buckets[i] = new TokenBucket(burst[i] * PACKET_COST);
+            }
+            this.lastRefill = now;
+        }
+    }
+
+    /**
+     * Set the sustained rate (packets per minute) and burst (packets) of one kind.
+     * Players seen before keep their current tokens.
+     */
+    public synchronized void setLimit(Kind kind, long packetsPerMinute, long burstPackets) {
+        perMinute[kind.ordinal()] = Math.max(1, packetsPerMinute);
+        burst[kind.ordinal()] = Math.max(1, burstPackets);
+        for (PlayerBuckets player : players.values()) {
+            player.buckets[kind.ordinal()].setCapacity(burst[kind.ordinal()] * PACKET_COST);
+        }
+    }
+
+    /**
+     * Take one packet's worth of tokens
+     * @return false if the player is over the limit for this kind of packet
+     */
+    public synchronized boolean tryAcquire(UUID player, Kind kind, long now) {
+        PlayerBuckets buckets = players.computeIfAbsent(player, k -> new PlayerBuckets(burst, now));
+        long elapsed = Math.min(MAX_REFILL_MS, now - buckets.lastRefill);
+        if (elapsed > 0) {
+            // elapsed ms * packets per minute = tokens, at PACKET_COST tokens per packet
+            for (int i = 0; i < buckets.buckets.length; i++) {
+                buckets.buckets[i].refill(elapsed * perMinute[i]);
+            }
+            buckets.lastRefill = now;
+        }
+
+        if (buckets.buckets[kind.ordinal()].tryConsume(PACKET_COST)) {
+            allowed[kind.ordinal()]++;
+            return true;
+        }
+        dropped[kind.ordinal()]++;
+        return false;
+    }
+
+    public synchronized void removePlayer(UUID player) {
+        players.remove(player);
+    }
+
+    /**
+     * Count a player disconnected under the kick policy
+     */
+    public synchronized void recordKick() {
+        kicks++;
+    }
+
+    public synchronized long getKickCount() {
+        return kicks;
+    }
+
+    public synchronized long getAllowedCount(Kind kind) {
+        return allowed[kind.ordinal()];
+    }
+
+    public synchronized long getDroppedCount(Kind kind) {
+        return dropped[kind.ordinal()];
+    }
+
+    public synchronized long getDroppedCount() {
+        long total = 0;
+        for (long count : dropped) {
+            total += count;
+        }
+        return total;
+    }
+}
@@ -1,36 +1,120 @@
 package com.bbt.skin.server.network;
 
 import com.bbt.skin.BBTSkin;
+import com.bbt.skin.common.config.BBTSkinConfig;
+import com.bbt.skin.common.image.SkinDownscaler;
 import com.bbt.skin.common.network.NetworkHandler;
+import com.bbt.skin.common.network.packet.SkinAnnouncePacket;
+import com.bbt.skin.common.network.packet.SkinCapabilitiesPacket;
+import com.bbt.skin.common.network.packet.SkinChunkPacket;
+import com.bbt.skin.common.network.packet.SkinOfferReplyPacket;
 import com.bbt.skin.common.network.packet.SkinResponsePacket;
+import com.bbt.skin.common.network.packet.SkinResponseChunkPacket;
+import com.bbt.skin.common.data.SkinHashing;
 import com.bbt.skin.server.api.SkinApiClient;
+import com.bbt.skin.server.api.SkinWriteJournal;
+import com.bbt.skin.server.api.SkinWriteQueue;
+import com.bbt.skin.server.ingest.SkinIngest;
+import com.bbt.skin.server.ingest.SkinIngestPipeline;
+import com.bbt.skin.server.store.LocalSkinStore;
+import com.bbt.skin.server.store.SkinCache;
+import com.bbt.skin.server.store.SkinPayloadCache;
+import com.bbt.skin.server.store.SkinStore;
+import com.bbt.skin.server.store.SkinTierCache;
+import com.bbt.skin.server.store.StoredSkin;
+import net.minecraft.network.chat.Component;
+import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.level.ServerPlayer;
+import net.minecraftforge.event.TickEvent;
 import net.minecraftforge.event.entity.player.PlayerEvent;
+import net.minecraftforge.event.server.ServerStartingEvent;
+import net.minecraftforge.event.server.ServerStoppingEvent;
 import net.minecraftforge.eventbus.api.SubscribeEvent;
 import net.minecraftforge.fml.common.Mod;
+import net.minecraftforge.fml.loading.FMLPaths;
 import net.minecraftforge.server.ServerLifecycleHooks;
+import org.jetbrains.annotations.Nullable;
 
-import net.minecraftforge.event.TickEvent;
-
+import java.io.IOException;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
 /**
  * Server-side handler for skin synchronization (Forge)
- * Stores skins in memory and persists to Cloudflare Worker API
+ * Stores skins in memory, backed by a local disk store and the Cloudflare Worker API
  */
 @Mod.EventBusSubscriber(modid = BBTSkin.MOD_ID)
 public class ServerSkinHandler {
     
-    // In-memory skin storage
-    private static final Map<UUID, PlayerSkinData> playerSkins = new ConcurrentHashMap<>();
+    // In-memory skin storage: bounded LRU, online players pinned, offline re-fetched from API
+    private static final SkinCache playerSkins = new SkinCache(
+            Math.max(1, BBTSkinConfig.get().getServerSkinCacheMb()) * 1024L * 1024L);
+
+    // Who tracks whom, and which skin versions each client already holds
+    private static final SkinInterestTracker interest = new SkinInterestTracker();
+    
+    // Deflated payloads of large skins, compressed once on the ingest workers
+    private static final SkinPayloadCache payloads = new SkinPayloadCache(
+            Math.max(1, BBTSkinConfig.get().getServerPayloadCacheMb()) * 1024L * 1024L);
+
+    // Decodes and canonicalizes uploads off the server thread
+    private static final SkinIngestPipeline ingest = new SkinIngestPipeline(
+            Math.max(1, BBTSkinConfig.get().getIngestWorkerThreads()),
+            Math.max(1, BBTSkinConfig.get().getIngestQueueSize()),
+            ServerSkinHandler::compressPayloads);
+
+    // Paces outbound skin bytes across ticks
+    private static final SkinTransferScheduler transfers = new SkinTransferScheduler(interest, payloads, ingest,
+            Math.max(1, BBTSkinConfig.get().getTransferGlobalKbPerTick()) * 1024L,
+            Math.max(1, BBTSkinConfig.get().getTransferPlayerKbPerTick()) * 1024L,
+            BBTSkinConfig.get().getTransferBackoffMspt());
+
+    // Downscaled versions of high-resolution skins for clients that display less
+    private static final SkinTierCache skinTiers = new SkinTierCache(
+            Math.max(1, BBTSkinConfig.get().getServerTierCacheMb()) * 1024L * 1024L, payloads);
+
+    // Per-player limits on syncs, upload chunks and skin requests
+    private static final PacketRateLimiter rateLimiter = createRateLimiter();
 
-    // Pending join sync: UUID -> ticks remaining before sending existing skins
-    private static final Map<UUID, Integer> pendingJoinSync = new ConcurrentHashMap<>();
-    private static final int JOIN_SYNC_DELAY_TICKS = 40; // ~2 seconds
+    // Which uploaded bytes produced each online player's current skin, so unchanged skins are not uploaded again.
+    // Filled from the local store or API on join and dropped on leave.
+    private static final Map<UUID, UploadSource> uploadSources = new HashMap<>();
+    private static long matchedOffers = 0;
+    private static long unchangedUploads = 0;
+
+    /**
+     * Hash of the bytes a player uploaded and of the canonical skin they became
+     */
+    private record UploadSource(String sourceHash, String skinId) {
+    }
+
+    // What each connected client negotiated through SkinCapabilitiesPacket
+    private static final Map<UUID, ClientCapabilities> clientCapabilities = new HashMap<>();
+
+    /**
+     * Shared transfer features, the largest skin resolution a client wants to receive
+     * and the chunk size used for transfers to it
+     */
+    private record ClientCapabilities(int features, int maxResolution, int chunkSize) {
+    }
+    
+    // Smallest response chunk size accepted from a client, so a tiny value cannot flood it with packets
+    private static final int MIN_RESPONSE_CHUNK_SIZE = 4096;
+
+    // Local disk store (opened while the server is running)
+    private static SkinStore localStore = null;
 
     // API client (initialized when config is loaded)
     private static SkinApiClient apiClient = null;
+    private static SkinWriteQueue writeQueue = null;
+    private static final long WRITE_QUEUE_DRAIN_MS = 10000;
+    
+    // Players the API recently had no skin for, and until when not to ask again (server thread)
+    private static final Map<UUID, Long> apiMisses = new HashMap<>();
+    // Players whose skin is being fetched for a request, with everyone waiting for it (server thread)
+    private static final Map<UUID, Set<ServerPlayer>> apiLookups = new HashMap<>();
+    private static final long API_MISS_TTL_MS = 60_000;
+    private static final int MAX_API_MISSES = 4096;
     
     /**
      * Initialize API client with config
@@ -38,38 +122,51 @@ public class ServerSkinHandler {
     public static void initializeApi(String baseUrl, String apiKey) {
         if (baseUrl != null && !baseUrl.isEmpty() && apiKey != null && !apiKey.isEmpty()) {
             apiClient = new SkinApiClient(baseUrl, apiKey);
+            writeQueue = new SkinWriteQueue(apiClient, BBTSkinConfig.get().getApiFlushIntervalSeconds(),
+                    openWriteJournal(), ServerSkinHandler::loadPendingWriteBody);
             BBTSkin.LOGGER.info("BBTSkin API client initialized: {}", baseUrl);
-            
-            // Load all skins from API on startup
-            loadAllSkinsFromApi();
+
         } else {
             BBTSkin.LOGGER.warn("BBTSkin API not configured - skins will not persist across restarts");
         }
     }
     
     /**
-     * Load all skins from API (called on server start)
+     * Open the journal of unconfirmed API writes, or null if it cannot be opened
      */
-    private static void loadAllSkinsFromApi() {
-        if (apiClient == null) return;
+    private static SkinWriteJournal openWriteJournal() {
+        try {
+            return SkinWriteJournal.open(FMLPaths.GAMEDIR.get().resolve("bbtskin").resolve("server-store")
+                    .resolve("api-journal.log"));
+        } catch (IOException e) {
+            BBTSkin.LOGGER.error("Failed to open skin write journal - failed API writes will not be retried after restart", e);
+            return null;
+        }
+    }
+    
+    /**
+     * Find the image bytes of a journaled API save in the cache or local store
+     */
+    private static byte[] loadPendingWriteBody(UUID playerUUID, String hash) {
+        PlayerSkinData cached = playerSkins.peek(playerUUID);
+        if (cached != null && cached.skinId.equals(hash)) {
+            return cached.imageData;
+        }
         
-        apiClient.getAllSkins().thenAccept(skins -> {
-            for (SkinApiClient.SkinApiResponse skin : skins) {
-                if (skin.imageData != null) {
-                    PlayerSkinData data = new PlayerSkinData(
-                            skin.uuid, skin.imageData, skin.slim, 
-                            skin.name, skin.width, skin.height
-                    );
-                    playerSkins.put(UUID.fromString(skin.uuid), data);
-                    BBTSkin.LOGGER.info("Loaded skin from API for: {}", skin.name);
-                }
+        SkinStore store = localStore;
+        if (store != null) {
+            StoredSkin stored = store.load(playerUUID);
+            if (stored != null && SkinHashing.sha256(stored.imageData()).equals(hash)) {
+                return stored.imageData();
             }
-            BBTSkin.LOGGER.info("Loaded {} skins from API", skins.size());
-        });
+        }
+        return null;
     }
     
     /**
-     * Data class for storing player skin information
+     * Data class for storing player skin information.
+     * The skinId is the SHA-256 content hash of the image, and imageData is the
+     * blob shared by every player using the same image.
      */
     public static class PlayerSkinData {
         public final String skinId;
@@ -91,32 +188,233 @@ public class ServerSkinHandler {
     }
     
     /**
-     * Handle skin sync from a player
+     * Open the local skin store when the server starts
      */
-    public static void handleSkinSync(ServerPlayer player, String skinId, byte[] skinData, 
-                                       boolean isSlim, String skinName, int width, int height) {
+    @SubscribeEvent
+    public static void onServerStarting(ServerStartingEvent event) {
+        if (!BBTSkinConfig.get().isLocalSkinStoreEnabled()) return;
+        
+        try {
+            localStore = LocalSkinStore.open(FMLPaths.GAMEDIR.get().resolve("bbtskin").resolve("server-store"));
+        } catch (IOException e) {
+            BBTSkin.LOGGER.error("Failed to open local skin store - falling back to API only", e);
+            localStore = null;
+            return;
+        }
+        
+        warmupRecentSkins(BBTSkinConfig.get().getStartupWarmupCount());
+    }
+    
+    /**
+     * Preload the skins of the most recently updated players from the local store.
+     * Everything else is loaded lazily when a player joins or is requested.
+     */
+    private static void warmupRecentSkins(int count) {
+        if (localStore == null || count <= 0) return;
+        
+        long start = System.currentTimeMillis();
+        int loaded = 0;
+        for (UUID playerUUID : localStore.recentPlayers(count)) {
+            if (loadFromLocalStore(playerUUID) != null) {
+                loaded++;
+            }
+        }
+        BBTSkin.LOGGER.info("Warmed up {} recent skins from local store in {}ms",
+                loaded, System.currentTimeMillis() - start);
+    }
+    
+    /**
+     * Flush and close the local skin store when the server stops
+     */
+    @SubscribeEvent
+    public static void onServerStopping(ServerStoppingEvent event) {
+        if (writeQueue != null) {
+            writeQueue.drain(WRITE_QUEUE_DRAIN_MS);
+        }
+        if (localStore != null) {
+            localStore.close();
+            localStore = null;
+        }
+    }
+    
+    /**
+     * Store a player's skin in the cache
+     */
+    private static PlayerSkinData storeSkin(UUID playerUUID, byte[] imageData, boolean isSlim,
+                                            String skinName, int width, int height) {
+        return playerSkins.put(playerUUID, imageData, isSlim, skinName, width, height);
+    }
+    
+    /**
+     * Store a player's skin in the cache and the local disk store
+     */
+    private static PlayerSkinData storeAndPersistLocally(UUID playerUUID, byte[] imageData, boolean isSlim,
+                                                         String skinName, int width, int height, long timestamp,
+                                                         String sourceHash) {
+        SkinStore store = localStore;
+        if (store != null) {
+            store.save(playerUUID, new StoredSkin(imageData, isSlim, skinName, width, height, timestamp, sourceHash));
+        }
+        return storeSkin(playerUUID, imageData, isSlim, skinName, width, height);
+    }
+    
+    /**
+     * Load a player's skin from the local disk store into the cache
+     */
+    private static StoredSkin loadFromLocalStore(UUID playerUUID) {
+        SkinStore store = localStore;
+        if (store == null) return null;
+        
+        StoredSkin stored = store.load(playerUUID);
+        if (stored != null) {
+            prepareTiers(storeSkin(playerUUID, stored.imageData(), stored.slim(), stored.name(),
+                    stored.width(), stored.height()));
+        }
+        return stored;
+    }
+    
+    private static PacketRateLimiter createRateLimiter() {
+        BBTSkinConfig config = BBTSkinConfig.get();
+        PacketRateLimiter limiter = new PacketRateLimiter();
+        limiter.setLimit(PacketRateLimiter.Kind.SYNC, config.getSkinSyncsPerMinute(), config.getSkinSyncBurst());
+        limiter.setLimit(PacketRateLimiter.Kind.UPLOAD_CHUNK, config.getUploadChunksPerSecond() * 60L,
+                config.getUploadChunkBurst());
+        limiter.setLimit(PacketRateLimiter.Kind.REQUEST, config.getSkinRequestsPerSecond() * 60L,
+                config.getSkinRequestBurst());
+        return limiter;
+    }
+    
+    /**
+     * Check a client packet against the player's rate limit. Over the limit the packet is
+     * dropped, or the player is disconnected if the config asks for it.
+     * May be called from Netty threads.
+     * @return true if the packet may be handled
+     */
+    public static boolean checkRateLimit(ServerPlayer player, PacketRateLimiter.Kind kind) {
+        if (rateLimiter.tryAcquire(player.getUUID(), kind, System.currentTimeMillis())) return true;
+        
+        if (BBTSkinConfig.get().isRateLimitKickEnabled()) {
+            BBTSkin.LOGGER.warn("Disconnecting {} for exceeding the {} rate limit",
+                    player.getName().getString(), kind);
+            rateLimiter.recordKick();
+            player.getServer().execute(() -> player.connection.disconnect(
+                    Component.literal("Sending skin data too quickly")));
+        } else {
+            BBTSkin.LOGGER.debug("Dropped {} packet from {}: over rate limit", kind, player.getName().getString());
+        }
+        return false;
+    }
+    
+    /**
+     * Handle skin sync from a player. Called on a Netty thread; the upload is decoded and
+     * canonicalized by the ingest workers and published on the server thread.
+     * @param upload produces the uploaded PNG, e.g. by inflating a compressed payload
+     * @param uploadSize size of the upload as received (for logging)
+     */
+    public static void handleSkinSync(ServerPlayer player, Supplier<byte[]> upload, int uploadSize,
+                                       boolean isSlim, String skinName) {
+        boolean queued = ingest.submit(player.getUUID(), upload, canonical -> {
+            if (canonical == null) {
+                BBTSkin.LOGGER.warn("Ignoring invalid skin '{}' from {}", skinName, player.getName().getString());
+                return;
+            }
+            publishSkin(player, canonical, uploadSize, isSlim, skinName);
+        });
+        if (!queued) {
+            BBTSkin.LOGGER.warn("Dropping skin upload from {}: ingest queue is full", player.getName().getString());
+        }
+    }
+    
+    /**
+     * Compress an accepted upload and its tiers for transfer (ingest worker)
+     */
+    private static void compressPayloads(SkinIngest.Result canonical) {
+        payloads.compress(canonical.hash(), canonical.imageData());
+        for (SkinIngest.Tier tier : canonical.tiers()) {
+            payloads.compress(tier.hash(), tier.imageData());
+        }
+    }
+    
+    /**
+     * Store a canonicalized upload, broadcast it and queue it for the API (server thread)
+     */
+    private static void publishSkin(ServerPlayer player, SkinIngest.Result canonical, int uploadSize,
+                                    boolean isSlim, String skinName) {
         UUID playerUUID = player.getUUID();
         String playerName = player.getName().getString();
+        uploadSources.put(playerUUID, new UploadSource(canonical.sourceHash(), canonical.hash()));
+        apiMisses.remove(playerUUID);
         
-        // Store in memory
-        PlayerSkinData data = new PlayerSkinData(skinId, skinData, isSlim, skinName, width, height);
-        playerSkins.put(playerUUID, data);
+        // Re-uploads of the skin we already hold (e.g. the first login after a restart) change nothing
+        PlayerSkinData current = currentSkin(playerUUID);
+        if (current != null && isSameSkin(current, canonical.hash(), isSlim, skinName)) {
+            unchangedUploads++;
+            BBTSkin.LOGGER.debug("Skin upload from {} matches the stored skin, nothing to publish", playerName);
+            return;
+        }
         
-        BBTSkin.LOGGER.info("Player {} uploaded skin: {} ({} bytes)", 
-                playerName, skinName, skinData.length);
+        // Store in memory (content-addressed; the hash replaces the client's skinId) and on disk
+        long timestamp = System.currentTimeMillis();
+        PlayerSkinData data = storeAndPersistLocally(playerUUID, canonical.imageData(), isSlim, skinName,
+                canonical.width(), canonical.height(), timestamp, canonical.sourceHash());
+        
+        skinTiers.put(data.skinId, canonical.tiers());
+        
+        BBTSkin.LOGGER.info("Player {} uploaded skin: {} ({} bytes, {} canonical, {} tiers)", 
+                playerName, skinName, uploadSize, canonical.imageData().length, canonical.tiers().size());
         
         // Broadcast to all other players
         broadcastSkinUpdate(player);
         
-        // Persist to API
-        if (apiClient != null) {
-            apiClient.saveSkin(playerUUID.toString(), playerName, skinData, isSlim, width, height)
-                    .thenAccept(success -> {
-                        if (success) {
-                            BBTSkin.LOGGER.info("Skin persisted to API for {}", playerName);
-                        }
-                    });
+        // Persist to API (coalesced, flushed in the background)
+        if (writeQueue != null) {
+            writeQueue.enqueueSave(playerUUID, playerName, data.skinId, canonical.sourceHash(), data.imageData,
+                    isSlim, data.width, data.height, timestamp);
+        }
+    }
+    
+    /**
+     * Handle a client offering its skin by hash: ask for the upload only if the stored
+     * skin did not come from exactly these bytes with the same model and name
+     */
+    public static void handleSkinOffer(ServerPlayer player, String sourceHash, boolean isSlim, String skinName) {
+        UUID playerUUID = player.getUUID();
+        UploadSource source = uploadSources.get(playerUUID);
+        PlayerSkinData current = currentSkin(playerUUID);
+        
+        boolean held = current != null && source != null && source.sourceHash().equals(sourceHash)
+                && isSameSkin(current, source.skinId(), isSlim, skinName);
+        if (held) {
+            matchedOffers++;
+            BBTSkin.LOGGER.debug("Skin offered by {} is already stored, skipping upload", player.getName().getString());
         }
+        NetworkHandler.sendToPlayer(new SkinOfferReplyPacket(sourceHash, !held), player);
+    }
+    
+    /**
+     * A player's skin from memory or the local disk store
+     */
+    private static PlayerSkinData currentSkin(UUID playerUUID) {
+        PlayerSkinData data = playerSkins.get(playerUUID);
+        if (data == null && loadFromLocalStore(playerUUID) != null) {
+            data = playerSkins.get(playerUUID);
+        }
+        return data;
+    }
+    
+    /**
+     * Record which uploaded bytes produced a skin loaded from the store or API, if known
+     */
+    private static void rememberSource(UUID playerUUID, String sourceHash, @Nullable PlayerSkinData data) {
+        if (data != null && sourceHash != null && !sourceHash.isEmpty()) {
+            uploadSources.put(playerUUID, new UploadSource(sourceHash, data.skinId));
+        } else {
+            uploadSources.remove(playerUUID);
+        }
+    }
+    
+    private static boolean isSameSkin(PlayerSkinData data, String skinId, boolean isSlim, String skinName) {
+        return data.skinId.equals(skinId) && data.isSlim == isSlim && Objects.equals(data.skinName, skinName);
     }
     
     /**
@@ -130,32 +428,83 @@ public class ServerSkinHandler {
             BBTSkin.LOGGER.warn("Invalid UUID in skin request: {}", targetPlayerUUID);
             return;
         }
-        
-        // Check memory first
+        handleSkinRequest(requester, targetUUID);
+    }
+    
+    /**
+     * Handle a request for one player's skin (single or batched request)
+     */
+    public static void handleSkinRequest(ServerPlayer requester, UUID targetUUID) {
+        // Check memory first, then the local disk store
         PlayerSkinData skinData = playerSkins.get(targetUUID);
+        if (skinData == null && loadFromLocalStore(targetUUID) != null) {
+            skinData = playerSkins.get(targetUUID);
+        }
         if (skinData != null) {
-            sendSkinToPlayer(requester, targetPlayerUUID, skinData);
+            deliverSkin(requester, targetUUID, skinData, false);
             return;
         }
         
-        // Try to fetch from API
-        if (apiClient != null) {
-            apiClient.getSkin(targetPlayerUUID).thenAccept(response -> {
-                if (response != null && response.imageData != null) {
-                    PlayerSkinData data = new PlayerSkinData(
-                            response.uuid, response.imageData, response.slim,
-                            response.name, response.width, response.height
-                    );
-                    playerSkins.put(targetUUID, data);
-                    
-                    // Send on main thread
-                    var server = ServerLifecycleHooks.getCurrentServer();
-                    if (server != null) {
-                        server.execute(() -> sendSkinToPlayer(requester, targetPlayerUUID, data));
-                    }
-                }
-            });
+        // Try to fetch from API, unless it recently had nothing; requests during a lookup share it
+        if (apiClient == null || isRecentApiMiss(targetUUID)) return;
+        Set<ServerPlayer> waiting = apiLookups.get(targetUUID);
+        if (waiting != null) {
+            waiting.add(requester);
+            return;
         }
+        waiting = new HashSet<>();
+        waiting.add(requester);
+        apiLookups.put(targetUUID, waiting);
+        
+        apiClient.getSkin(targetUUID.toString()).thenAccept(response -> {
+            PlayerSkinData data = null;
+            if (response != null && response.imageData != null) {
+                data = storeAndPersistLocally(targetUUID, response.imageData, response.slim,
+                        response.name, response.width, response.height, response.timestamp, response.sourceHash);
+                writeQueue.markPersisted(targetUUID, data.skinId);
+                prepareTiers(data);
+            }
+            
+            // Send on main thread
+            PlayerSkinData loaded = data;
+            var server = ServerLifecycleHooks.getCurrentServer();
+            if (server != null) {
+                server.execute(() -> finishApiLookup(targetUUID, loaded));
+            }
+        });
+    }
+    
+    /**
+     * Deliver a skin fetched from the API to everyone who asked for it meanwhile, or remember the miss
+     */
+    private static void finishApiLookup(UUID targetUUID, @Nullable PlayerSkinData data) {
+        Set<ServerPlayer> requesters = apiLookups.remove(targetUUID);
+        if (data == null) {
+            apiMisses.put(targetUUID, System.currentTimeMillis() + API_MISS_TTL_MS);
+            if (apiMisses.size() > MAX_API_MISSES) {
+                long now = System.currentTimeMillis();
+                apiMisses.values().removeIf(until -> until <= now);
+                if (apiMisses.size() > MAX_API_MISSES) apiMisses.clear();
+            }
+            return;
+        }
+        if (requesters == null) return;
+        for (ServerPlayer requester : requesters) {
+            if (!requester.hasDisconnected()) {
+                deliverSkin(requester, targetUUID, data, false);
+            }
+        }
+    }
+    
+    /**
+     * Whether the API recently had no skin for a player (server thread)
+     */
+    private static boolean isRecentApiMiss(UUID playerUUID) {
+        Long until = apiMisses.get(playerUUID);
+        if (until == null) return false;
+        if (until > System.currentTimeMillis()) return true;
+        apiMisses.remove(playerUUID);
+        return false;
     }
     
     /**
@@ -163,50 +512,206 @@ public class ServerSkinHandler {
      */
     public static void handleSkinReset(ServerPlayer player) {
         UUID playerUUID = player.getUUID();
+        ingest.cancel(playerUUID);
+        uploadSources.remove(playerUUID);
         playerSkins.remove(playerUUID);
+        if (localStore != null) {
+            localStore.delete(playerUUID);
+        }
         
         BBTSkin.LOGGER.info("Player {} reset their skin", player.getName().getString());
         
-        // Notify other players with empty skin packet
+        // Notify players holding this skin with an empty skin packet
         var server = ServerLifecycleHooks.getCurrentServer();
         if (server != null) {
             for (ServerPlayer other : server.getPlayerList().getPlayers()) {
-                if (!other.equals(player)) {
-                    SkinResponsePacket packet = new SkinResponsePacket(playerUUID.toString());
-                    NetworkHandler.sendToPlayer(packet, other);
+                if (!other.equals(player) && interest.hasAnyDelivered(other.getUUID(), playerUUID)) {
+                    sendSkinReset(other, playerUUID);
+                    interest.markDelivered(other.getUUID(), playerUUID, null);
                 }
             }
         }
         
         // Remove from API
-        if (apiClient != null) {
-            apiClient.deleteSkin(playerUUID.toString());
+        if (writeQueue != null) {
+            writeQueue.enqueueDelete(playerUUID);
+        }
+    }
+    
+    /**
+     * The version of a skin a viewer receives: the largest tier within its preferred resolution.
+     * Missing tiers are built on the ingest workers, never on the server thread.
+     * @param retry run on the server thread once missing tiers are ready
+     * @return null if the tiers are being built (retry follows), or the full image if the workers are saturated
+     */
+    @Nullable
+    private static PlayerSkinData viewFor(ServerPlayer viewer, PlayerSkinData data, Runnable retry) {
+        ClientCapabilities capabilities = clientCapabilities.get(viewer.getUUID());
+        if (capabilities == null) return data;
+        
+        PlayerSkinData view = skinTiers.forResolution(data, capabilities.maxResolution());
+        if (view != null) return view;
+        return skinTiers.build(data, ingest, retry) ? null : data;
+    }
+    
+    /**
+     * Start building the tiers of a skin loaded from a store before any viewer needs them
+     */
+    private static void prepareTiers(PlayerSkinData data) {
+        skinTiers.build(data, ingest, () -> { });
+    }
+    
+    /**
+     * Run a viewer's delivery again if the viewer is still online and the owner still wears this skin
+     */
+    private static Runnable redeliver(ServerPlayer viewer, UUID ownerUUID, String skinId, boolean force) {
+        UUID viewerUUID = viewer.getUUID();
+        MinecraftServer server = viewer.getServer();
+        return () -> {
+            ServerPlayer current = server.getPlayerList().getPlayer(viewerUUID);
+            PlayerSkinData data = playerSkins.peek(ownerUUID);
+            if (current != null && data != null && data.skinId.equals(skinId)) {
+                deliverSkin(current, ownerUUID, data, force);
+            }
+        };
+    }
+    
+    /**
+     * Announce a skin to a viewer unless it already holds this exact version.
+     * The image itself is queued once the client replies that it needs it, or right away
+     * if the client's reported cache shows it cannot have it.
+     * @return true if the skin was announced
+     */
+    private static boolean deliverSkin(ServerPlayer viewer, UUID ownerUUID, PlayerSkinData full, boolean force) {
+        UUID viewerUUID = viewer.getUUID();
+        if (viewerUUID.equals(ownerUUID)) return false;
+        PlayerSkinData data = viewFor(viewer, full, redeliver(viewer, ownerUUID, full.skinId, force));
+        // Announced once the tiers for this viewer are built
+        if (data == null) return false;
+        if (!force && interest.hasDelivered(viewerUUID, ownerUUID, data.skinId)) return false;
+        
+        boolean push = interest.hasInventory(viewerUUID) && !interest.holdsHash(viewerUUID, data.skinId);
+        NetworkHandler.sendToPlayer(new SkinAnnouncePacket(ownerUUID.toString(), data.skinId,
+                data.imageData.length, data.isSlim, data.skinName, data.width, data.height, push), viewer);
+        transfers.recordAnnounce();
+        interest.markDelivered(viewerUUID, ownerUUID, data.skinId);
+        
+        if (push) {
+            sendSkinToPlayer(viewer, ownerUUID, data);
+        }
+        return true;
+    }
+    
+    /**
+     * Handle a client's answer to a skin announce: send the image only if it is missing
+     */
+    public static void handleAnnounceReply(ServerPlayer viewer, String ownerUUIDString, String hash, boolean have) {
+        UUID ownerUUID;
+        try {
+            ownerUUID = UUID.fromString(ownerUUIDString);
+        } catch (IllegalArgumentException e) {
+            BBTSkin.LOGGER.warn("Invalid UUID in skin announce reply: {}", ownerUUIDString);
+            return;
+        }
+        
+        // Ignore answers to announces that were superseded or reset in the meantime
+        if (!interest.hasDelivered(viewer.getUUID(), ownerUUID, hash)) return;
+        PlayerSkinData full = playerSkins.get(ownerUUID);
+        if (full == null) return;
+        // The full image is announced when its tiers could not be built in time
+        PlayerSkinData data = full.skinId.equals(hash) ? full : viewFor(viewer, full, () -> {
+            ServerPlayer current = viewer.getServer().getPlayerList().getPlayer(viewer.getUUID());
+            if (current != null) handleAnnounceReply(current, ownerUUIDString, hash, have);
+        });
+        if (data == null || !data.skinId.equals(hash)) return;
+        
+        if (have) {
+            interest.markHeld(viewer.getUUID(), hash);
+            transfers.recordCacheHit(data.imageData.length);
+        } else {
+            sendSkinToPlayer(viewer, ownerUUID, data);
         }
     }
     
     /**
-     * Send skin data to a specific player (uses chunked sending for large skins)
+     * Handle a client's acknowledgement of chunks of a skin we are sending it
      */
-    private static void sendSkinToPlayer(ServerPlayer player, String ownerUUID, PlayerSkinData data) {
+    public static void handleChunkAck(ServerPlayer viewer, String ownerUUIDString, String skinId,
+                                      int received, int[] missing) {
+        UUID ownerUUID;
         try {
-            // Use NetworkHandler's chunked sending method
-            NetworkHandler.sendSkinToPlayer(
-                    ownerUUID,
-                    data.skinId,
-                    data.imageData,
-                    data.isSlim,
-                    data.skinName,
-                    data.width,
-                    data.height,
-                    player
-            );
-        } catch (Exception e) {
-            BBTSkin.LOGGER.error("Failed to send skin to player", e);
+            ownerUUID = UUID.fromString(ownerUUIDString);
+        } catch (IllegalArgumentException e) {
+            BBTSkin.LOGGER.warn("Invalid UUID in skin chunk ack: {}", ownerUUIDString);
+            return;
         }
+        transfers.onAck(viewer.getUUID(), ownerUUID, skinId, received, missing);
+    }
+    
+    /**
+     * Record the cached images a client reported after joining
+     */
+    public static void handleSkinInventory(ServerPlayer player, List<String> hashes) {
+        interest.addInventory(player.getUUID(), hashes);
+        BBTSkin.LOGGER.debug("{} reported {} cached skins", player.getName().getString(), hashes.size());
+    }
+    
+    /**
+     * Record the transfer features, preferred skin resolution and chunk size limit of a client,
+     * and answer with our features and the largest upload and chunk we accept
+     */
+    public static void handleClientCapabilities(ServerPlayer player, int features, int maxResolution,
+                                                int maxChunkSize) {
+        int serverFeatures = SkinCapabilitiesPacket.localFeatures();
+        // Never more than this build's clients accept, whatever the client claims
+        int chunkSize = Math.max(MIN_RESPONSE_CHUNK_SIZE,
+                Math.min(maxChunkSize, SkinResponseChunkPacket.MAX_RECEIVE_CHUNK_SIZE));
+        clientCapabilities.put(player.getUUID(), new ClientCapabilities(features & serverFeatures,
+                Math.max(SkinDownscaler.MIN_RESOLUTION, maxResolution), chunkSize));
+        
+        BBTSkinConfig config = BBTSkinConfig.get();
+        int maxUpload = config.isHighResSkinsEnabled() ? config.getMaxSkinResolution() : SkinDownscaler.MIN_RESOLUTION;
+        NetworkHandler.sendToPlayer(new SkinCapabilitiesPacket(serverFeatures, maxUpload,
+                SkinChunkPacket.MAX_CHUNK_SIZE), player);
+    }
+    
+    private static boolean clientSupports(ServerPlayer player, int feature) {
+        ClientCapabilities capabilities = clientCapabilities.get(player.getUUID());
+        return capabilities != null && (capabilities.features() & feature) != 0;
+    }
+    
+    /**
+     * Queue skin data for a specific player (paced by the transfer scheduler).
+     * Clients that have not sent their capabilities get raw payloads in fixed-size chunks.
+     */
+    private static void sendSkinToPlayer(ServerPlayer player, UUID ownerUUID, PlayerSkinData data) {
+        ClientCapabilities capabilities = clientCapabilities.get(player.getUUID());
+        int chunkSize = capabilities != null ? capabilities.chunkSize() : SkinResponseChunkPacket.MAX_CHUNK_SIZE;
+        transfers.enqueue(player, ownerUUID, data, clientSupports(player, SkinCapabilitiesPacket.FEATURE_DEFLATE),
+                chunkSize, clientSupports(player, SkinCapabilitiesPacket.FEATURE_COMPACT_CHUNKS));
+        interest.markHeld(player.getUUID(), data.skinId);
+    }
+    
+    /**
+     * Send a reset notice, dropping any queued transfer it would otherwise race with
+     */
+    private static void sendSkinReset(ServerPlayer player, UUID ownerUUID) {
+        transfers.cancel(player.getUUID(), ownerUUID);
+        NetworkHandler.sendToPlayer(new SkinResponsePacket(ownerUUID.toString()), player);
+    }
+    
+    /**
+     * Whether a viewer already holds the version of a skin it would receive.
+     * A version whose tiers are still being built is new to it.
+     */
+    private static boolean holdsView(ServerPlayer viewer, UUID ownerUUID, PlayerSkinData data) {
+        PlayerSkinData view = viewFor(viewer, data, () -> { });
+        return view != null && interest.hasDelivered(viewer.getUUID(), ownerUUID, view.skinId);
     }
     
     /**
-     * Broadcast skin update to all other players
+     * Push a skin update to the players currently tracking its owner.
+     * Other clients pick up the new version when they start tracking the owner.
      */
     private static void broadcastSkinUpdate(ServerPlayer source) {
         UUID sourceUUID = source.getUUID();
@@ -217,8 +722,14 @@ public class ServerSkinHandler {
         var server = ServerLifecycleHooks.getCurrentServer();
         if (server != null) {
             for (ServerPlayer other : server.getPlayerList().getPlayers()) {
-                if (!other.equals(source)) {
-                    sendSkinToPlayer(other, sourceUUID.toString(), data);
+                UUID otherUUID = other.getUUID();
+                if (interest.isTracking(otherUUID, sourceUUID)) {
+                    deliverSkin(other, sourceUUID, data, false);
+                } else if (interest.hasAnyDelivered(otherUUID, sourceUUID)
+                        && !holdsView(other, sourceUUID, data)) {
+                    // Invalidate the stale copy; the client pulls the new one when it needs it
+                    sendSkinReset(other, sourceUUID);
+                    interest.markDelivered(otherUUID, sourceUUID, null);
                 }
             }
         }
@@ -241,13 +752,15 @@ public class ServerSkinHandler {
     }
     
     /**
-     * Resync all skins to a specific player
+     * Resend the skins of every player the given player is tracking
      */
     public static int resyncSkinsToPlayer(ServerPlayer player) {
+        interest.clearDelivered(player.getUUID());
+        
         int count = 0;
-        for (Map.Entry<UUID, PlayerSkinData> entry : playerSkins.entrySet()) {
-            if (!entry.getKey().equals(player.getUUID())) {
-                sendSkinToPlayer(player, entry.getKey().toString(), entry.getValue());
+        for (UUID ownerUUID : interest.getTracked(player.getUUID())) {
+            PlayerSkinData data = playerSkins.get(ownerUUID);
+            if (data != null && deliverSkin(player, ownerUUID, data, true)) {
                 count++;
             }
         }
@@ -255,7 +768,7 @@ public class ServerSkinHandler {
     }
     
     /**
-     * Resync a specific player's skin to all others
+     * Resync a specific player's skin to everyone tracking or holding it
      */
     public static boolean resyncPlayerSkin(UUID playerUUID) {
         PlayerSkinData data = playerSkins.get(playerUUID);
@@ -265,8 +778,9 @@ public class ServerSkinHandler {
         if (server == null) return false;
         
         for (ServerPlayer player : server.getPlayerList().getPlayers()) {
-            if (!player.getUUID().equals(playerUUID)) {
-                sendSkinToPlayer(player, playerUUID.toString(), data);
+            if (interest.isTracking(player.getUUID(), playerUUID)
+                    || interest.hasAnyDelivered(player.getUUID(), playerUUID)) {
+                deliverSkin(player, playerUUID, data, true);
             }
         }
         
@@ -275,37 +789,67 @@ public class ServerSkinHandler {
     }
     
     /**
-     * Called when a player joins - queue delayed sync of existing skins
+     * A player came into another player's tracking range - send the skin if needed
+     */
+    @SubscribeEvent
+    public static void onStartTracking(PlayerEvent.StartTracking event) {
+        if (event.getEntity() instanceof ServerPlayer viewer && event.getTarget() instanceof ServerPlayer owner) {
+            interest.startTracking(viewer.getUUID(), owner.getUUID());
+            
+            PlayerSkinData data = playerSkins.get(owner.getUUID());
+            if (data != null) {
+                deliverSkin(viewer, owner.getUUID(), data, false);
+            }
+        }
+    }
+    
+    /**
+     * A player left another player's tracking range
+     */
+    @SubscribeEvent
+    public static void onStopTracking(PlayerEvent.StopTracking event) {
+        if (event.getEntity() instanceof ServerPlayer viewer && event.getTarget() instanceof ServerPlayer owner) {
+            interest.stopTracking(viewer.getUUID(), owner.getUUID());
+        }
+    }
+    
+    /**
+     * Called when a player joins - load their skin; distribution follows entity tracking.
+     * Skins of nearby players are queued as soon as tracking starts and sent nearest first.
      */
     @SubscribeEvent
     public static void onPlayerJoin(PlayerEvent.PlayerLoggedInEvent event) {
         if (event.getEntity() instanceof ServerPlayer player) {
-            // Queue delayed sync so the client's network channel is ready
-            pendingJoinSync.put(player.getUUID(), JOIN_SYNC_DELAY_TICKS);
-            BBTSkin.LOGGER.info("Queued skin sync for joining player {} ({}t delay)",
-                    player.getName().getString(), JOIN_SYNC_DELAY_TICKS);
+            // Keep the skin resident while the player is online
+            playerSkins.pin(player.getUUID());
+            apiMisses.remove(player.getUUID());
+
+            // Serve the joining player's skin from the local store right away
+            String uuid = player.getUUID().toString();
+            StoredSkin local = loadFromLocalStore(player.getUUID());
+            if (local != null) {
+                rememberSource(player.getUUID(), local.sourceHash(), playerSkins.get(player.getUUID()));
+                broadcastSkinUpdate(player);
+            }
+            long localTimestamp = local != null ? local.timestamp() : Long.MIN_VALUE;
 
-            // Check if the joining player has a stored skin in API
+            // Check if the API holds a newer skin (e.g. changed on another server)
             if (apiClient != null) {
-                String uuid = player.getUUID().toString();
                 apiClient.getSkin(uuid).thenAccept(response -> {
-                    if (response != null && response.imageData != null) {
-                        PlayerSkinData data = new PlayerSkinData(
-                                response.uuid, response.imageData, response.slim,
-                                response.name, response.width, response.height
-                        );
-                        playerSkins.put(player.getUUID(), data);
+                    if (response != null && response.imageData != null && response.timestamp > localTimestamp) {
+                        PlayerSkinData data = storeAndPersistLocally(player.getUUID(), response.imageData,
+                                response.slim, response.name, response.width, response.height, response.timestamp,
+                                response.sourceHash);
+                        writeQueue.markPersisted(player.getUUID(), data.skinId);
+                        prepareTiers(data);
 
-                        // Broadcast to others on main thread
+                        // Push to trackers on main thread
                         var server = ServerLifecycleHooks.getCurrentServer();
                         if (server != null) {
                             server.execute(() -> {
-                                for (ServerPlayer other : server.getPlayerList().getPlayers()) {
-                                    if (!other.equals(player)) {
-                                        sendSkinToPlayer(other, uuid, data);
-                                    }
-                                }
-                                BBTSkin.LOGGER.info("Loaded and broadcast skin for {} from API",
+                                rememberSource(player.getUUID(), response.sourceHash, data);
+                                broadcastSkinUpdate(player);
+                                BBTSkin.LOGGER.info("Loaded skin for {} from API",
                                         player.getName().getString());
                             });
                         }
@@ -314,34 +858,20 @@ public class ServerSkinHandler {
             }
         }
     }
-
+    
     /**
-     * Server tick handler - processes delayed join syncs
+     * Server tick handler - sends this tick's share of queued skin transfers
+     * and discards stalled uploads
      */
     @SubscribeEvent
     public static void onServerTick(TickEvent.ServerTickEvent event) {
         if (event.phase != TickEvent.Phase.END) return;
-        if (pendingJoinSync.isEmpty()) return;
-
+        
         var server = ServerLifecycleHooks.getCurrentServer();
-        if (server == null) return;
-
-        Iterator<Map.Entry<UUID, Integer>> it = pendingJoinSync.entrySet().iterator();
-        while (it.hasNext()) {
-            Map.Entry<UUID, Integer> entry = it.next();
-            int remaining = entry.getValue() - 1;
-            if (remaining <= 0) {
-                it.remove();
-                ServerPlayer player = server.getPlayerList().getPlayer(entry.getKey());
-                if (player != null) {
-                    int sent = resyncSkinsToPlayer(player);
-                    BBTSkin.LOGGER.info("Sent {} existing skins to player {} (delayed sync)",
-                            sent, player.getName().getString());
-                }
-            } else {
-                entry.setValue(remaining);
-            }
+        if (server != null) {
+            transfers.tick(server);
         }
+        SkinChunkPacket.sweepPendingUploads();
     }
     
     /**
@@ -349,9 +879,14 @@ public class ServerSkinHandler {
      */
     @SubscribeEvent
     public static void onPlayerLeave(PlayerEvent.PlayerLoggedOutEvent event) {
-        // Keep skin in memory - it's persisted to API
-        // Clean up any pending sync
-        pendingJoinSync.remove(event.getEntity().getUUID());
+        // Skin becomes evictable; it is persisted to API and re-fetched on demand
+        UUID playerUUID = event.getEntity().getUUID();
+        playerSkins.unpin(playerUUID);
+        interest.removePlayer(playerUUID);
+        transfers.removeRecipient(playerUUID);
+        clientCapabilities.remove(playerUUID);
+        uploadSources.remove(playerUUID);
+        rateLimiter.removePlayer(playerUUID);
     }
     
     /**
@@ -365,7 +900,77 @@ public class ServerSkinHandler {
      * Get all stored skins
      */
     public static Collection<Map.Entry<UUID, PlayerSkinData>> getAllSkins() {
-        return playerSkins.entrySet();
+        return playerSkins.snapshot();
+    }
+    
+    /**
+     * Get the server skin cache (for status reporting)
+     */
+    public static SkinCache getSkinCache() {
+        return playerSkins;
+    }
+    
+    /**
+     * Get the local disk store, or null if disabled or the server is not running
+     */
+    public static SkinStore getLocalStore() {
+        return localStore;
+    }
+    
+    /**
+     * Get the downscaled tier cache (for status reporting)
+     */
+    public static SkinTierCache getTierCache() {
+        return skinTiers;
+    }
+    
+    /**
+     * Get the compressed payload cache (for status reporting)
+     */
+    public static SkinPayloadCache getPayloadCache() {
+        return payloads;
+    }
+    
+    /**
+     * Get the client packet rate limiter (for status reporting)
+     */
+    public static PacketRateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+    
+    /**
+     * Skin offers answered without an upload since the server started
+     */
+    public static long getMatchedOfferCount() {
+        return matchedOffers;
+    }
+    
+    /**
+     * Uploads that matched the stored skin and were not published again
+     */
+    public static long getUnchangedUploadCount() {
+        return unchangedUploads;
+    }
+    
+    /**
+     * Get the upload ingest pipeline (for status reporting)
+     */
+    public static SkinIngestPipeline getIngestPipeline() {
+        return ingest;
+    }
+    
+    /**
+     * Get the outbound transfer scheduler (for status reporting)
+     */
+    public static SkinTransferScheduler getTransferScheduler() {
+        return transfers;
+    }
+    
+    /**
+     * Get the API write-behind queue, or null if the API is not configured
+     */
+    public static SkinWriteQueue getWriteQueue() {
+        return writeQueue;
     }
     
     /**
@@ -0,0 +1,149 @@
+package com.bbt.skin.server.network;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * Tracks which players each viewer can see and which skin versions it already received.
+ * Skins are pushed only to viewers tracking the owner's entity; everything else is pulled
+ * by the client on demand (tab list). Accessed from the server thread only.
+ */
+public class SkinInterestTracker {
+    
+    // Bound on image hashes remembered per client
+    private static final int MAX_HELD_HASHES = 4096;
+    
+    private final Map<UUID, ViewerState> viewers = new HashMap<>();
+    
+    private static class ViewerState {
+        final Set<UUID> tracking = new HashSet<>();
+        final Map<UUID, String> delivered = new HashMap<>();
+        // Images the client reported in its cache or received this session
+        final Set<String> heldHashes = new HashSet<>();
+        boolean inventoryReceived = false;
+    }
+    
+    private ViewerState viewer(UUID viewerUUID) {
+        return viewers.computeIfAbsent(viewerUUID, k -> new ViewerState());
+    }
+    
+    public void startTracking(UUID viewerUUID, UUID ownerUUID) {
+        viewer(viewerUUID).tracking.add(ownerUUID);
+    }
+    
+    public void stopTracking(UUID viewerUUID, UUID ownerUUID) {
+        ViewerState state = viewers.get(viewerUUID);
+        if (state != null) {
+            state.tracking.remove(ownerUUID);
+        }
+    }
+    
+    public boolean isTracking(UUID viewerUUID, UUID ownerUUID) {
+        ViewerState state = viewers.get(viewerUUID);
+        return state != null && state.tracking.contains(ownerUUID);
+    }
+    
+    /**
+     * Owners currently tracked by a viewer
+     */
+    public Set<UUID> getTracked(UUID viewerUUID) {
+        ViewerState state = viewers.get(viewerUUID);
+        return state != null ? Set.copyOf(state.tracking) : Set.of();
+    }
+    
+    /**
+     * Check whether a viewer already holds this exact skin version
+     */
+    public boolean hasDelivered(UUID viewerUUID, UUID ownerUUID, String hash) {
+        ViewerState state = viewers.get(viewerUUID);
+        return state != null && hash.equals(state.delivered.get(ownerUUID));
+    }
+    
+    /**
+     * Check whether a viewer holds any version of an owner's skin
+     */
+    public boolean hasAnyDelivered(UUID viewerUUID, UUID ownerUUID) {
+        ViewerState state = viewers.get(viewerUUID);
+        return state != null && state.delivered.containsKey(ownerUUID);
+    }
+    
+    public void markDelivered(UUID viewerUUID, UUID ownerUUID, @Nullable String hash) {
+        if (hash == null) {
+            ViewerState state = viewers.get(viewerUUID);
+            if (state != null) state.delivered.remove(ownerUUID);
+        } else {
+            viewer(viewerUUID).delivered.put(ownerUUID, hash);
+        }
+    }
+    
+    /**
+     * Forget a delivery that never completed, so the skin is announced and sent again
+     * the next time the viewer tracks or requests the owner. A newer delivery is kept.
+     */
+    public void forgetDelivery(UUID viewerUUID, UUID ownerUUID, String hash) {
+        ViewerState state = viewers.get(viewerUUID);
+        if (state == null) return;
+        state.delivered.remove(ownerUUID, hash);
+        state.heldHashes.remove(hash);
+    }
+    
+    /**
+     * Record the cached images a client reported after joining
+     */
+    public void addInventory(UUID viewerUUID, Collection<String> hashes) {
+        ViewerState state = viewer(viewerUUID);
+        state.inventoryReceived = true;
+        for (String hash : hashes) {
+            addHeld(state, hash);
+        }
+    }
+    
+    /**
+     * Record that a client holds (or is being sent) an image
+     */
+    public void markHeld(UUID viewerUUID, String hash) {
+        addHeld(viewer(viewerUUID), hash);
+    }
+    
+    private static void addHeld(ViewerState state, String hash) {
+        if (state.heldHashes.size() < MAX_HELD_HASHES) {
+            state.heldHashes.add(hash);
+        }
+    }
+    
+    /**
+     * Check whether a client is known to hold an image (by content hash)
+     */
+    public boolean holdsHash(UUID viewerUUID, String hash) {
+        ViewerState state = viewers.get(viewerUUID);
+        return state != null && state.heldHashes.contains(hash);
+    }
+    
+    /**
+     * Check whether a client reported its cached images, so unknown hashes are truly missing
+     */
+    public boolean hasInventory(UUID viewerUUID) {
+        ViewerState state = viewers.get(viewerUUID);
+        return state != null && state.inventoryReceived;
+    }
+    
+    /**
+     * Forget everything delivered to a viewer (forced resync)
+     */
+    public void clearDelivered(UUID viewerUUID) {
+        ViewerState state = viewers.get(viewerUUID);
+        if (state != null) state.delivered.clear();
+    }
+    
+    /**
+     * Drop all state for a player leaving the server
+     */
+    public void removePlayer(UUID playerUUID) {
+        viewers.remove(playerUUID);
+        for (ViewerState state : viewers.values()) {
+            state.tracking.remove(playerUUID);
+            state.delivered.remove(playerUUID);
+        }
+    }
+}
@@ -0,0 +1,469 @@
+package com.bbt.skin.server.network;
+
+import com.bbt.skin.BBTSkin;
+import com.bbt.skin.common.network.ChunkSendWindow;
+import com.bbt.skin.common.network.NetworkHandler;
+import com.bbt.skin.common.network.SkinCompression;
+import com.bbt.skin.common.network.packet.SkinTransferBeginPacket;
+import com.bbt.skin.common.network.packet.SkinTransferChunkPacket;
+import com.bbt.skin.server.ingest.SkinIngestPipeline;
+import com.bbt.skin.server.network.ServerSkinHandler.PlayerSkinData;
+import com.bbt.skin.server.store.SkinPayloadCache;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerPlayer;
+
+import java.util.*;
+
+/**
+ * Paces outbound skin transfers across server ticks.
+ * Each tick a global and a per-player byte budget are refilled; recipients are served
+ * one packet at a time in round-robin order so no connection starves the others, and
+ * the global budget shrinks while the server is running behind.
+ * Within a recipient's queue, skins of players it can see go first (nearest first),
+ * then smaller payloads, so a joining player sees the people around it quickly.
+ * Large skins go out deflated to recipients that accept compressed payloads, once the
+ * ingest workers have compressed them (see SkinPayloadCache); until then they go out raw.
+ * Recipients with compact chunks get a transfer's header once, then chunks that only
+ * carry its id and are written straight from the payload.
+ * Chunked transfers advance only as the client acknowledges them (see ChunkSendWindow);
+ * while one waits for acknowledgements, the recipient's next transfer may start, so a
+ * large skin does not hold up the small ones behind it.
+ * Accessed from the server thread only.
+ */
+public class SkinTransferScheduler {
+
+    // Budget scale never drops below this share while backing off
+    private static final double MIN_BACKOFF_FACTOR = 0.1;
+    private static final float SEVERE_MSPT = 50.0f;
+    // Distance granularity for prioritisation, so size breaks ties between nearby players
+    private static final double DISTANCE_BUCKET = 16.0;
+    // Transfers started per recipient at once
+    private static final int MAX_ACTIVE_TRANSFERS = 3;
+
+    private final Map<UUID, RecipientQueue> recipients = new LinkedHashMap<>();
+    private final SkinPayloadCache payloads;
+    private final SkinIngestPipeline workers;
+    private final SkinInterestTracker interest;
+    private final TokenBucket globalBucket;
+    private final long globalBytesPerTick;
+    private final long playerBytesPerTick;
+    private final float backoffMspt;
+
+    private int roundRobinOffset = 0;
+    // Ids of compact transfers; a begin packet always precedes a transfer's chunks,
+    // so a reused id simply replaces the header the client held for it
+    private int nextTransferId = 0;
+    private double lastBudgetFactor = 1.0;
+    private long bytesSent = 0;
+    private long packetsSent = 0;
+    private long announces = 0;
+    private long cacheHits = 0;
+    private long bytesSkipped = 0;
+    private long retransmittedChunks = 0;
+    private long resumedChunks = 0;
+    private long timedOut = 0;
+
+    private static class RecipientQueue {
+        // Transfers started, oldest first; chunked ones stay until fully acknowledged
+        final List<OutboundTransfer> active = new ArrayList<>();
+        final List<OutboundTransfer> waiting = new ArrayList<>();
+        final TokenBucket bucket;
+
+        RecipientQueue(long capacity) {
+            this.bucket = new TokenBucket(capacity);
+        }
+
+        boolean isEmpty() {
+            return active.isEmpty() && waiting.isEmpty();
+        }
+
+        int size() {
+            return waiting.size() + active.size();
+        }
+    }
+
+    /**
+     * One skin on its way to one client
+     */
+    private static class OutboundTransfer {
+        final UUID ownerUUID;
+        final PlayerSkinData data;
+        // Bytes on the wire: the image itself or its deflated form
+        final byte[] payload;
+        final int encoding;
+        // Chunk size negotiated with the recipient
+        final int chunkSize;
+        // Acknowledged chunks, or null for a skin sent as one unacknowledged packet
+        final ChunkSendWindow window;
+        // Id of a compact transfer, or -1 to send SkinResponseChunkPackets
+        final int transferId;
+        boolean sent = false;
+        boolean begun = false;
+
+        OutboundTransfer(UUID ownerUUID, PlayerSkinData data, byte[] payload, int encoding, int chunkSize,
+                         int transferId) {
+            this.ownerUUID = ownerUUID;
+            this.data = data;
+            this.payload = payload;
+            this.encoding = encoding;
+            this.chunkSize = chunkSize;
+            this.window = NetworkHandler.isChunkedResponse(payload.length, encoding, chunkSize)
+                    ? new ChunkSendWindow(NetworkHandler.getResponsePacketCount(payload.length, chunkSize),
+                            System.currentTimeMillis())
+                    : null;
+            this.transferId = window != null ? transferId : -1;
+        }
+
+        boolean canSend() {
+            return window != null ? window.canSend() : !sent;
+        }
+
+        boolean isDone() {
+            return window != null ? window.isDone() : sent;
+        }
+
+        int nextPacketSize() {
+            if (window == null) return payload.length;
+            int offset = window.peekNext() * chunkSize;
+            return Math.min(chunkSize, payload.length - offset);
+        }
+
+        long remainingBytes() {
+            if (window == null) return sent ? 0 : payload.length;
+            return Math.max(0, payload.length - (long) window.getAcked() * chunkSize);
+        }
+
+        /**
+         * The header of a compact transfer, once before its first chunk; otherwise null
+         */
+        SkinTransferBeginPacket takeBeginPacket() {
+            if (transferId < 0 || begun) return null;
+            begun = true;
+            return new SkinTransferBeginPacket(transferId, ownerUUID, data.skinId, data.skinName, data.isSlim,
+                    data.width, data.height, payload.length, window.getTotalChunks(), chunkSize, encoding,
+                    data.imageData.length);
+        }
+
+        Object buildNextPacket(long now) {
+            int index = 0;
+            if (window != null) {
+                index = window.next(now);
+            } else {
+                sent = true;
+            }
+            if (transferId >= 0) {
+                int offset = index * chunkSize;
+                return new SkinTransferChunkPacket(transferId, index, payload, offset,
+                        Math.min(chunkSize, payload.length - offset));
+            }
+            return NetworkHandler.createResponsePacket(ownerUUID.toString(), data.skinId, payload, encoding,
+                    data.imageData.length, data.isSlim, data.skinName, data.width, data.height, chunkSize, index);
+        }
+    }
+
+    public SkinTransferScheduler(SkinInterestTracker interest, SkinPayloadCache payloads, SkinIngestPipeline workers,
+                                 long globalBytesPerTick, long playerBytesPerTick, float backoffMspt) {
+        this.interest = interest;
+        this.payloads = payloads;
+        this.workers = workers;
+        this.globalBytesPerTick = globalBytesPerTick;
+        this.playerBytesPerTick = playerBytesPerTick;
+        this.backoffMspt = backoffMspt;
+        this.globalBucket = new TokenBucket(globalBytesPerTick * 2);
+    }
+
+    /**
+     * Queue a skin for a recipient. Any transfer of the same owner is replaced,
+     * so only the newest version is sent.
+     * @param allowCompression whether the recipient accepts deflated payloads
+     * @param chunkSize chunk size negotiated with the recipient
+     * @param compactChunks whether the recipient accepts compact chunk packets
+     */
+    public void enqueue(ServerPlayer recipient, UUID ownerUUID, PlayerSkinData data, boolean allowCompression,
+                        int chunkSize, boolean compactChunks) {
+        RecipientQueue queue = recipients.computeIfAbsent(recipient.getUUID(),
+                k -> new RecipientQueue(playerBytesPerTick * 2));
+
+        int transferId = -1;
+        if (compactChunks) {
+            transferId = nextTransferId;
+            nextTransferId = (nextTransferId + 1) & Integer.MAX_VALUE;
+        }
+        byte[] compressed = allowCompression ? compressedPayload(data, chunkSize) : null;
+        OutboundTransfer transfer = compressed != null
+                ? new OutboundTransfer(ownerUUID, data, compressed, SkinCompression.ENCODING_DEFLATE, chunkSize,
+                        transferId)
+                : new OutboundTransfer(ownerUUID, data, data.imageData, SkinCompression.ENCODING_RAW, chunkSize,
+                        transferId);
+
+        queue.waiting.removeIf(t -> t.ownerUUID.equals(ownerUUID));
+        queue.active.removeIf(t -> t.ownerUUID.equals(ownerUUID));
+        queue.waiting.add(transfer);
+    }
+
+    /**
+     * Deflated image for chunked transfers, or null if it goes out raw.
+     * Never compresses here: images not compressed yet are queued on the ingest workers.
+     */
+    private byte[] compressedPayload(PlayerSkinData data, int chunkSize) {
+        // Single-packet skins are not worth the extra decode on the client
+        if (data.imageData.length <= chunkSize) return null;
+        return payloads.get(data.skinId, data.imageData, workers);
+    }
+
+    /**
+     * Drop transfers of an owner's skin to a recipient (e.g. before a reset notice)
+     */
+    public void cancel(UUID recipientUUID, UUID ownerUUID) {
+        RecipientQueue queue = recipients.get(recipientUUID);
+        if (queue != null) {
+            queue.waiting.removeIf(t -> t.ownerUUID.equals(ownerUUID));
+            queue.active.removeIf(t -> t.ownerUUID.equals(ownerUUID));
+        }
+    }
+
+    /**
+     * Apply a recipient's acknowledgement of chunks of an owner's skin
+     */
+    public void onAck(UUID recipientUUID, UUID ownerUUID, String skinId, int received, int[] missing) {
+        RecipientQueue queue = recipients.get(recipientUUID);
+        if (queue == null) return;
+
+        for (Iterator<OutboundTransfer> it = queue.active.iterator(); it.hasNext(); ) {
+            OutboundTransfer transfer = it.next();
+            if (transfer.window == null || !transfer.ownerUUID.equals(ownerUUID)
+                    || !transfer.data.skinId.equals(skinId)) continue;
+
+            transfer.window.onAck(received, missing, System.currentTimeMillis());
+            if (transfer.window.isDone()) {
+                retransmittedChunks += transfer.window.getRetransmits();
+                resumedChunks += transfer.window.getResumed();
+                it.remove();
+            }
+            return;
+        }
+    }
+
+    /**
+     * Forget a recipient that left the server
+     */
+    public void removeRecipient(UUID recipientUUID) {
+        recipients.remove(recipientUUID);
+    }
+
+    /**
+     * Count a skin announced to a client by content hash
+     */
+    public void recordAnnounce() {
+        announces++;
+    }
+
+    /**
+     * Count an announced skin the client already held, so its bytes were never sent
+     */
+    public void recordCacheHit(long size) {
+        cacheHits++;
+        bytesSkipped += size;
+    }
+
+    /**
+     * Send as many queued packets as this tick's budgets allow
+     */
+    public void tick(MinecraftServer server) {
+        lastBudgetFactor = computeBudgetFactor(server.getAverageTickTime());
+        globalBucket.refill((long) (globalBytesPerTick * lastBudgetFactor));
+        long now = System.currentTimeMillis();
+        for (Map.Entry<UUID, RecipientQueue> entry : recipients.entrySet()) {
+            RecipientQueue queue = entry.getValue();
+            queue.bucket.refill(playerBytesPerTick);
+            queue.active.removeIf(transfer -> {
+                if (transfer.window == null || transfer.window.checkTimeout(now)) return false;
+                BBTSkin.LOGGER.warn("Dropping skin transfer of {} to {}: no acknowledgement",
+                        transfer.ownerUUID, entry.getKey());
+                interest.forgetDelivery(entry.getKey(), transfer.ownerUUID, transfer.data.skinId);
+                timedOut++;
+                return true;
+            });
+        }
+
+        if (recipients.isEmpty()) return;
+
+        List<UUID> order = new ArrayList<>(recipients.keySet());
+        int start = roundRobinOffset++ % order.size();
+
+        boolean progress = true;
+        while (progress && globalBucket.hasTokens()) {
+            progress = false;
+            for (int i = 0; i < order.size() && globalBucket.hasTokens(); i++) {
+                UUID recipientUUID = order.get((start + i) % order.size());
+                RecipientQueue queue = recipients.get(recipientUUID);
+                if (queue == null || queue.isEmpty() || !queue.bucket.hasTokens()) continue;
+
+                ServerPlayer recipient = server.getPlayerList().getPlayer(recipientUUID);
+                if (recipient == null) {
+                    recipients.remove(recipientUUID);
+                    continue;
+                }
+
+                if (sendNext(server, recipient, queue)) {
+                    progress = true;
+                }
+            }
+        }
+
+        // Keep idle recipients until their bucket has refilled, so any debt is still honoured
+        recipients.values().removeIf(queue -> queue.isEmpty()
+                && queue.bucket.getTokens() >= queue.bucket.getCapacity());
+    }
+
+    private boolean sendNext(MinecraftServer server, ServerPlayer recipient, RecipientQueue queue) {
+        OutboundTransfer transfer = nextSendable(server, recipient, queue);
+        if (transfer == null) return false;
+
+        int size = transfer.nextPacketSize();
+        if (!queue.bucket.tryConsumeWithDebt(size)) return false;
+        globalBucket.tryConsumeWithDebt(size);
+
+        try {
+            SkinTransferBeginPacket begin = transfer.takeBeginPacket();
+            if (begin != null) {
+                NetworkHandler.sendToPlayer(begin, recipient);
+            }
+            NetworkHandler.sendToPlayer(transfer.buildNextPacket(System.currentTimeMillis()), recipient);
+        } catch (Exception e) {
+            BBTSkin.LOGGER.error("Failed to send skin packet to {}", recipient.getName().getString(), e);
+            queue.active.remove(transfer);
+            return false;
+        }
+
+        bytesSent += size;
+        packetsSent++;
+        if (transfer.isDone()) {
+            queue.active.remove(transfer);
+        }
+        return true;
+    }
+
+    /**
+     * The oldest started transfer that may send now, or a newly started one if all are
+     * waiting for acknowledgements
+     */
+    private OutboundTransfer nextSendable(MinecraftServer server, ServerPlayer recipient, RecipientQueue queue) {
+        for (OutboundTransfer transfer : queue.active) {
+            if (transfer.canSend()) return transfer;
+        }
+        if (queue.active.size() >= MAX_ACTIVE_TRANSFERS) return null;
+
+        OutboundTransfer next = pollHighestPriority(server, recipient, queue.waiting);
+        if (next != null) {
+            queue.active.add(next);
+        }
+        return next;
+    }
+
+    /**
+     * Remove and return the waiting transfer the recipient needs most
+     */
+    private OutboundTransfer pollHighestPriority(MinecraftServer server, ServerPlayer recipient,
+                                                 List<OutboundTransfer> waiting) {
+        if (waiting.isEmpty()) return null;
+
+        int bestIndex = 0;
+        long[] bestKey = null;
+        for (int i = 0; i < waiting.size(); i++) {
+            long[] key = priorityKey(server, recipient, waiting.get(i));
+            if (bestKey == null || Arrays.compare(key, bestKey) < 0) {
+                bestKey = key;
+                bestIndex = i;
+            }
+        }
+        return waiting.remove(bestIndex);
+    }
+
+    /**
+     * Sort key (lower first): visibility tier, distance bucket, payload size
+     */
+    private long[] priorityKey(MinecraftServer server, ServerPlayer recipient, OutboundTransfer transfer) {
+        ServerPlayer owner = server.getPlayerList().getPlayer(transfer.ownerUUID);
+        long tier;
+        long distance = Long.MAX_VALUE;
+        if (owner != null && owner.level() == recipient.level()) {
+            tier = interest.isTracking(recipient.getUUID(), transfer.ownerUUID) ? 0 : 1;
+            distance = (long) (Math.sqrt(recipient.distanceToSqr(owner)) / DISTANCE_BUCKET);
+        } else {
+            // Offline or in another dimension: only needed for the tab list
+            tier = 2;
+        }
+        return new long[] { tier, distance, transfer.payload.length };
+    }
+
+    /**
+     * Scale the global budget down linearly between the back-off threshold and a severely lagging tick
+     */
+    private double computeBudgetFactor(float averageTickMs) {
+        if (averageTickMs <= backoffMspt) return 1.0;
+        if (averageTickMs >= SEVERE_MSPT || SEVERE_MSPT <= backoffMspt) return MIN_BACKOFF_FACTOR;
+        double over = (averageTickMs - backoffMspt) / (SEVERE_MSPT - backoffMspt);
+        return Math.max(MIN_BACKOFF_FACTOR, 1.0 - over * (1.0 - MIN_BACKOFF_FACTOR));
+    }
+
+    public int getQueuedTransfers() {
+        int count = 0;
+        for (RecipientQueue queue : recipients.values()) {
+            count += queue.size();
+        }
+        return count;
+    }
+
+    public long getQueuedBytes() {
+        long bytes = 0;
+        for (RecipientQueue queue : recipients.values()) {
+            for (OutboundTransfer transfer : queue.active) {
+                bytes += transfer.remainingBytes();
+            }
+            for (OutboundTransfer transfer : queue.waiting) {
+                bytes += transfer.payload.length;
+            }
+        }
+        return bytes;
+    }
+
+    public long getBytesSent() {
+        return bytesSent;
+    }
+
+    public long getPacketsSent() {
+        return packetsSent;
+    }
+
+    public long getAnnounceCount() {
+        return announces;
+    }
+
+    public long getCacheHitCount() {
+        return cacheHits;
+    }
+
+    public long getBytesSkipped() {
+        return bytesSkipped;
+    }
+
+    public long getRetransmittedChunks() {
+        return retransmittedChunks;
+    }
+
+    /**
+     * Chunks not sent again because the client kept them from an interrupted transfer
+     */
+    public long getResumedChunks() {
+        return resumedChunks;
+    }
+
+    public long getTimedOutCount() {
+        return timedOut;
+    }
+
+    public double getBudgetFactor() {
+        return lastBudgetFactor;
+    }
+}
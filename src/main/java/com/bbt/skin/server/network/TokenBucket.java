@@ -0,0 +1,59 @@
+package com.bbt.skin.server.network;
+
+/**
+ * Simple token bucket. Callers refill it on their own clock (per tick or per elapsed time).
+ * Not thread-safe.
+ */
+public class TokenBucket {
+    
+    private long capacity;
+    private long tokens;
+    
+    public TokenBucket(long capacity) {
+        this.capacity = capacity;
+        this.tokens = capacity;
+    }
+    
+    /**
+     * Add tokens, up to the bucket's capacity
+     */
+    public void refill(long amount) {
+        tokens = Math.min(capacity, tokens + amount);
+    }
+    
+    /**
+     * Take tokens only if enough are available
+     */
+    public boolean tryConsume(long amount) {
+        if (tokens < amount) return false;
+        tokens -= amount;
+        return true;
+    }
+    
+    /**
+     * Take tokens if any are available, allowing the bucket to go into debt.
+     * Lets items larger than the per-refill budget make progress.
+     */
+    public boolean tryConsumeWithDebt(long amount) {
+        if (tokens <= 0) return false;
+        tokens -= amount;
+        return true;
+    }
+    
+    public boolean hasTokens() {
+        return tokens > 0;
+    }
+    
+    public long getTokens() {
+        return tokens;
+    }
+    
+    public long getCapacity() {
+        return capacity;
+    }
+    
+    public void setCapacity(long capacity) {
+        this.capacity = capacity;
+        this.tokens = Math.min(tokens, capacity);
+    }
+}
@@ -0,0 +1,658 @@
+package com.bbt.skin.server.store;
+
+import com.bbt.skin.BBTSkin;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Local disk skin store backed by an append-only segment log.
+ *
+ * Every save or delete appends a checksummed record to the active segment. An
+ * in-memory index maps each player to the location of their latest record and is
+ * checkpointed to {@code index.bin} so startup only replays the log tail. Sealed
+ * segments are read through memory maps, and a background task compacts them once
+ * most of their bytes are superseded.
+ */
+public class LocalSkinStore implements SkinStore {
+
+    private static final int RECORD_MAGIC = 0x42425332; // "BBS2"
+    private static final int LEGACY_RECORD_MAGIC = 0x42425352; // "BBSR", records without a source hash
+    private static final int INDEX_MAGIC = 0x42425349;  // "BBSI"
+    private static final int INDEX_VERSION = 2;
+    private static final byte OP_PUT = 1;
+    private static final byte OP_DELETE = 2;
+
+    // magic + length + op + sequence + uuid + timestamp + slim + width + height + name length
+    private static final int RECORD_HEADER_SIZE = 4 + 4 + 1 + 8 + 16 + 8 + 1 + 4 + 4 + 2;
+    private static final int MAX_NAME_BYTES = 1024;
+    private static final int MAX_SOURCE_HASH_BYTES = 255;
+
+    private static final long MAX_SEGMENT_BYTES = 64L * 1024 * 1024;
+    private static final long COMPACTION_MIN_DEAD_BYTES = 16L * 1024 * 1024;
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String INDEX_FILE = "index.bin";
+
+    private final Path directory;
+    private final Map<UUID, Entry> index = new HashMap<>();
+    private final Map<Integer, MappedByteBuffer> mappedSegments = new HashMap<>();
+    private final Map<Integer, Long> segmentSizes = new TreeMap<>();
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "BBTSkin-StoreCompactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private FileChannel activeChannel;
+    private int activeSegment;
+    private long activeLength;
+    private int nextSegmentId;
+    private long nextSequence = 1;
+    private long liveBytes = 0;
+    private boolean compacting = false;
+    private boolean closed = false;
+
+    /**
+     * Location and metadata of a player's latest record
+     */
+    private record Entry(int segment, long offset, int length, long sequence,
+                         boolean slim, String name, int width, int height, long timestamp, String sourceHash) {
+    }
+
+    /**
+     * A decoded record header; data follows at {@code dataOffset}
+     */
+    private record RecordInfo(byte op, UUID uuid, Entry entry, int dataOffset, int dataLength) {
+    }
+
+    private LocalSkinStore(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Open (or create) a store in the given directory
+     */
+    public static LocalSkinStore open(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        LocalSkinStore store = new LocalSkinStore(directory);
+        store.recover();
+        return store;
+    }
+
+    // ---- SkinStore ----
+
+    @Override
+    @Nullable
+    public synchronized StoredSkin load(UUID playerUUID) {
+        if (closed) return null;
+        Entry entry = index.get(playerUUID);
+        if (entry == null) return null;
+
+        try {
+            ByteBuffer record = readRecord(entry.segment(), entry.offset(), entry.length());
+            RecordInfo info = parseRecord(entry.segment(), entry.offset(), record);
+            if (info == null || info.op() != OP_PUT) {
+                BBTSkin.LOGGER.warn("Corrupt skin record for {} in segment {}", playerUUID, entry.segment());
+                return null;
+            }
+            byte[] data = new byte[info.dataLength()];
+            record.get(info.dataOffset(), data);
+            return new StoredSkin(data, entry.slim(), entry.name(), entry.width(), entry.height(), entry.timestamp(),
+                    entry.sourceHash());
+        } catch (IOException e) {
+            BBTSkin.LOGGER.error("Failed to read stored skin for {}", playerUUID, e);
+            return null;
+        }
+    }
+
+    @Override
+    public synchronized void save(UUID playerUUID, StoredSkin skin) {
+        if (closed) return;
+        try {
+            append(OP_PUT, playerUUID, skin);
+        } catch (IOException e) {
+            BBTSkin.LOGGER.error("Failed to store skin for {}", playerUUID, e);
+        }
+    }
+
+    @Override
+    public synchronized void delete(UUID playerUUID) {
+        if (closed || !index.containsKey(playerUUID)) return;
+        try {
+            append(OP_DELETE, playerUUID, null);
+        } catch (IOException e) {
+            BBTSkin.LOGGER.error("Failed to delete stored skin for {}", playerUUID, e);
+        }
+    }
+
+    @Override
+    public synchronized List<UUID> recentPlayers(int limit) {
+        if (limit <= 0) return List.of();
+        return index.entrySet().stream()
+                .sorted(Comparator.comparingLong((Map.Entry<UUID, Entry> e) -> e.getValue().timestamp()).reversed())
+                .limit(limit)
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    @Override
+    public synchronized int size() {
+        return index.size();
+    }
+
+    @Override
+    public void close() {
+        compactor.shutdown();
+        try {
+            compactor.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+            try {
+                activeChannel.force(true);
+                writeIndex();
+                activeChannel.close();
+            } catch (IOException e) {
+                BBTSkin.LOGGER.error("Failed to close skin store", e);
+            }
+            mappedSegments.clear();
+        }
+    }
+
+    /**
+     * Total bytes on disk across all segments
+     */
+    public synchronized long getDiskBytes() {
+        long total = 0;
+        for (long size : segmentSizes.values()) {
+            total += size;
+        }
+        return total;
+    }
+
+    /**
+     * Bytes belonging to live records
+     */
+    public synchronized long getLiveBytes() {
+        return liveBytes;
+    }
+
+    // ---- Writing ----
+
+    private void append(byte op, UUID playerUUID, @Nullable StoredSkin skin) throws IOException {
+        byte[] name = skin != null ? truncateName(skin.name()) : new byte[0];
+        byte[] source = skin != null ? sourceHashBytes(skin.sourceHash()) : new byte[0];
+        byte[] data = skin != null ? skin.imageData() : new byte[0];
+        int length = RECORD_HEADER_SIZE + name.length + 1 + source.length + 4 + data.length + 4;
+
+        if (activeLength > 0 && activeLength + length > MAX_SEGMENT_BYTES) {
+            rotateSegment();
+        }
+
+        long sequence = nextSequence++;
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        buffer.putInt(RECORD_MAGIC);
+        buffer.putInt(length);
+        buffer.put(op);
+        buffer.putLong(sequence);
+        buffer.putLong(playerUUID.getMostSignificantBits());
+        buffer.putLong(playerUUID.getLeastSignificantBits());
+        buffer.putLong(skin != null ? skin.timestamp() : System.currentTimeMillis());
+        buffer.put((byte) (skin != null && skin.slim() ? 1 : 0));
+        buffer.putInt(skin != null ? skin.width() : 0);
+        buffer.putInt(skin != null ? skin.height() : 0);
+        buffer.putShort((short) name.length);
+        buffer.put(name);
+        buffer.put((byte) source.length);
+        buffer.put(source);
+        buffer.putInt(data.length);
+        buffer.put(data);
+        buffer.putInt(checksum(buffer.array(), 8, length - 12));
+        buffer.flip();
+
+        long offset = activeLength;
+        while (buffer.hasRemaining()) {
+            activeChannel.write(buffer, offset + buffer.position());
+        }
+        activeLength += length;
+        segmentSizes.put(activeSegment, activeLength);
+
+        Entry previous;
+        if (op == OP_PUT) {
+            previous = index.put(playerUUID, new Entry(activeSegment, offset, length, sequence,
+                    skin.slim(), new String(name, StandardCharsets.UTF_8), skin.width(), skin.height(),
+                    skin.timestamp(), new String(source, StandardCharsets.US_ASCII)));
+            liveBytes += length;
+        } else {
+            previous = index.remove(playerUUID);
+        }
+        if (previous != null) {
+            liveBytes -= previous.length();
+        }
+
+        maybeScheduleCompaction();
+    }
+
+    private void rotateSegment() throws IOException {
+        activeChannel.force(true);
+        activeChannel.close();
+        openActiveSegment(nextSegmentId++, 0);
+    }
+
+    private void openActiveSegment(int segment, long length) throws IOException {
+        activeChannel = FileChannel.open(segmentPath(segment),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        activeChannel.truncate(length);
+        activeSegment = segment;
+        activeLength = length;
+        segmentSizes.put(segment, length);
+    }
+
+    // ---- Reading ----
+
+    private ByteBuffer readRecord(int segment, long offset, int length) throws IOException {
+        MappedByteBuffer mapped = mappedSegments.get(segment);
+        if (mapped == null || mapped.capacity() < offset + length) {
+            try (FileChannel channel = FileChannel.open(segmentPath(segment), StandardOpenOption.READ)) {
+                mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+            mappedSegments.put(segment, mapped);
+        }
+        if (offset + length > mapped.capacity()) {
+            throw new EOFException("Record beyond end of segment " + segment);
+        }
+        return mapped.slice((int) offset, length);
+    }
+
+    /**
+     * Decode and verify a record, returning null if it is truncated or corrupt
+     */
+    @Nullable
+    private static RecordInfo parseRecord(int segment, long offset, ByteBuffer record) {
+        if (record.remaining() < RECORD_HEADER_SIZE) return null;
+        int base = record.position();
+        int magic = record.getInt(base);
+        if (magic != RECORD_MAGIC && magic != LEGACY_RECORD_MAGIC) return null;
+
+        int length = record.getInt(base + 4);
+        if (length < RECORD_HEADER_SIZE + 8 || length > record.remaining()) return null;
+
+        int nameLength = record.getShort(base + RECORD_HEADER_SIZE - 2) & 0xFFFF;
+        int sourcePos = base + RECORD_HEADER_SIZE + nameLength;
+        int sourceLength = 0;
+        int sourceBytes = 0;
+        if (magic == RECORD_MAGIC) {
+            if (sourcePos + 1 > base + length - 8) return null;
+            sourceLength = record.get(sourcePos) & 0xFF;
+            sourceBytes = 1 + sourceLength;
+        }
+        int dataLengthPos = sourcePos + sourceBytes;
+        if (dataLengthPos + 4 > base + length - 4) return null;
+        int dataLength = record.getInt(dataLengthPos);
+        if (dataLength < 0 || RECORD_HEADER_SIZE + nameLength + sourceBytes + 8 + dataLength != length) return null;
+
+        CRC32 crc = new CRC32();
+        crc.update(record.slice(base + 8, length - 12));
+        if ((int) crc.getValue() != record.getInt(base + length - 4)) return null;
+
+        byte op = record.get(base + 8);
+        long sequence = record.getLong(base + 9);
+        UUID uuid = new UUID(record.getLong(base + 17), record.getLong(base + 25));
+        long timestamp = record.getLong(base + 33);
+        boolean slim = record.get(base + 41) != 0;
+        int width = record.getInt(base + 42);
+        int height = record.getInt(base + 46);
+        byte[] nameBytes = new byte[nameLength];
+        record.get(base + RECORD_HEADER_SIZE, nameBytes);
+        byte[] sourceHash = new byte[sourceLength];
+        record.get(sourcePos + 1, sourceHash);
+
+        Entry entry = new Entry(segment, offset, length, sequence, slim,
+                new String(nameBytes, StandardCharsets.UTF_8), width, height, timestamp,
+                new String(sourceHash, StandardCharsets.US_ASCII));
+        return new RecordInfo(op, uuid, entry, dataLengthPos + 4 - base, dataLength);
+    }
+
+    // ---- Recovery ----
+
+    private void recover() throws IOException {
+        List<Integer> segments = listSegments();
+        for (int segment : segments) {
+            segmentSizes.put(segment, Files.size(segmentPath(segment)));
+        }
+        nextSegmentId = segments.isEmpty() ? 1 : segments.get(segments.size() - 1) + 1;
+
+        Map<UUID, Long> tombstones = new HashMap<>();
+        int checkpointSegment = readIndex(segments);
+        if (checkpointSegment < 0) {
+            // No usable checkpoint - rebuild from every segment
+            index.clear();
+            for (int segment : segments) {
+                scanSegment(segment, 0, tombstones);
+            }
+        } else {
+            for (int segment : segments) {
+                if (segment == checkpointSegment) {
+                    scanSegment(segment, activeLength, tombstones);
+                } else if (segment > checkpointSegment) {
+                    scanSegment(segment, 0, tombstones);
+                }
+            }
+        }
+
+        // Continue appending to the newest segment, dropping any torn tail
+        int newest = segments.isEmpty() ? nextSegmentId++ : segments.get(segments.size() - 1);
+        openActiveSegment(newest, segmentSizes.getOrDefault(newest, 0L));
+
+        liveBytes = 0;
+        Set<Integer> referenced = new HashSet<>();
+        for (Entry entry : index.values()) {
+            liveBytes += entry.length();
+            referenced.add(entry.segment());
+        }
+
+        // Segments without live records are leftovers of an interrupted compaction
+        for (int segment : segments) {
+            if (segment != activeSegment && !referenced.contains(segment)) {
+                deleteSegment(segment);
+            }
+        }
+
+        BBTSkin.LOGGER.info("Opened local skin store with {} skins ({} KB on disk)",
+                index.size(), getDiskBytes() / 1024);
+        maybeScheduleCompaction();
+    }
+
+    /**
+     * Replay records of a segment from the given offset into the index.
+     * The segment's recorded size is trimmed to the last valid record.
+     */
+    private void scanSegment(int segment, long from, Map<UUID, Long> tombstones) throws IOException {
+        long size = segmentSizes.getOrDefault(segment, 0L);
+        if (from >= size) return;
+
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(segmentPath(segment), StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+
+        long position = from;
+        while (position < size) {
+            RecordInfo info = parseRecord(segment, position, buffer.slice((int) position, (int) (size - position)));
+            if (info == null) {
+                BBTSkin.LOGGER.warn("Truncating skin store segment {} at offset {}", segment, position);
+                break;
+            }
+            applyRecovered(info, tombstones);
+            position += info.entry().length();
+        }
+        segmentSizes.put(segment, position);
+    }
+
+    private void applyRecovered(RecordInfo info, Map<UUID, Long> tombstones) {
+        long sequence = info.entry().sequence();
+        nextSequence = Math.max(nextSequence, sequence + 1);
+
+        Entry current = index.get(info.uuid());
+        long newest = Math.max(current != null ? current.sequence() : 0, tombstones.getOrDefault(info.uuid(), 0L));
+        if (sequence <= newest) return;
+
+        if (info.op() == OP_PUT) {
+            index.put(info.uuid(), info.entry());
+            tombstones.remove(info.uuid());
+        } else {
+            index.remove(info.uuid());
+            tombstones.put(info.uuid(), sequence);
+        }
+    }
+
+    /**
+     * Load the index checkpoint.
+     * @return the segment that was active at checkpoint time, or -1 if the checkpoint is unusable
+     */
+    private int readIndex(List<Integer> segments) {
+        Path indexPath = directory.resolve(INDEX_FILE);
+        if (!Files.exists(indexPath)) return -1;
+
+        try {
+            byte[] bytes = Files.readAllBytes(indexPath);
+            if (bytes.length < 8) return -1;
+            int stored = ByteBuffer.wrap(bytes, bytes.length - 4, 4).getInt();
+            if (checksum(bytes, 0, bytes.length - 4) != stored) return -1;
+
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, 0, bytes.length - 4));
+            if (in.readInt() != INDEX_MAGIC || in.readInt() != INDEX_VERSION) return -1;
+
+            int checkpointSegment = in.readInt();
+            long checkpointLength = in.readLong();
+            nextSequence = in.readLong();
+            int count = in.readInt();
+
+            for (int i = 0; i < count; i++) {
+                UUID uuid = new UUID(in.readLong(), in.readLong());
+                Entry entry = new Entry(in.readInt(), in.readLong(), in.readInt(), in.readLong(),
+                        in.readBoolean(), in.readUTF(), in.readInt(), in.readInt(), in.readLong(), in.readUTF());
+                if (!segments.contains(entry.segment())
+                        || entry.offset() + entry.length() > segmentSizes.getOrDefault(entry.segment(), 0L)) {
+                    BBTSkin.LOGGER.warn("Skin store index references missing data, rebuilding");
+                    return -1;
+                }
+                index.put(uuid, entry);
+            }
+
+            activeLength = Math.min(checkpointLength, segmentSizes.getOrDefault(checkpointSegment, 0L));
+            return checkpointSegment;
+        } catch (IOException e) {
+            BBTSkin.LOGGER.warn("Failed to read skin store index, rebuilding", e);
+            return -1;
+        }
+    }
+
+    /**
+     * Atomically write the index checkpoint
+     */
+    private void writeIndex() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + index.size() * 96);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(INDEX_MAGIC);
+        out.writeInt(INDEX_VERSION);
+        out.writeInt(activeSegment);
+        out.writeLong(activeLength);
+        out.writeLong(nextSequence);
+        out.writeInt(index.size());
+        for (Map.Entry<UUID, Entry> e : index.entrySet()) {
+            Entry entry = e.getValue();
+            out.writeLong(e.getKey().getMostSignificantBits());
+            out.writeLong(e.getKey().getLeastSignificantBits());
+            out.writeInt(entry.segment());
+            out.writeLong(entry.offset());
+            out.writeInt(entry.length());
+            out.writeLong(entry.sequence());
+            out.writeBoolean(entry.slim());
+            out.writeUTF(entry.name());
+            out.writeInt(entry.width());
+            out.writeInt(entry.height());
+            out.writeLong(entry.timestamp());
+            out.writeUTF(entry.sourceHash());
+        }
+        byte[] body = bytes.toByteArray();
+        out.writeInt(checksum(body, 0, body.length));
+
+        Path target = directory.resolve(INDEX_FILE);
+        Path temp = directory.resolve(INDEX_FILE + ".tmp");
+        Files.write(temp, bytes.toByteArray());
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // ---- Compaction ----
+
+    private void maybeScheduleCompaction() {
+        if (compacting || closed || compactor.isShutdown()) return;
+        long deadBytes = getDiskBytes() - liveBytes;
+        if (deadBytes >= COMPACTION_MIN_DEAD_BYTES && deadBytes > liveBytes) {
+            compacting = true;
+            compactor.execute(this::compact);
+        }
+    }
+
+    /**
+     * Rewrite the live records of all sealed segments into a single new segment.
+     * Copying happens outside the lock; sealed segments are immutable.
+     */
+    private void compact() {
+        List<Integer> sealed;
+        List<Map.Entry<UUID, Entry>> toCopy = new ArrayList<>();
+        int output;
+
+        synchronized (this) {
+            try {
+                if (closed) return;
+                if (activeLength > 0) {
+                    rotateSegment();
+                }
+                sealed = new ArrayList<>(segmentSizes.keySet());
+                sealed.remove((Integer) activeSegment);
+                for (Map.Entry<UUID, Entry> e : index.entrySet()) {
+                    if (e.getValue().segment() != activeSegment) {
+                        toCopy.add(Map.entry(e.getKey(), e.getValue()));
+                    }
+                }
+                output = nextSegmentId++;
+            } catch (IOException e) {
+                BBTSkin.LOGGER.error("Failed to prepare skin store compaction", e);
+                compacting = false;
+                return;
+            }
+        }
+
+        long start = System.currentTimeMillis();
+        Map<UUID, Entry> moved = new HashMap<>();
+        Path temp = directory.resolve(segmentPath(output).getFileName() + ".tmp");
+        long outputLength = 0;
+
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            for (Map.Entry<UUID, Entry> e : toCopy) {
+                Entry entry = e.getValue();
+                ByteBuffer record;
+                synchronized (this) {
+                    if (closed) return;
+                    record = readRecord(entry.segment(), entry.offset(), entry.length());
+                }
+                while (record.hasRemaining()) {
+                    out.write(record, outputLength + record.position());
+                }
+                moved.put(e.getKey(), new Entry(output, outputLength, entry.length(), entry.sequence(),
+                        entry.slim(), entry.name(), entry.width(), entry.height(), entry.timestamp(),
+                        entry.sourceHash()));
+                outputLength += entry.length();
+            }
+            out.force(true);
+        } catch (IOException e) {
+            BBTSkin.LOGGER.error("Skin store compaction failed", e);
+            synchronized (this) {
+                compacting = false;
+            }
+            return;
+        }
+
+        synchronized (this) {
+            try {
+                if (closed) return;
+                Files.move(temp, segmentPath(output), StandardCopyOption.ATOMIC_MOVE);
+                segmentSizes.put(output, outputLength);
+
+                // Repoint entries that were not replaced while copying
+                for (Map.Entry<UUID, Entry> e : moved.entrySet()) {
+                    Entry current = index.get(e.getKey());
+                    if (current != null && current.sequence() == e.getValue().sequence()) {
+                        index.put(e.getKey(), e.getValue());
+                    }
+                }
+                for (int segment : sealed) {
+                    deleteSegment(segment);
+                }
+                writeIndex();
+
+                BBTSkin.LOGGER.info("Compacted {} skin store segments into {} KB in {}ms",
+                        sealed.size(), outputLength / 1024, System.currentTimeMillis() - start);
+            } catch (IOException e) {
+                BBTSkin.LOGGER.error("Failed to finish skin store compaction", e);
+            } finally {
+                compacting = false;
+            }
+        }
+    }
+
+    // ---- Files ----
+
+    private void deleteSegment(int segment) {
+        mappedSegments.remove(segment);
+        segmentSizes.remove(segment);
+        try {
+            Files.deleteIfExists(segmentPath(segment));
+        } catch (IOException e) {
+            // Still mapped on some platforms; it is unreferenced and will be removed on next open
+            BBTSkin.LOGGER.debug("Deferred deletion of skin store segment {}", segment);
+        }
+    }
+
+    private Path segmentPath(int segment) {
+        return directory.resolve(String.format("%s%08d%s", SEGMENT_PREFIX, segment, SEGMENT_SUFFIX));
+    }
+
+    private List<Integer> listSegments() throws IOException {
+        List<Integer> segments = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(path -> {
+                String name = path.getFileName().toString();
+                if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+                    try {
+                        segments.add(Integer.parseInt(name.substring(SEGMENT_PREFIX.length(),
+                                name.length() - SEGMENT_SUFFIX.length())));
+                    } catch (NumberFormatException ignored) {
+                    }
+                }
+            });
+        }
+        Collections.sort(segments);
+        return segments;
+    }
+
+    private static byte[] truncateName(@Nullable String name) {
+        byte[] bytes = (name != null ? name : "").getBytes(StandardCharsets.UTF_8);
+        return bytes.length <= MAX_NAME_BYTES ? bytes : Arrays.copyOf(bytes, MAX_NAME_BYTES);
+    }
+
+    /**
+     * Source hashes are hex digests; anything unexpected is stored as unknown
+     */
+    private static byte[] sourceHashBytes(@Nullable String sourceHash) {
+        if (sourceHash == null) return new byte[0];
+        byte[] bytes = sourceHash.getBytes(StandardCharsets.US_ASCII);
+        return bytes.length <= MAX_SOURCE_HASH_BYTES ? bytes : new byte[0];
+    }
+
+    private static int checksum(byte[] data, int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(data, offset, length);
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,78 @@
+package com.bbt.skin.server.store;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Content-addressed, reference-counted store for skin images.
+ * Identical skins uploaded by different players are kept once; each player
+ * entry holds a reference to the blob by its SHA-256 content hash.
+ */
+public class SkinBlobStore {
+    
+    private final Map<String, Blob> blobs = new HashMap<>();
+    private long totalBytes = 0;
+    
+    private static class Blob {
+        final byte[] data;
+        int refCount;
+        
+        Blob(byte[] data) {
+            this.data = data;
+        }
+    }
+    
+    /**
+     * Add a reference to the blob with the given hash, storing the data if it is new.
+     * @return the shared byte array for this content (may differ from {@code data})
+     */
+    public synchronized byte[] acquire(String hash, byte[] data) {
+        Blob blob = blobs.get(hash);
+        if (blob == null) {
+            blob = new Blob(data);
+            blobs.put(hash, blob);
+            totalBytes += data.length;
+        }
+        blob.refCount++;
+        return blob.data;
+    }
+    
+    /**
+     * Drop a reference to a blob, freeing it when no player uses it anymore
+     */
+    public synchronized void release(@Nullable String hash) {
+        if (hash == null) return;
+        Blob blob = blobs.get(hash);
+        if (blob == null) return;
+        if (--blob.refCount <= 0) {
+            blobs.remove(hash);
+            totalBytes -= blob.data.length;
+        }
+    }
+    
+    @Nullable
+    public synchronized byte[] get(String hash) {
+        Blob blob = blobs.get(hash);
+        return blob != null ? blob.data : null;
+    }
+    
+    public synchronized boolean contains(String hash) {
+        return blobs.containsKey(hash);
+    }
+    
+    /**
+     * Number of distinct skin images held
+     */
+    public synchronized int size() {
+        return blobs.size();
+    }
+    
+    /**
+     * Total bytes of distinct skin images held
+     */
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+}
@@ -0,0 +1,154 @@
+package com.bbt.skin.server.store;
+
+import com.bbt.skin.common.data.SkinHashing;
+import com.bbt.skin.server.network.ServerSkinHandler.PlayerSkinData;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * Byte-weighted LRU cache of player skins on the server.
+ * Skins of online players are pinned; skins of offline players are evicted
+ * least-recently-used first once the distinct image bytes exceed the ceiling.
+ */
+public class SkinCache {
+    
+    private final Map<UUID, PlayerSkinData> entries = new LinkedHashMap<>(16, 0.75f, true);
+    // Same entries, for lookups that must not touch the LRU order
+    private final Map<UUID, PlayerSkinData> index = new HashMap<>();
+    private final Set<UUID> pinned = new HashSet<>();
+    private final SkinBlobStore blobStore = new SkinBlobStore();
+    private final long maxBytes;
+    
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+    
+    public SkinCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+    
+    /**
+     * Look up a skin, counting a hit or miss and marking it as recently used
+     */
+    @Nullable
+    public synchronized PlayerSkinData get(UUID playerUUID) {
+        PlayerSkinData data = entries.get(playerUUID);
+        if (data != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return data;
+    }
+    
+    /**
+     * Look up a skin without affecting statistics or LRU order
+     */
+    @Nullable
+    public synchronized PlayerSkinData peek(UUID playerUUID) {
+        return index.get(playerUUID);
+    }
+    
+    /**
+     * Store a player's skin, sharing the image with other players that use identical bytes
+     */
+    public synchronized PlayerSkinData put(UUID playerUUID, byte[] imageData, boolean isSlim,
+                                           String skinName, int width, int height) {
+        String hash = SkinHashing.sha256(imageData);
+        byte[] shared = blobStore.acquire(hash, imageData);
+        PlayerSkinData data = new PlayerSkinData(hash, shared, isSlim, skinName, width, height);
+        
+        PlayerSkinData previous = entries.put(playerUUID, data);
+        index.put(playerUUID, data);
+        if (previous != null) {
+            blobStore.release(previous.skinId);
+        }
+        evictIfNeeded();
+        return data;
+    }
+    
+    /**
+     * Remove a player's skin and release its image reference
+     */
+    public synchronized void remove(UUID playerUUID) {
+        PlayerSkinData previous = entries.remove(playerUUID);
+        index.remove(playerUUID);
+        if (previous != null) {
+            blobStore.release(previous.skinId);
+        }
+    }
+    
+    /**
+     * Keep a player's skin resident while they are online
+     */
+    public synchronized void pin(UUID playerUUID) {
+        pinned.add(playerUUID);
+    }
+    
+    /**
+     * Allow a player's skin to be evicted again (player went offline)
+     */
+    public synchronized void unpin(UUID playerUUID) {
+        if (pinned.remove(playerUUID)) {
+            evictIfNeeded();
+        }
+    }
+    
+    /**
+     * Evict unpinned skins in LRU order until the cache fits its byte ceiling
+     */
+    private void evictIfNeeded() {
+        if (blobStore.getTotalBytes() <= maxBytes) return;
+        
+        Iterator<Map.Entry<UUID, PlayerSkinData>> it = entries.entrySet().iterator();
+        while (it.hasNext() && blobStore.getTotalBytes() > maxBytes) {
+            Map.Entry<UUID, PlayerSkinData> entry = it.next();
+            if (pinned.contains(entry.getKey())) continue;
+            
+            it.remove();
+            index.remove(entry.getKey());
+            blobStore.release(entry.getValue().skinId);
+            evictions++;
+        }
+    }
+    
+    /**
+     * Snapshot of all cached skins, safe to iterate without holding the lock
+     */
+    public synchronized List<Map.Entry<UUID, PlayerSkinData>> snapshot() {
+        List<Map.Entry<UUID, PlayerSkinData>> result = new ArrayList<>(entries.size());
+        for (Map.Entry<UUID, PlayerSkinData> entry : entries.entrySet()) {
+            result.add(Map.entry(entry.getKey(), entry.getValue()));
+        }
+        return result;
+    }
+    
+    public synchronized int size() {
+        return entries.size();
+    }
+    
+    public synchronized int getUniqueImages() {
+        return blobStore.size();
+    }
+    
+    public synchronized long getTotalBytes() {
+        return blobStore.getTotalBytes();
+    }
+    
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+    
+    public synchronized long getHits() {
+        return hits;
+    }
+    
+    public synchronized long getMisses() {
+        return misses;
+    }
+    
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+}
@@ -0,0 +1,112 @@
+package com.bbt.skin.server.store;
+
+import com.bbt.skin.common.config.BBTSkinConfig;
+import com.bbt.skin.common.network.SkinCompression;
+import com.bbt.skin.server.ingest.SkinIngestPipeline;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * Byte-weighted LRU cache of deflated skin payloads, keyed by image hash.
+ * Images are compressed once on the ingest workers; the transfer scheduler only looks
+ * them up, so no payload is ever deflated on the server thread.
+ */
+public class SkinPayloadCache {
+
+    // Images this small always go out as one packet, so they are never compressed
+    public static final int MIN_COMPRESSED_SIZE = 4096;
+    // Remembered for images where compression does not pay off
+    private static final byte[] RAW = new byte[0];
+    // Accounted per entry on top of the payload, so RAW entries are bounded too
+    private static final int ENTRY_OVERHEAD = 128;
+
+    private final Map<String, byte[]> entries = new LinkedHashMap<>(16, 0.75f, true);
+    // Hashes being compressed on the workers
+    private final Set<String> compressing = new HashSet<>();
+    private final long maxBytes;
+
+    private long totalBytes = 0;
+    private long compressions = 0;
+
+    public SkinPayloadCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * The deflated form of an image, or null if it goes out raw or is not compressed yet.
+     * A missing image is compressed on the workers for later transfers.
+     */
+    @Nullable
+    public byte[] get(String hash, byte[] imageData, SkinIngestPipeline workers) {
+        synchronized (this) {
+            byte[] encoded = entries.get(hash);
+            if (encoded != null) return encoded.length > 0 ? encoded : null;
+            if (imageData.length <= MIN_COMPRESSED_SIZE || !compressing.add(hash)) return null;
+        }
+
+        boolean started = workers.execute(() -> {
+            try {
+                compress(hash, imageData);
+            } finally {
+                synchronized (this) {
+                    compressing.remove(hash);
+                }
+            }
+            return null;
+        }, ignored -> { });
+        if (!started) {
+            synchronized (this) {
+                compressing.remove(hash);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Compress an image on the calling thread (an ingest worker) unless it is cached already
+     * or transfer compression is disabled
+     */
+    public void compress(String hash, byte[] imageData) {
+        if (imageData.length <= MIN_COMPRESSED_SIZE || !BBTSkinConfig.get().isTransferCompressionEnabled()) return;
+        synchronized (this) {
+            if (entries.containsKey(hash)) return;
+        }
+
+        byte[] compressed = SkinCompression.compress(imageData);
+        put(hash, compressed != null ? compressed : RAW);
+    }
+
+    private synchronized void put(String hash, byte[] encoded) {
+        compressions++;
+        byte[] previous = entries.put(hash, encoded);
+        if (previous != null) {
+            totalBytes -= weightOf(previous);
+        }
+        totalBytes += weightOf(encoded);
+
+        Iterator<Map.Entry<String, byte[]>> it = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && it.hasNext()) {
+            Map.Entry<String, byte[]> eldest = it.next();
+            if (eldest.getKey().equals(hash)) continue;
+            totalBytes -= weightOf(eldest.getValue());
+            it.remove();
+        }
+    }
+
+    private static long weightOf(byte[] encoded) {
+        return encoded.length + ENTRY_OVERHEAD;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public synchronized long getCompressions() {
+        return compressions;
+    }
+}
@@ -0,0 +1,46 @@
+package com.bbt.skin.server.store;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Persistence backend for server-side player skins.
+ * Implementations must be thread-safe; they are called from the server thread
+ * as well as from API callback threads.
+ */
+public interface SkinStore {
+    
+    /**
+     * Load a player's skin, or null if none is stored
+     */
+    @Nullable
+    StoredSkin load(UUID playerUUID);
+    
+    /**
+     * Store a player's skin, replacing any previous one
+     */
+    void save(UUID playerUUID, StoredSkin skin);
+    
+    /**
+     * Remove a player's skin
+     */
+    void delete(UUID playerUUID);
+    
+    /**
+     * Players whose skins were most recently updated, newest first.
+     * Answered from metadata only; no image bytes are read.
+     */
+    List<UUID> recentPlayers(int limit);
+    
+    /**
+     * Number of players with a stored skin
+     */
+    int size();
+    
+    /**
+     * Flush state and release resources
+     */
+    void close();
+}
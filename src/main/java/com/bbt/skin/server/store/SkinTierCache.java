@@ -0,0 +1,150 @@
+package com.bbt.skin.server.store;
+
+import com.bbt.skin.common.image.SkinDownscaler;
+import com.bbt.skin.server.ingest.SkinIngest;
+import com.bbt.skin.server.ingest.SkinIngestPipeline;
+import com.bbt.skin.server.network.ServerSkinHandler.PlayerSkinData;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * Byte-weighted LRU cache of downscaled skin tiers, keyed by the full image's hash.
+ * Tiers are filled on ingest, and rebuilt on the ingest workers for skins loaded from a
+ * store or evicted here; lookups never decode an image on the calling thread.
+ * Rebuilt tiers and their full image are compressed for transfer in the same job.
+ */
+public class SkinTierCache {
+
+    private final Map<String, List<SkinIngest.Tier>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    // Full hash -> callbacks waiting for tiers being built
+    private final Map<String, List<Runnable>> building = new HashMap<>();
+    private final SkinPayloadCache payloads;
+    private final long maxBytes;
+
+    private long totalBytes = 0;
+    private long builds = 0;
+
+    public SkinTierCache(long maxBytes, SkinPayloadCache payloads) {
+        this.maxBytes = maxBytes;
+        this.payloads = payloads;
+    }
+
+    /**
+     * Remember the tiers of a full image (largest first)
+     */
+    public synchronized void put(String fullHash, List<SkinIngest.Tier> tiers) {
+        // Empty lists are kept too, so images without tiers are not decoded again
+        List<SkinIngest.Tier> previous = entries.put(fullHash, List.copyOf(tiers));
+        if (previous != null) {
+            totalBytes -= bytesOf(previous);
+        }
+        totalBytes += bytesOf(tiers);
+
+        Iterator<Map.Entry<String, List<SkinIngest.Tier>>> it = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && it.hasNext()) {
+            Map.Entry<String, List<SkinIngest.Tier>> eldest = it.next();
+            if (eldest.getKey().equals(fullHash)) continue;
+            totalBytes -= bytesOf(eldest.getValue());
+            it.remove();
+        }
+    }
+
+    /**
+     * The version of a skin to send to a client displaying at most {@code maxResolution} pixels:
+     * the largest tier that fits, or the full image if it already fits or has no tiers
+     * @return null if the image's tiers are not built yet (see {@link #build})
+     */
+    @Nullable
+    public synchronized PlayerSkinData forResolution(PlayerSkinData full, int maxResolution) {
+        if (!needsTiers(full) || full.width <= maxResolution) return full;
+
+        List<SkinIngest.Tier> tiers = entries.get(full.skinId);
+        if (tiers == null) return null;
+
+        for (SkinIngest.Tier tier : tiers) {
+            if (tier.width() <= maxResolution || tier == tiers.get(tiers.size() - 1)) {
+                // Owner metadata stays per player; only the image is shared
+                return new PlayerSkinData(tier.hash(), tier.imageData(), full.isSlim, full.skinName,
+                        tier.width(), tier.height());
+            }
+        }
+        return full;
+    }
+
+    /**
+     * Build the tiers of a full image on the ingest workers, unless they are cached already.
+     * {@code onReady} runs on the server thread once they are; requests for an image that
+     * is already being built share that build.
+     * @return false if the workers are saturated and nothing was started
+     */
+    public boolean build(PlayerSkinData full, SkinIngestPipeline workers, Runnable onReady) {
+        boolean ready;
+        synchronized (this) {
+            ready = !needsTiers(full) || entries.containsKey(full.skinId);
+            if (!ready) {
+                List<Runnable> waiting = building.get(full.skinId);
+                if (waiting != null) {
+                    waiting.add(onReady);
+                    return true;
+                }
+                building.put(full.skinId, new ArrayList<>(List.of(onReady)));
+            }
+        }
+        if (ready) {
+            onReady.run();
+            return true;
+        }
+
+        boolean started = workers.execute(() -> {
+            List<Runnable> waiting;
+            try {
+                List<SkinIngest.Tier> tiers = SkinIngest.buildTiers(full.imageData);
+                put(full.skinId, tiers);
+                payloads.compress(full.skinId, full.imageData);
+                for (SkinIngest.Tier tier : tiers) {
+                    payloads.compress(tier.hash(), tier.imageData());
+                }
+            } finally {
+                synchronized (this) {
+                    builds++;
+                    waiting = building.remove(full.skinId);
+                }
+            }
+            return waiting;
+        }, waiting -> waiting.forEach(Runnable::run));
+        if (!started) {
+            synchronized (this) {
+                building.remove(full.skinId);
+            }
+        }
+        return started;
+    }
+
+    /**
+     * Only high-resolution squares are tiered
+     */
+    private static boolean needsTiers(PlayerSkinData full) {
+        return full.width == full.height && full.width > SkinDownscaler.MIN_RESOLUTION;
+    }
+
+    private static long bytesOf(List<SkinIngest.Tier> tiers) {
+        long bytes = 0;
+        for (SkinIngest.Tier tier : tiers) {
+            bytes += tier.imageData().length;
+        }
+        return bytes;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public synchronized long getBuilds() {
+        return builds;
+    }
+}
@@ -0,0 +1,9 @@
+package com.bbt.skin.server.store;
+
+/**
+ * A persisted player skin as held by a {@link SkinStore}.
+ * The source hash identifies the uploaded bytes the skin was canonicalized from (empty if unknown).
+ */
+public record StoredSkin(byte[] imageData, boolean slim, String name, int width, int height, long timestamp,
+                         String sourceHash) {
+}